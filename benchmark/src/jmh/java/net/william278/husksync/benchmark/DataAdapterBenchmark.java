@@ -0,0 +1,54 @@
+package net.william278.husksync.benchmark;
+
+import net.william278.husksync.data.*;
+import net.william278.husksync.data.compression.CompressionCodec;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding whole {@link UserData} snapshots with each {@link DataAdapter}, as done on every
+ * save and server switch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataAdapterBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "WHALE"})
+    public UserDataFixtures.PlayerSize size;
+
+    @Param({"JSON", "COMPRESSED_SNAPPY", "COMPRESSED_ZSTD", "BINARY"})
+    public String adapter;
+
+    private DataAdapter dataAdapter;
+    private UserData userData;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        dataAdapter = switch (adapter) {
+            case "JSON" -> new JsonDataAdapter();
+            case "COMPRESSED_SNAPPY" -> new CompressedDataAdapter(
+                    new CompressionCodecRegistry(CompressionCodec.Type.SNAPPY, 3));
+            case "COMPRESSED_ZSTD" -> new CompressedDataAdapter(
+                    new CompressionCodecRegistry(CompressionCodec.Type.ZSTD, 3));
+            case "BINARY" -> new BinaryDataAdapter(true);
+            default -> throw new IllegalArgumentException("Unknown adapter: " + adapter);
+        };
+        userData = UserDataFixtures.create(size);
+        serialized = dataAdapter.toBytes(userData);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return dataAdapter.toBytes(userData);
+    }
+
+    @Benchmark
+    public UserData fromBytes() {
+        return dataAdapter.fromBytes(serialized);
+    }
+
+}
@@ -0,0 +1,52 @@
+package net.william278.husksync.benchmark;
+
+import net.william278.husksync.data.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the handling of serialized item arrays: converting between compact item bytes and the strings stored in
+ * {@link ItemData}, and decoding just the inventory section of binary data, as done when previewing an inventory.
+ * <p>
+ * Encoding {@code ItemStack}s themselves needs a running server, so is not covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemSerializationBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "WHALE"})
+    public UserDataFixtures.PlayerSize size;
+
+    private DataAdapter binaryAdapter;
+    private ItemData inventory;
+    private byte[] compactItems;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        final UserData userData = UserDataFixtures.create(size);
+        binaryAdapter = new BinaryDataAdapter(true);
+        inventory = userData.getInventoryData();
+        compactItems = inventory.getCompactItems().orElseThrow();
+        serialized = binaryAdapter.toBytes(userData);
+    }
+
+    @Benchmark
+    public ItemData encodeItemData() {
+        return ItemData.fromCompactItems(compactItems);
+    }
+
+    @Benchmark
+    public byte[] decodeItemData() {
+        return inventory.getCompactItems().orElseThrow();
+    }
+
+    @Benchmark
+    public UserData decodeInventorySection() {
+        return binaryAdapter.decodeSections(serialized, EnumSet.of(UserDataSection.INVENTORY));
+    }
+
+}
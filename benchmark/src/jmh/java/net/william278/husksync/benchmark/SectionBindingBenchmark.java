@@ -0,0 +1,60 @@
+package net.william278.husksync.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.william278.husksync.data.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Gson binding of each section of {@link UserData} through the {@link UserDataTypeAdapterFactory}, to show
+ * which sections dominate serialization time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SectionBindingBenchmark {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new UserDataTypeAdapterFactory())
+            .create();
+
+    @Param({"SMALL", "MEDIAN", "WHALE"})
+    public UserDataFixtures.PlayerSize size;
+
+    @Param({"STATUS", "INVENTORY", "ADVANCEMENTS", "STATISTICS", "LOCATION", "PERSISTENT_DATA_CONTAINER"})
+    public UserDataSection section;
+
+    private Object sectionData;
+    private Class<?> sectionType;
+    private String json;
+
+    @Setup
+    public void setup() {
+        final UserData userData = UserDataFixtures.create(size);
+        sectionData = switch (section) {
+            case STATUS -> userData.getStatusData();
+            case INVENTORY -> userData.getInventoryData();
+            case ENDER_CHEST -> userData.getEnderChestData();
+            case POTION_EFFECTS -> userData.getPotionEffectsData();
+            case ADVANCEMENTS -> userData.getAdvancementData().toArray(new AdvancementData[0]);
+            case STATISTICS -> userData.getStatisticsData();
+            case LOCATION -> userData.getLocationData();
+            case PERSISTENT_DATA_CONTAINER -> userData.getPersistentDataContainerData();
+        };
+        sectionType = sectionData.getClass();
+        json = GSON.toJson(sectionData, sectionType);
+    }
+
+    @Benchmark
+    public String write() {
+        return GSON.toJson(sectionData, sectionType);
+    }
+
+    @Benchmark
+    public Object read() {
+        return GSON.fromJson(json, sectionType);
+    }
+
+}
@@ -0,0 +1,141 @@
+package net.william278.husksync.benchmark;
+
+import net.william278.husksync.data.BukkitStatisticIndex;
+import net.william278.husksync.data.PackedStatisticMap;
+import net.william278.husksync.data.StatisticsData;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks capturing a player's statistics with the precomputed {@link BukkitStatisticIndex}, against filtering
+ * {@link Material#values()} for each typed statistic as was done before. Dividing the {@code calls} counter by the
+ * {@code captures} counter gives the number of statistic reads per capture, and the gc profiler reports allocations.
+ * <p>
+ * Reading statistics from a real player needs a running server, so values are read from a simulated player whose
+ * statistics are mostly zero, as a real player's are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatisticCaptureBenchmark {
+
+    // One in this many statistic pairs has a non-zero value
+    @Param({"50", "500"})
+    public int sparsity;
+
+    private BukkitStatisticIndex index;
+
+    @Setup
+    public void setup() {
+        index = BukkitStatisticIndex.getInstance();
+    }
+
+    @Benchmark
+    public StatisticsData captureIndexed(@NotNull ReadCounter counter) {
+        counter.captures++;
+        return index.capture(new SimulatedPlayer(counter, sparsity));
+    }
+
+    @Benchmark
+    public StatisticsData captureFiltered(@NotNull ReadCounter counter) {
+        counter.captures++;
+        final SimulatedPlayer player = new SimulatedPlayer(counter, sparsity);
+        final Map<String, Integer> untypedStatisticValues = new PackedStatisticMap();
+        final Map<String, Map<String, Integer>> blockStatisticValues = new HashMap<>();
+        final Map<String, Map<String, Integer>> itemStatisticValues = new HashMap<>();
+        final Map<String, Map<String, Integer>> entityStatisticValues = new HashMap<>();
+        for (Statistic statistic : Statistic.values()) {
+            switch (statistic.getType()) {
+                case ITEM -> {
+                    final Map<String, Integer> itemValues = new PackedStatisticMap();
+                    Arrays.stream(Material.values()).filter(Material::isItem)
+                            .filter(itemMaterial -> (player.getStatistic(statistic, itemMaterial)) != 0)
+                            .forEach(itemMaterial -> itemValues.put(itemMaterial.name(),
+                                    player.getStatistic(statistic, itemMaterial)));
+                    if (!itemValues.isEmpty()) {
+                        itemStatisticValues.put(statistic.name(), itemValues);
+                    }
+                }
+                case BLOCK -> {
+                    final Map<String, Integer> blockValues = new PackedStatisticMap();
+                    Arrays.stream(Material.values()).filter(Material::isBlock)
+                            .filter(blockMaterial -> (player.getStatistic(statistic, blockMaterial)) != 0)
+                            .forEach(blockMaterial -> blockValues.put(blockMaterial.name(),
+                                    player.getStatistic(statistic, blockMaterial)));
+                    if (!blockValues.isEmpty()) {
+                        blockStatisticValues.put(statistic.name(), blockValues);
+                    }
+                }
+                case ENTITY -> {
+                    final Map<String, Integer> entityValues = new PackedStatisticMap();
+                    Arrays.stream(EntityType.values()).filter(EntityType::isAlive)
+                            .filter(entityType -> (player.getStatistic(statistic, entityType)) != 0)
+                            .forEach(entityType -> entityValues.put(entityType.name(),
+                                    player.getStatistic(statistic, entityType)));
+                    if (!entityValues.isEmpty()) {
+                        entityStatisticValues.put(statistic.name(), entityValues);
+                    }
+                }
+                case UNTYPED -> {
+                    if (player.getStatistic(statistic) != 0) {
+                        untypedStatisticValues.put(statistic.name(), player.getStatistic(statistic));
+                    }
+                }
+            }
+        }
+        return new StatisticsData(untypedStatisticValues, blockStatisticValues,
+                itemStatisticValues, entityStatisticValues);
+    }
+
+    /**
+     * Counts the statistic reads made by each capture
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ReadCounter {
+
+        public long calls;
+        public long captures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            calls = 0;
+            captures = 0;
+        }
+
+    }
+
+    private record SimulatedPlayer(@NotNull ReadCounter counter, int sparsity)
+            implements BukkitStatisticIndex.StatisticReader {
+
+        @Override
+        public int getStatistic(@NotNull Statistic statistic) {
+            return read(statistic.ordinal());
+        }
+
+        @Override
+        public int getStatistic(@NotNull Statistic statistic, @NotNull Material material) {
+            return read(statistic.ordinal() * 31 + material.ordinal());
+        }
+
+        @Override
+        public int getStatistic(@NotNull Statistic statistic, @NotNull EntityType entityType) {
+            return read(statistic.ordinal() * 31 + entityType.ordinal());
+        }
+
+        private int read(final int seed) {
+            counter.calls++;
+            return seed % sparsity == 0 ? seed + 1 : 0;
+        }
+
+    }
+
+}
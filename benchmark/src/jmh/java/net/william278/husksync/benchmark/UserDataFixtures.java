@@ -0,0 +1,260 @@
+package net.william278.husksync.benchmark;
+
+import net.william278.husksync.data.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Builds realistic, deterministic {@link UserData} fixtures for the benchmarks, at the sizes of a new player, a typical
+ * player and a "whale" who has played for years.
+ * <p>
+ * Items are generated directly in the compact binary format written by the Bukkit platform's item codec, as items
+ * cannot be serialized without a running server. The generated maps mirror those of real item stacks, so that they
+ * compress realistically.
+ */
+public final class UserDataFixtures {
+
+    private static final String[] MATERIALS = {
+            "STONE", "COBBLESTONE", "DIRT", "GRASS_BLOCK", "OAK_LOG", "OAK_PLANKS", "SPRUCE_LOG", "BIRCH_LOG", "SAND",
+            "GRAVEL", "IRON_ORE", "COAL_ORE", "GOLD_ORE", "DIAMOND_ORE", "DEEPSLATE", "ANDESITE", "DIORITE", "GRANITE",
+            "NETHERRACK", "OBSIDIAN", "TORCH", "CRAFTING_TABLE", "FURNACE", "CHEST", "GLASS", "WHITE_WOOL", "BREAD",
+            "COOKED_BEEF", "GOLDEN_APPLE", "DIAMOND_SWORD", "DIAMOND_PICKAXE", "NETHERITE_PICKAXE", "BOW", "ARROW",
+            "SHIELD", "ELYTRA", "FIREWORK_ROCKET", "ENDER_PEARL", "SHULKER_BOX", "REDSTONE", "HOPPER", "RAIL"
+    };
+    private static final String[] ENTITIES = {
+            "ZOMBIE", "SKELETON", "CREEPER", "SPIDER", "ENDERMAN", "WITCH", "PIGLIN", "BLAZE", "GHAST", "COW", "PIG",
+            "SHEEP", "CHICKEN", "VILLAGER", "IRON_GOLEM", "WITHER_SKELETON", "DROWNED", "PHANTOM", "SLIME", "ENDER_DRAGON"
+    };
+    private static final String[] UNTYPED_STATISTICS = {
+            "DAMAGE_DEALT", "DAMAGE_TAKEN", "DEATHS", "MOB_KILLS", "PLAYER_KILLS", "FISH_CAUGHT", "ANIMALS_BRED",
+            "LEAVE_GAME", "JUMP", "DROP_COUNT", "PLAY_ONE_MINUTE", "TOTAL_WORLD_TIME", "WALK_ONE_CM", "WALK_ON_WATER_ONE_CM",
+            "FALL_ONE_CM", "SNEAK_TIME", "CLIMB_ONE_CM", "FLY_ONE_CM", "WALK_UNDER_WATER_ONE_CM", "MINECART_ONE_CM",
+            "BOAT_ONE_CM", "PIG_ONE_CM", "HORSE_ONE_CM", "SPRINT_ONE_CM", "CROUCH_ONE_CM", "AVIATE_ONE_CM",
+            "TIME_SINCE_DEATH", "TALKED_TO_VILLAGER", "TRADED_WITH_VILLAGER", "CAKE_SLICES_EATEN", "SLEEP_IN_BED",
+            "OPEN_BARREL", "INTERACT_WITH_CRAFTING_TABLE", "TIME_SINCE_REST", "SWIM_ONE_CM", "STRIDER_ONE_CM"
+    };
+    private static final String[] RECIPE_CATEGORIES = {
+            "building_blocks", "combat", "decorations", "food", "misc", "redstone", "tools", "transportation", "brewing"
+    };
+    private static final String[] ENCHANTMENTS = {
+            "DAMAGE_ALL", "DURABILITY", "MENDING", "DIG_SPEED", "LOOT_BONUS_BLOCKS", "PROTECTION_ENVIRONMENTAL"
+    };
+
+    private UserDataFixtures() {
+    }
+
+    /**
+     * Build a fixture
+     *
+     * @param size the size of player to build data for
+     * @return the user data
+     */
+    @NotNull
+    public static UserData create(@NotNull PlayerSize size) {
+        final Random random = new Random(size.ordinal() * 31L + 1);
+        return new UserData(
+                new StatusData(20, 20, 0, 20, 5, 0, 4, size.experience, size.experience / 100,
+                        0.4f, "SURVIVAL", false),
+                createItems(random, 41, size.inventoryItems, size.metaChance, size.loreLines),
+                createItems(random, 27, size.enderChestItems, size.metaChance, size.loreLines),
+                new PotionEffectData(""),
+                createAdvancements(random, size.advancements),
+                createStatistics(random, size.statistics),
+                new LocationData("world", new UUID(random.nextLong(), random.nextLong()), "NORMAL",
+                        random.nextInt(20000) - 10000.5, 64, random.nextInt(20000) - 10000.5, 90, 0),
+                createPersistentData(random, size.persistentDataTags),
+                "1.19.2");
+    }
+
+    @NotNull
+    private static ItemData createItems(@NotNull Random random, final int slots, final int itemCount,
+                                        final double metaChance, final int loreLines) {
+        try {
+            final ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(byteOutputStream);
+            output.writeByte(2);
+            writeVarInt(output, slots);
+            writeVarInt(output, itemCount);
+            for (int slot = 0; slot < itemCount; slot++) {
+                final ByteArrayOutputStream itemByteOutputStream = new ByteArrayOutputStream();
+                final DataOutputStream item = new DataOutputStream(itemByteOutputStream);
+                final boolean hasMeta = random.nextDouble() < metaChance;
+                writeVarInt(item, hasMeta ? 4 : 3);
+                writeString(item, "v");
+                writeInt(item, 3120);
+                writeString(item, "type");
+                writeStringValue(item, MATERIALS[random.nextInt(MATERIALS.length)]);
+                writeString(item, "amount");
+                writeInt(item, hasMeta ? 1 : 1 + random.nextInt(64));
+                if (hasMeta) {
+                    writeString(item, "meta");
+                    writeItemMeta(item, random, loreLines);
+                }
+                item.flush();
+                writeVarInt(output, slot);
+                writeVarInt(output, itemByteOutputStream.size());
+                itemByteOutputStream.writeTo(output);
+            }
+            output.flush();
+            return ItemData.fromCompactItems(byteOutputStream.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to generate item data", e);
+        }
+    }
+
+    // Write item meta as a serializable value, with a display name, lore and enchantments
+    private static void writeItemMeta(@NotNull DataOutputStream output, @NotNull Random random,
+                                      final int loreLines) throws IOException {
+        output.writeByte(11);
+        writeString(output, "ItemMeta");
+        writeVarInt(output, 4);
+        writeString(output, "meta-type");
+        writeStringValue(output, "UNSPECIFIC");
+        writeString(output, "display-name");
+        writeStringValue(output, "{\"extra\":[{\"bold\":true,\"color\":\"gold\",\"text\":\"Legendary Blade #"
+                                 + random.nextInt(1000) + "\"}],\"text\":\"\"}");
+        writeString(output, "lore");
+        output.writeByte(9);
+        writeVarInt(output, loreLines);
+        for (int i = 0; i < loreLines; i++) {
+            writeStringValue(output, "{\"extra\":[{\"color\":\"gray\",\"text\":\"Forged in the depths, line "
+                                     + i + "\"}],\"text\":\"\"}");
+        }
+        writeString(output, "enchants");
+        output.writeByte(10);
+        final int enchantments = 1 + random.nextInt(ENCHANTMENTS.length);
+        writeVarInt(output, enchantments);
+        for (int i = 0; i < enchantments; i++) {
+            writeString(output, ENCHANTMENTS[i]);
+            writeInt(output, 1 + random.nextInt(5));
+        }
+    }
+
+    @NotNull
+    private static List<AdvancementData> createAdvancements(@NotNull Random random, final int count) {
+        final List<AdvancementData> advancements = new ArrayList<>(count);
+        long time = 1_640_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            final String material = MATERIALS[i % MATERIALS.length].toLowerCase(Locale.ENGLISH);
+            final Map<String, Date> criteria = new LinkedHashMap<>();
+            time += random.nextInt(600_000);
+            criteria.put("has_the_recipe", new Date(time));
+            criteria.put("has_" + material, new Date(time));
+            advancements.add(new AdvancementData("minecraft:recipes/"
+                                                 + RECIPE_CATEGORIES[i % RECIPE_CATEGORIES.length] + "/" + material
+                                                 + (i < MATERIALS.length ? "" : "_" + i / MATERIALS.length), criteria));
+        }
+        return advancements;
+    }
+
+    @NotNull
+    private static StatisticsData createStatistics(@NotNull Random random, final int count) {
+        final Map<String, Integer> untyped = new LinkedHashMap<>();
+        for (String statistic : UNTYPED_STATISTICS) {
+            untyped.put(statistic, random.nextInt(5_000_000));
+        }
+        final Map<String, Map<String, Integer>> blocks = new LinkedHashMap<>();
+        final Map<String, Map<String, Integer>> items = new LinkedHashMap<>();
+        final Map<String, Map<String, Integer>> entities = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String material = MATERIALS[i % MATERIALS.length]
+                                    + (i < MATERIALS.length * 4 ? "" : "_" + i / (MATERIALS.length * 4));
+            switch (i % 4) {
+                case 0 -> blocks.computeIfAbsent("MINE_BLOCK", key -> new LinkedHashMap<>())
+                        .put(material, random.nextInt(10_000));
+                case 1 -> items.computeIfAbsent("USE_ITEM", key -> new LinkedHashMap<>())
+                        .put(material, random.nextInt(10_000));
+                case 2 -> items.computeIfAbsent("PICKUP", key -> new LinkedHashMap<>())
+                        .put(material, random.nextInt(10_000));
+                default -> entities.computeIfAbsent("KILL_ENTITY", key -> new LinkedHashMap<>())
+                        .put(ENTITIES[i % ENTITIES.length] + (i < ENTITIES.length * 4 ? "" : "_" + i),
+                                random.nextInt(1_000));
+            }
+        }
+        return new StatisticsData(untyped, blocks, items, entities);
+    }
+
+    @NotNull
+    private static PersistentDataContainerData createPersistentData(@NotNull Random random, final int count) {
+        final Map<String, PersistentDataTag<?>> tags = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                tags.put("plugin:counter_" + i, new PersistentDataTag<>(BukkitPersistentDataTagType.INTEGER,
+                        random.nextInt()));
+            } else {
+                tags.put("plugin:label_" + i, new PersistentDataTag<>(BukkitPersistentDataTagType.STRING,
+                        "value-" + random.nextInt(100_000)));
+            }
+        }
+        return new PersistentDataContainerData(tags);
+    }
+
+    private static void writeInt(@NotNull DataOutputStream output, final int value) throws IOException {
+        output.writeByte(2);
+        output.writeInt(value);
+    }
+
+    private static void writeStringValue(@NotNull DataOutputStream output, @NotNull String value) throws IOException {
+        output.writeByte(1);
+        writeString(output, value);
+    }
+
+    private static void writeString(@NotNull DataOutputStream output, @NotNull String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static void writeVarInt(@NotNull DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * The sizes of player data fixtures
+     */
+    public enum PlayerSize {
+        /**
+         * A player who has just joined
+         */
+        SMALL(8, 0, 0.1, 1, 12, 40, 0, 150),
+        /**
+         * A typical regular player
+         */
+        MEDIAN(30, 14, 0.3, 3, 250, 600, 8, 4_000),
+        /**
+         * A player with years of play time, full inventories of enchanted gear and every recipe unlocked
+         */
+        WHALE(41, 27, 0.9, 10, 1_100, 5_000, 64, 250_000);
+
+        private final int inventoryItems;
+        private final int enderChestItems;
+        private final double metaChance;
+        private final int loreLines;
+        private final int advancements;
+        private final int statistics;
+        private final int persistentDataTags;
+        private final int experience;
+
+        PlayerSize(final int inventoryItems, final int enderChestItems, final double metaChance, final int loreLines,
+                   final int advancements, final int statistics, final int persistentDataTags, final int experience) {
+            this.inventoryItems = inventoryItems;
+            this.enderChestItems = enderChestItems;
+            this.metaChance = metaChance;
+            this.loreLines = loreLines;
+            this.advancements = advancements;
+            this.statistics = statistics;
+            this.persistentDataTags = persistentDataTags;
+            this.experience = experience;
+        }
+    }
+
+}
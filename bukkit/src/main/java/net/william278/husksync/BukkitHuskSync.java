@@ -12,11 +12,24 @@ import net.william278.husksync.command.BukkitCommandType;
 import net.william278.husksync.command.Permission;
 import net.william278.husksync.config.Locales;
 import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.BinaryDataAdapter;
+import net.william278.husksync.data.BukkitAdvancementCatalog;
+import net.william278.husksync.data.BukkitItemCodec;
+import net.william278.husksync.data.BukkitSerializer;
+import net.william278.husksync.data.BukkitStatisticIndex;
+import net.william278.husksync.data.BukkitStatisticTracker;
 import net.william278.husksync.data.CompressedDataAdapter;
 import net.william278.husksync.data.DataAdapter;
+import net.william278.husksync.data.ItemStackCache;
 import net.william278.husksync.data.JsonDataAdapter;
+import net.william278.husksync.data.StatisticKeyIndex;
+import net.william278.husksync.data.compression.CompressionCodec;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
+import net.william278.husksync.data.compression.CompressionPolicy;
 import net.william278.husksync.database.Database;
 import net.william278.husksync.database.MySqlDatabase;
+import net.william278.husksync.database.RetentionCompactor;
+import net.william278.husksync.database.SaveJournal;
 import net.william278.husksync.editor.DataEditor;
 import net.william278.husksync.event.BukkitEventCannon;
 import net.william278.husksync.event.EventCannon;
@@ -29,13 +42,18 @@ import net.william278.husksync.migrator.MpdbMigrator;
 import net.william278.husksync.player.BukkitPlayer;
 import net.william278.husksync.player.OnlineUser;
 import net.william278.husksync.redis.RedisManager;
+import net.william278.husksync.util.BukkitApplyScheduler;
 import net.william278.husksync.util.BukkitLogger;
 import net.william278.husksync.util.BukkitResourceReader;
 import net.william278.husksync.util.Logger;
+import net.william278.husksync.util.PerformanceMetrics;
 import net.william278.husksync.util.ResourceReader;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.plugin.Plugin;
@@ -62,11 +80,17 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
     private ResourceReader resourceReader;
     private EventListener eventListener;
     private DataAdapter dataAdapter;
+    private CompressionCodecRegistry compressionCodecs;
     private DataEditor dataEditor;
     private EventCannon eventCannon;
     private Settings settings;
     private Locales locales;
     private List<Migrator> availableMigrators;
+    private RetentionCompactor retentionCompactor;
+    private BukkitStatisticTracker statisticTracker;
+    private BukkitAdvancementCatalog advancementCatalog;
+    private BukkitApplyScheduler applyScheduler;
+    private final PerformanceMetrics performanceMetrics = new PerformanceMetrics();
     private static BukkitHuskSync instance;
 
     /**
@@ -102,13 +126,51 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
                 throw new HuskSyncInitializationException("Failed to load plugin configuration settings and/or locales");
             }
 
-            // Prepare data adapter
-            if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESS_DATA)) {
-                dataAdapter = new CompressedDataAdapter();
+            // Prepare compression codecs and data adapter
+            final CompressionCodec.Type codecType = getCompressionCodecType(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_CODEC);
+            compressionCodecs = new CompressionCodecRegistry(codecType,
+                    settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_LEVEL));
+            if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_BINARY_DATA_FORMAT)) {
+                dataAdapter = new BinaryDataAdapter(settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESS_DATA),
+                        compressionCodecs);
+            } else if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESS_DATA)) {
+                dataAdapter = new CompressedDataAdapter(compressionCodecs,
+                        settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_ADAPTIVE)
+                                ? new CompressionPolicy(
+                                settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_RAW_THRESHOLD_BYTES),
+                                settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_STRONG_THRESHOLD_BYTES),
+                                getCompressionCodecType(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_FAST_CODEC),
+                                getCompressionCodecType(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_STRONG_CODEC),
+                                performanceMetrics) : null);
             } else {
-                dataAdapter = new JsonDataAdapter();
+                dataAdapter = new JsonDataAdapter(compressionCodecs);
             }
 
+            // Serialize items in the compact format if enabled, and cache items deserialized from it, as many players
+            // carry identical stacks. Data from other servers may be in the compact format even if it is disabled here
+            BukkitSerializer.setCompactItemFormat(settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_COMPACT_ITEM_FORMAT));
+            final int itemCacheSize = settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_ITEM_CACHE_SIZE_KB);
+            BukkitItemCodec.setItemCache(itemCacheSize > 0
+                    ? new ItemStackCache(itemCacheSize * 1024L, performanceMetrics) : null);
+
+            // Index statistic keys in enum ordinal order, so packed statistics are keyed by compact, ordered IDs
+            StatisticKeyIndex.register(Arrays.stream(Statistic.values()).map(Statistic::name).toArray(String[]::new));
+            StatisticKeyIndex.register(Arrays.stream(Material.values()).map(Material::name).toArray(String[]::new));
+            StatisticKeyIndex.register(Arrays.stream(EntityType.values()).map(EntityType::name).toArray(String[]::new));
+
+            // Precompute the valid statistic pairs to capture, and track changes to read only changed statistics
+            statisticTracker = new BukkitStatisticTracker(this, BukkitStatisticIndex.getInstance(),
+                    settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_STATISTICS_FULL_CAPTURE_MINUTES) * 60_000L,
+                    performanceMetrics);
+
+            // Catalog the server's advancements, rather than iterating them on every save and join
+            advancementCatalog = new BukkitAdvancementCatalog(this);
+
+            // Apply synchronised data on the main thread within a time budget each tick, serving joining players first
+            applyScheduler = new BukkitApplyScheduler(this,
+                    settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_APPLY_TICK_BUDGET_MILLISECONDS),
+                    uuid -> eventListener != null && eventListener.isLocked(uuid), performanceMetrics);
+
             // Prepare event cannon
             eventCannon = new BukkitEventCannon();
 
@@ -124,7 +186,10 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
             }
 
             // Prepare database connection
-            this.database = new MySqlDatabase(settings, resourceReader, logger, dataAdapter, eventCannon);
+            this.database = new MySqlDatabase(settings, resourceReader, logger, dataAdapter, eventCannon, performanceMetrics,
+                    settings.getBooleanValue(Settings.ConfigOption.DATABASE_JOURNAL_ENABLED)
+                            ? new SaveJournal(new File(getDataFolder(), "journal"), settings.getIntegerValue(
+                            Settings.ConfigOption.DATABASE_JOURNAL_FLUSH_INTERVAL_MILLISECONDS), logger) : null);
             getLoggingAdapter().log(Level.INFO, "Attempting to establish connection to the database...");
             initialized.set(this.database.initialize());
             if (initialized.get()) {
@@ -134,6 +199,23 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
                         "Please check the supplied database credentials in the config file");
             }
 
+            // Register every compression dictionary in the background, loading any trained since as they are referenced
+            compressionCodecs.setDictionaryLoader(database::getCompressionDictionary);
+            database.getCompressionDictionaries().thenAccept(dictionaries -> {
+                final boolean activateLatest = codecType == CompressionCodec.Type.ZSTD_DICTIONARY;
+                for (int i = 0; i < dictionaries.size(); i++) {
+                    compressionCodecs.registerDictionary(dictionaries.get(i), activateLatest && i == dictionaries.size() - 1);
+                }
+                if (dictionaries.isEmpty() && activateLatest) {
+                    getLoggingAdapter().log(Level.WARNING, "No compression dictionary has been trained yet; " +
+                                                           "data will be compressed with plain zstd until one is trained with /husksync dictionary");
+                }
+            });
+
+            // Prune old user data in the background
+            this.retentionCompactor = new RetentionCompactor(database, settings, logger, performanceMetrics);
+            this.retentionCompactor.start();
+
             // Prepare redis connection
             this.redisManager = new RedisManager(this);
             getLoggingAdapter().log(Level.INFO, "Attempting to establish connection to the Redis server...");
@@ -221,12 +303,29 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
 
     @Override
     public void onDisable() {
+        if (this.retentionCompactor != null) {
+            this.retentionCompactor.stop();
+        }
+        if (this.applyScheduler != null) {
+            this.applyScheduler.stop();
+        }
         if (this.eventListener != null) {
             this.eventListener.handlePluginDisable();
         }
         getLoggingAdapter().log(Level.INFO, "Successfully disabled HuskSync v" + getPluginVersion());
     }
 
+    // Read a compression codec type from the config, falling back to Snappy if it is not recognised
+    @NotNull
+    private CompressionCodec.Type getCompressionCodecType(@NotNull Settings.ConfigOption option) {
+        final String codecName = settings.getStringValue(option);
+        return CompressionCodec.Type.getTypeByName(codecName).orElseGet(() -> {
+            getLoggingAdapter().log(Level.WARNING, "Unknown compression codec \"" + codecName + "\" set for "
+                                                   + option.configPath + "; using SNAPPY");
+            return CompressionCodec.Type.SNAPPY;
+        });
+    }
+
     @Override
     public @NotNull Set<OnlineUser> getOnlineUsers() {
         return Bukkit.getOnlinePlayers().stream().map(BukkitPlayer::adapt).collect(Collectors.toSet());
@@ -256,6 +355,11 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
         return dataAdapter;
     }
 
+    @Override
+    public @NotNull CompressionCodecRegistry getCompressionCodecs() {
+        return compressionCodecs;
+    }
+
     @Override
     public @NotNull DataEditor getDataEditor() {
         return dataEditor;
@@ -287,6 +391,38 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync {
         return logger;
     }
 
+    @Override
+    public @NotNull PerformanceMetrics getMetrics() {
+        return performanceMetrics;
+    }
+
+    /**
+     * Get the tracker used to capture player statistics
+     *
+     * @return the statistic tracker
+     */
+    public @NotNull BukkitStatisticTracker getStatisticTracker() {
+        return statisticTracker;
+    }
+
+    /**
+     * Get the catalog of the server's advancements
+     *
+     * @return the advancement catalog
+     */
+    public @NotNull BukkitAdvancementCatalog getAdvancementCatalog() {
+        return advancementCatalog;
+    }
+
+    /**
+     * Get the scheduler used to apply synchronised data on the main thread
+     *
+     * @return the apply scheduler
+     */
+    public @NotNull BukkitApplyScheduler getApplyScheduler() {
+        return applyScheduler;
+    }
+
     @NotNull
     @Override
     public ResourceReader getResourceReader() {
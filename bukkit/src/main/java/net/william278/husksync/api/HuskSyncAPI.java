@@ -65,10 +65,11 @@ public class HuskSyncAPI extends BaseHuskSyncAPI {
     public CompletableFuture<Void> setInventoryData(@NotNull User user, @NotNull ItemStack[] inventoryContents) {
         return CompletableFuture.runAsync(() -> getUserData(user).thenAccept(userData ->
                 userData.ifPresent(data -> serializeItemStackArray(inventoryContents)
-                        .thenAccept(serializedInventory -> {
-                            data.getInventoryData().serializedItems = serializedInventory;
-                            setUserData(user, data).join();
-                        }))));
+                        .thenAccept(serializedInventory -> setUserData(user, new UserData(data.getStatusData(),
+                                new ItemData(serializedInventory), data.getEnderChestData(),
+                                data.getPotionEffectsData(), data.getAdvancementData(), data.getStatisticsData(),
+                                data.getLocationData(), data.getPersistentDataContainerData(),
+                                data.getMinecraftVersion())).join()))));
     }
 
     /**
@@ -94,10 +95,11 @@ public class HuskSyncAPI extends BaseHuskSyncAPI {
     public CompletableFuture<Void> setEnderChestData(@NotNull User user, @NotNull ItemStack[] enderChestContents) {
         return CompletableFuture.runAsync(() -> getUserData(user).thenAccept(userData ->
                 userData.ifPresent(data -> serializeItemStackArray(enderChestContents)
-                        .thenAccept(serializedInventory -> {
-                            data.getEnderChestData().serializedItems = serializedInventory;
-                            setUserData(user, data).join();
-                        }))));
+                        .thenAccept(serializedEnderChest -> setUserData(user, new UserData(data.getStatusData(),
+                                data.getInventoryData(), new ItemData(serializedEnderChest),
+                                data.getPotionEffectsData(), data.getAdvancementData(), data.getStatisticsData(),
+                                data.getLocationData(), data.getPersistentDataContainerData(),
+                                data.getMinecraftVersion())).join()))));
     }
 
     /**
@@ -105,13 +107,14 @@ public class HuskSyncAPI extends BaseHuskSyncAPI {
      *
      * @param user the {@link User} to get the {@link BukkitInventoryMap} for
      * @return future returning the {@link BukkitInventoryMap} for the given {@link User} if they exist,
-     * otherwise an empty {@link Optional}
+     * otherwise an empty {@link Optional}. The optional is also empty if their inventory was not captured, because
+     * inventory synchronization is disabled
      * @since 2.0
      */
     public CompletableFuture<Optional<BukkitInventoryMap>> getPlayerInventory(@NotNull User user) {
         return CompletableFuture.supplyAsync(() -> getUserData(user).join()
-                .map(userData -> deserializeInventory(userData
-                        .getInventoryData().serializedItems).join()));
+                .map(UserData::getInventoryData)
+                .map(inventoryData -> deserializeInventory(inventoryData.serializedItems).join()));
     }
 
     /**
@@ -119,13 +122,14 @@ public class HuskSyncAPI extends BaseHuskSyncAPI {
      *
      * @param user the {@link User} to get the Ender Chest contents of
      * @return future returning the {@link ItemStack} array of Ender Chest items for the user if they exist,
-     * otherwise an empty {@link Optional}
+     * otherwise an empty {@link Optional}. The optional is also empty if their Ender Chest was not captured, because
+     * Ender Chest synchronization is disabled
      * @since 2.0
      */
     public CompletableFuture<Optional<ItemStack[]>> getPlayerEnderChest(@NotNull User user) {
         return CompletableFuture.supplyAsync(() -> getUserData(user).join()
-                .map(userData -> deserializeItemStackArray(userData
-                        .getEnderChestData().serializedItems).join()));
+                .map(UserData::getEnderChestData)
+                .map(enderChestData -> deserializeItemStackArray(enderChestData.serializedItems).join()));
     }
 
     /**
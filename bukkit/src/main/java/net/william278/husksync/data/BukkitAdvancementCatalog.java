@@ -0,0 +1,133 @@
+package net.william278.husksync.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.advancement.Advancement;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A catalog of the server's advancements, with their keys and criteria, used to capture and apply advancements.
+ * <p>
+ * The server's advancements only change when data packs are reloaded, so rather than iterating
+ * {@link Bukkit#advancementIterator()} and converting each key to a string on every save and join, the catalog is
+ * built once on startup and refreshed when the server is reloaded. Data pack reloads fire no event on Bukkit, so
+ * reload and data pack commands mark the catalog stale; until it is refreshed, after the reload has had time to
+ * complete, the catalog is read straight from the server.
+ */
+public class BukkitAdvancementCatalog implements Listener {
+
+    // The delay after a data pack reload command before the catalog is refreshed
+    private static final long RELOAD_REFRESH_DELAY_TICKS = 100;
+
+    private final Plugin plugin;
+    private volatile Catalog catalog;
+    private volatile boolean stale;
+
+    /**
+     * Create an advancement catalog, reading the server's advancements and registering it to listen for reloads
+     *
+     * @param plugin the plugin to register the catalog with
+     */
+    public BukkitAdvancementCatalog(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        this.catalog = Catalog.read();
+        Bukkit.getServer().getPluginManager().registerEvents(this, plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(@NotNull ServerLoadEvent event) {
+        refresh();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(@NotNull PlayerCommandPreprocessEvent event) {
+        handleCommand(event.getMessage().startsWith("/") ? event.getMessage().substring(1) : event.getMessage());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(@NotNull ServerCommandEvent event) {
+        handleCommand(event.getCommand().startsWith("/") ? event.getCommand().substring(1) : event.getCommand());
+    }
+
+    // Mark the catalog stale if a command reloads data packs, and refresh it once the reload should have completed
+    private void handleCommand(@NotNull String command) {
+        final String label = command.split(" ", 2)[0].toLowerCase(Locale.ENGLISH);
+        if (label.equals("minecraft:reload") || label.equals("datapack") || label.equals("minecraft:datapack")) {
+            stale = true;
+            Bukkit.getScheduler().runTaskLater(plugin, this::refresh, RELOAD_REFRESH_DELAY_TICKS);
+        }
+    }
+
+    /**
+     * Rebuild the catalog from the server's advancements
+     */
+    public void refresh() {
+        catalog = Catalog.read();
+        stale = false;
+    }
+
+    /**
+     * Get every advancement on the server
+     *
+     * @return the server's advancements, in the order the server iterates them
+     */
+    @NotNull
+    public List<Entry> getEntries() {
+        return getCatalog().entries;
+    }
+
+    /**
+     * Get an advancement by key
+     *
+     * @param key the advancement key, such as {@code minecraft:story/mine_stone}
+     * @return the advancement, or {@code null} if there is no advancement by that key on the server
+     */
+    @Nullable
+    public Entry getEntry(@NotNull String key) {
+        return getCatalog().entriesByKey.get(key);
+    }
+
+    @NotNull
+    private Catalog getCatalog() {
+        return stale ? Catalog.read() : catalog;
+    }
+
+    /**
+     * An advancement on the server
+     *
+     * @param advancement the advancement
+     * @param key         the advancement key as a string, interned so that it is shared by every record of it
+     * @param criteria    the names of the criteria of the advancement
+     */
+    public record Entry(@NotNull Advancement advancement, @NotNull String key, @NotNull List<String> criteria) {
+    }
+
+    private record Catalog(@NotNull List<Entry> entries, @NotNull Map<String, Entry> entriesByKey) {
+
+        @NotNull
+        private static Catalog read() {
+            final List<Entry> entries = new ArrayList<>();
+            final Map<String, Entry> entriesByKey = new HashMap<>();
+            final Iterator<Advancement> serverAdvancements = Bukkit.getServer().advancementIterator();
+            while (serverAdvancements.hasNext()) {
+                final Advancement advancement = serverAdvancements.next();
+                final Entry entry = new Entry(advancement, advancement.getKey().toString().intern(),
+                        List.copyOf(advancement.getCriteria()));
+                entries.add(entry);
+                entriesByKey.put(entry.key(), entry);
+            }
+            return new Catalog(Collections.unmodifiableList(entries), entriesByKey);
+        }
+
+    }
+
+}
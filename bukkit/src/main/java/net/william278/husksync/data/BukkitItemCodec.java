@@ -0,0 +1,317 @@
+package net.william278.husksync.data;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodes arrays of {@link ItemStack}s in a compact binary format.
+ * <p>
+ * Items are written sparsely, so that empty slots take no space:
+ * <pre>
+ * version    1 byte
+ * length     varint, the length of the item array
+ * item count varint, the number of non-empty slots
+ * items      per item: slot index (varint), length (varint), then its {@link ItemStack#serialize() serialized} map
+ * </pre>
+ * Serialized values are written with a one byte type tag, and strings as a varint length followed by UTF-8 bytes.
+ * {@link ConfigurationSerializable} values, such as item meta, are written as their alias and serialized map, and are
+ * deserialized through {@link ConfigurationSerialization}, exactly as when items are saved to YAML. This avoids the
+ * class descriptors of Java serialization, which is only used for values of any other type.
+ * <p>
+ * As each item is length-prefixed, identical items can be looked up in an {@link ItemStackCache} by their bytes,
+ * rather than being deserialized again.
+ */
+public class BukkitItemCodec {
+
+    private static final int VERSION = 2;
+    private static final int UNPREFIXED_VERSION = 1;
+
+    // Item arrays are written sparsely, so their length can't be checked against the data; inventories are far smaller
+    private static final int MAX_ITEMS_LENGTH = 65536;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_SHORT = 6;
+    private static final int TAG_BYTE = 7;
+    private static final int TAG_BOOLEAN = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_MAP = 10;
+    private static final int TAG_SERIALIZABLE = 11;
+    private static final int TAG_OBJECT = 12;
+
+    @Nullable
+    private static volatile ItemStackCache itemCache;
+
+    /**
+     * Set the cache used to look up previously decoded items
+     *
+     * @param cache the cache, or {@code null} to disable caching
+     */
+    public static void setItemCache(@Nullable ItemStackCache cache) {
+        itemCache = cache;
+    }
+
+    /**
+     * Encode an array of {@link ItemStack}s
+     *
+     * @param items the items to encode. Empty slots may be {@code null} or air
+     * @return the encoded items
+     * @throws IOException if an item could not be encoded
+     */
+    public static byte[] encode(@NotNull ItemStack[] items) throws IOException {
+        int itemCount = 0;
+        for (ItemStack item : items) {
+            if (!isEmpty(item)) {
+                itemCount++;
+            }
+        }
+
+        // Encode into pooled buffers; the data streams are only flushed, as closing them would release the buffers
+        try (SerializationBuffer byteOutputStream = SerializationBuffer.acquire();
+             SerializationBuffer itemByteOutputStream = SerializationBuffer.acquire()) {
+            final DataOutputStream output = new DataOutputStream(byteOutputStream);
+            final DataOutputStream itemOutput = new DataOutputStream(itemByteOutputStream);
+            output.writeByte(VERSION);
+            writeVarInt(output, items.length);
+            writeVarInt(output, itemCount);
+            for (int slot = 0; slot < items.length; slot++) {
+                if (!isEmpty(items[slot])) {
+                    itemByteOutputStream.reset();
+                    writeMap(itemOutput, items[slot].serialize());
+                    writeVarInt(output, slot);
+                    writeVarInt(output, itemByteOutputStream.size());
+                    itemByteOutputStream.writeTo(output);
+                }
+            }
+            output.flush();
+            return byteOutputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Decode an array of {@link ItemStack}s
+     *
+     * @param data the encoded items
+     * @return the decoded items, with {@code null} in empty slots
+     * @throws IOException if the data is invalid or uses an unsupported version
+     */
+    @NotNull
+    public static ItemStack[] decode(final byte[] data) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        final int version = input.readUnsignedByte();
+        if (version != VERSION && version != UNPREFIXED_VERSION) {
+            throw new IOException("Unsupported item data version: " + version);
+        }
+        final int length = readVarInt(input);
+        if (length < 0 || length > MAX_ITEMS_LENGTH) {
+            throw new IOException("Invalid item array length: " + length);
+        }
+        final ItemStack[] items = new ItemStack[length];
+        final int itemCount = readLength(input);
+        for (int i = 0; i < itemCount; i++) {
+            final int slot = readVarInt(input);
+            if (slot < 0 || slot >= items.length) {
+                throw new IOException("Item slot " + slot + " is out of bounds");
+            }
+            if (version == UNPREFIXED_VERSION) {
+                items[slot] = ItemStack.deserialize(readMap(input));
+                continue;
+            }
+            final byte[] serializedItem = new byte[readLength(input)];
+            input.readFully(serializedItem);
+            items[slot] = decodeItem(serializedItem);
+        }
+        return items;
+    }
+
+    // Decode a single item, using the cache if one is set
+    @NotNull
+    private static ItemStack decodeItem(final byte[] serializedItem) throws IOException {
+        final ItemStackCache cache = itemCache;
+        if (cache != null) {
+            final ItemStack cached = cache.get(serializedItem);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final ItemStack item = ItemStack.deserialize(readMap(new DataInputStream(new ByteArrayInputStream(serializedItem))));
+        if (cache != null) {
+            cache.put(serializedItem, item);
+        }
+        return item;
+    }
+
+    private static boolean isEmpty(@Nullable ItemStack item) {
+        return item == null || item.getType().isAir() || item.getAmount() <= 0;
+    }
+
+    private static void writeMap(@NotNull DataOutputStream output, @NotNull Map<String, ?> map) throws IOException {
+        writeVarInt(output, map.size());
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            writeString(output, entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(@NotNull DataOutputStream output, @Nullable Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof String string) {
+            output.writeByte(TAG_STRING);
+            writeString(output, string);
+        } else if (value instanceof Integer integer) {
+            output.writeByte(TAG_INT);
+            output.writeInt(integer);
+        } else if (value instanceof Long longValue) {
+            output.writeByte(TAG_LONG);
+            output.writeLong(longValue);
+        } else if (value instanceof Double doubleValue) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble(doubleValue);
+        } else if (value instanceof Float floatValue) {
+            output.writeByte(TAG_FLOAT);
+            output.writeFloat(floatValue);
+        } else if (value instanceof Short shortValue) {
+            output.writeByte(TAG_SHORT);
+            output.writeShort(shortValue);
+        } else if (value instanceof Byte byteValue) {
+            output.writeByte(TAG_BYTE);
+            output.writeByte(byteValue);
+        } else if (value instanceof Boolean booleanValue) {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean(booleanValue);
+        } else if (value instanceof List<?> list) {
+            output.writeByte(TAG_LIST);
+            writeVarInt(output, list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map<?, ?> map && map.keySet().stream().allMatch(key -> key instanceof String)) {
+            output.writeByte(TAG_MAP);
+            writeMap(output, (Map<String, ?>) map);
+        } else if (value instanceof ConfigurationSerializable serializable) {
+            output.writeByte(TAG_SERIALIZABLE);
+            writeString(output, ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeMap(output, serializable.serialize());
+        } else {
+            // Fall back to Java serialization for values of any other type
+            final ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
+            try (BukkitObjectOutputStream objectOutputStream = new BukkitObjectOutputStream(byteOutputStream)) {
+                objectOutputStream.writeObject(value);
+            }
+            output.writeByte(TAG_OBJECT);
+            writeVarInt(output, byteOutputStream.size());
+            byteOutputStream.writeTo(output);
+        }
+    }
+
+    @NotNull
+    private static Map<String, Object> readMap(@NotNull DataInputStream input) throws IOException {
+        final int size = readLength(input);
+        final Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            map.put(readString(input), readValue(input));
+        }
+        return map;
+    }
+
+    @Nullable
+    private static Object readValue(@NotNull DataInputStream input) throws IOException {
+        final int tag = input.readUnsignedByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(input);
+            case TAG_INT -> input.readInt();
+            case TAG_LONG -> input.readLong();
+            case TAG_DOUBLE -> input.readDouble();
+            case TAG_FLOAT -> input.readFloat();
+            case TAG_SHORT -> input.readShort();
+            case TAG_BYTE -> input.readByte();
+            case TAG_BOOLEAN -> input.readBoolean();
+            case TAG_LIST -> {
+                final int size = readLength(input);
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                yield list;
+            }
+            case TAG_MAP -> readMap(input);
+            case TAG_SERIALIZABLE -> {
+                final String alias = readString(input);
+                final Map<String, Object> map = readMap(input);
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                yield ConfigurationSerialization.deserializeObject(map);
+            }
+            case TAG_OBJECT -> {
+                final byte[] serialized = new byte[readLength(input)];
+                input.readFully(serialized);
+                try (BukkitObjectInputStream objectInputStream = new BukkitObjectInputStream(new ByteArrayInputStream(serialized))) {
+                    yield objectInputStream.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Failed to deserialize an item value", e);
+                }
+            }
+            default -> throw new IOException("Unknown item value type: " + tag);
+        };
+    }
+
+    // Strings are written with a varint length, as item data such as book pages can exceed the limit of writeUTF
+    private static void writeString(@NotNull DataOutputStream output, @NotNull String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    @NotNull
+    private static String readString(@NotNull DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[readLength(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(@NotNull DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(@NotNull DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int read = input.readUnsignedByte();
+            value |= (read & 0x7F) << shift;
+            if ((read & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in item data");
+    }
+
+    // Read a length or count, checking it against the bytes left, as each byte or element takes at least one byte
+    private static int readLength(@NotNull DataInputStream input) throws IOException {
+        final int length = readVarInt(input);
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid length in item data: " + length + ", with " + input.available()
+                                  + " bytes remaining");
+        }
+        return length;
+    }
+
+}
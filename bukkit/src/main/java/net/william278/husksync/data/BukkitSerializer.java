@@ -12,12 +12,26 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public class BukkitSerializer {
 
+    private static volatile boolean compactItemFormat;
+
     /**
-     * Returns a serialized array of {@link ItemStack}s
+     * Set whether items are serialized in the compact binary format of the {@link BukkitItemCodec}, rather than the
+     * legacy format. Items in either format are always deserialized.
+     *
+     * @param enabled whether to serialize items in the compact format
+     */
+    public static void setCompactItemFormat(final boolean enabled) {
+        compactItemFormat = enabled;
+    }
+
+    /**
+     * Returns a serialized array of {@link ItemStack}s, in the compact binary format of the {@link BukkitItemCodec} if
+     * {@link #setCompactItemFormat(boolean) enabled}
      *
      * @param inventoryContents The contents of the inventory
      * @return The serialized inventory contents
@@ -30,6 +44,14 @@ public class BukkitSerializer {
                 return "";
             }
 
+            if (compactItemFormat) {
+                try {
+                    return ItemData.fromCompactItems(BukkitItemCodec.encode(inventoryContents)).serializedItems;
+                } catch (IOException e) {
+                    throw new DataSerializationException("Failed to serialize item stack data", e);
+                }
+            }
+
             // Create an output stream that will be encoded into base 64
             ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
 
@@ -78,7 +100,17 @@ public class BukkitSerializer {
                 return new ItemStack[0];
             }
 
-            // Create a byte input stream to read the serialized data
+            // Read items in the compact binary format
+            final Optional<byte[]> compactItems = new ItemData(serializeItemStackArray).getCompactItems();
+            if (compactItems.isPresent()) {
+                try {
+                    return BukkitItemCodec.decode(compactItems.get());
+                } catch (IOException e) {
+                    throw new DataSerializationException("Failed to deserialize item stack data", e);
+                }
+            }
+
+            // Otherwise, create a byte input stream to read the legacy serialized data
             try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(Base64Coder.decodeLines(serializeItemStackArray))) {
                 try (BukkitObjectInputStream bukkitInputStream = new BukkitObjectInputStream(byteInputStream)) {
                     // Read the length of the Bukkit input stream and set the length of the array to this value
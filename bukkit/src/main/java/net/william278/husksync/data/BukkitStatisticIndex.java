@@ -0,0 +1,290 @@
+package net.william278.husksync.data;
+
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A precomputed index of every valid statistic, and every valid (statistic, material) and (statistic, entity type)
+ * pair, used to capture a player's statistics.
+ * <p>
+ * Which materials are items or blocks and which entity types are alive never changes while the server is running, so
+ * the pairs are worked out once, with the {@link StatisticKeyIndex} ID of each key, rather than by filtering
+ * {@link Material#values()} for every typed statistic on every capture. Capturing is then a loop over primitive arrays
+ * that reads each pair once and appends non-zero values straight into {@link PackedStatisticMap}s.
+ * <p>
+ * Legacy materials are not indexed, as they only duplicate modern materials.
+ */
+public class BukkitStatisticIndex {
+
+    private final Statistic[] untypedStatistics;
+    private final int[] untypedStatisticIds;
+    private final Statistic[] itemStatistics;
+    private final Statistic[] blockStatistics;
+    private final Statistic[] entityStatistics;
+    private final Material[] items;
+    private final int[] itemIds;
+    private final Material[] blocks;
+    private final int[] blockIds;
+    private final EntityType[] entityTypes;
+    private final int[] entityTypeIds;
+    private final Map<String, Statistic> statisticsByName = new HashMap<>();
+    private final Map<String, Material> materialsByName = new HashMap<>();
+    private final Map<String, EntityType> entityTypesByName = new HashMap<>();
+
+    private BukkitStatisticIndex() {
+        final List<Statistic> untyped = new ArrayList<>();
+        final List<Statistic> item = new ArrayList<>();
+        final List<Statistic> block = new ArrayList<>();
+        final List<Statistic> entity = new ArrayList<>();
+        for (Statistic statistic : Statistic.values()) {
+            statisticsByName.put(statistic.name(), statistic);
+            switch (statistic.getType()) {
+                case UNTYPED -> untyped.add(statistic);
+                case ITEM -> item.add(statistic);
+                case BLOCK -> block.add(statistic);
+                case ENTITY -> entity.add(statistic);
+            }
+        }
+        this.untypedStatistics = untyped.toArray(new Statistic[0]);
+        this.untypedStatisticIds = getIds(untypedStatistics);
+        this.itemStatistics = item.toArray(new Statistic[0]);
+        this.blockStatistics = block.toArray(new Statistic[0]);
+        this.entityStatistics = entity.toArray(new Statistic[0]);
+
+        final List<Material> itemMaterials = new ArrayList<>();
+        final List<Material> blockMaterials = new ArrayList<>();
+        for (Material material : Material.values()) {
+            materialsByName.put(material.name(), material);
+            if (material.isLegacy()) {
+                continue;
+            }
+            if (material.isItem()) {
+                itemMaterials.add(material);
+            }
+            if (material.isBlock()) {
+                blockMaterials.add(material);
+            }
+        }
+        this.items = itemMaterials.toArray(new Material[0]);
+        this.itemIds = getIds(items);
+        this.blocks = blockMaterials.toArray(new Material[0]);
+        this.blockIds = getIds(blocks);
+
+        final List<EntityType> aliveEntityTypes = new ArrayList<>();
+        for (EntityType entityType : EntityType.values()) {
+            entityTypesByName.put(entityType.name(), entityType);
+            if (entityType.isAlive()) {
+                aliveEntityTypes.add(entityType);
+            }
+        }
+        this.entityTypes = aliveEntityTypes.toArray(new EntityType[0]);
+        this.entityTypeIds = getIds(entityTypes);
+    }
+
+    /**
+     * Get the statistic index, building it if this is the first call
+     *
+     * @return the statistic index
+     */
+    @NotNull
+    public static BukkitStatisticIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Capture a player's statistics
+     *
+     * @param player the player to capture the statistics of
+     * @return the player's non-zero statistics
+     */
+    @NotNull
+    public StatisticsData capture(@NotNull Player player) {
+        return capture(StatisticReader.of(player));
+    }
+
+    /**
+     * Capture statistics from a reader, reading each indexed statistic and pair once
+     *
+     * @param reader the reader to read statistic values from
+     * @return the non-zero statistics
+     */
+    @NotNull
+    public StatisticsData capture(@NotNull StatisticReader reader) {
+        final PackedStatisticMap untypedStatisticValues = captureUntyped(reader);
+
+        final Map<String, Map<String, Integer>> blockStatisticValues = new HashMap<>();
+        for (Statistic statistic : blockStatistics) {
+            final PackedStatisticMap values = captureMaterials(reader, statistic, blocks, blockIds);
+            if (values != null) {
+                blockStatisticValues.put(statistic.name(), values);
+            }
+        }
+
+        final Map<String, Map<String, Integer>> itemStatisticValues = new HashMap<>();
+        for (Statistic statistic : itemStatistics) {
+            final PackedStatisticMap values = captureMaterials(reader, statistic, items, itemIds);
+            if (values != null) {
+                itemStatisticValues.put(statistic.name(), values);
+            }
+        }
+
+        final Map<String, Map<String, Integer>> entityStatisticValues = new HashMap<>();
+        for (Statistic statistic : entityStatistics) {
+            PackedStatisticMap values = null;
+            for (int i = 0; i < entityTypes.length; i++) {
+                final int value = reader.getStatistic(statistic, entityTypes[i]);
+                if (value != 0) {
+                    if (values == null) {
+                        values = new PackedStatisticMap();
+                    }
+                    values.append(entityTypeIds[i], value);
+                }
+            }
+            if (values != null) {
+                entityStatisticValues.put(statistic.name(), values);
+            }
+        }
+
+        return new StatisticsData(untypedStatisticValues, blockStatisticValues,
+                itemStatisticValues, entityStatisticValues);
+    }
+
+    /**
+     * Capture only the untyped statistics from a reader
+     *
+     * @param reader the reader to read statistic values from
+     * @return the non-zero untyped statistics
+     */
+    @NotNull
+    public PackedStatisticMap captureUntyped(@NotNull StatisticReader reader) {
+        final PackedStatisticMap untypedStatisticValues = new PackedStatisticMap(untypedStatistics.length);
+        for (int i = 0; i < untypedStatistics.length; i++) {
+            final int value = reader.getStatistic(untypedStatistics[i]);
+            if (value != 0) {
+                untypedStatisticValues.append(untypedStatisticIds[i], value);
+            }
+        }
+        return untypedStatisticValues;
+    }
+
+    /**
+     * Look up a statistic by name, without the exception {@link Statistic#valueOf(String)} throws for unknown names
+     *
+     * @param name the statistic name
+     * @return the statistic, or {@code null} if there is no statistic by that name on this server
+     */
+    @Nullable
+    public Statistic getStatistic(@NotNull String name) {
+        return statisticsByName.get(name);
+    }
+
+    /**
+     * Look up a material by name
+     *
+     * @param name the material name
+     * @return the material, or {@code null} if there is no material by that name on this server
+     */
+    @Nullable
+    public Material getMaterial(@NotNull String name) {
+        return materialsByName.get(name);
+    }
+
+    /**
+     * Look up an entity type by name
+     *
+     * @param name the entity type name
+     * @return the entity type, or {@code null} if there is no entity type by that name on this server
+     */
+    @Nullable
+    public EntityType getEntityType(@NotNull String name) {
+        return entityTypesByName.get(name);
+    }
+
+    /**
+     * Get the number of statistic values read by each capture
+     *
+     * @return the number of untyped statistics and typed statistic pairs in the index
+     */
+    public int getPairCount() {
+        return untypedStatistics.length + itemStatistics.length * items.length
+               + blockStatistics.length * blocks.length + entityStatistics.length * entityTypes.length;
+    }
+
+    // Read a material statistic for each indexed material, only allocating a map once a non-zero value is found
+    @Nullable
+    private static PackedStatisticMap captureMaterials(@NotNull StatisticReader reader, @NotNull Statistic statistic,
+                                                       @NotNull Material[] materials, int[] materialIds) {
+        PackedStatisticMap values = null;
+        for (int i = 0; i < materials.length; i++) {
+            final int value = reader.getStatistic(statistic, materials[i]);
+            if (value != 0) {
+                if (values == null) {
+                    values = new PackedStatisticMap();
+                }
+                values.append(materialIds[i], value);
+            }
+        }
+        return values;
+    }
+
+    private static int[] getIds(@NotNull Enum<?>[] constants) {
+        final int[] ids = new int[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+            ids[i] = StatisticKeyIndex.register(constants[i].name());
+        }
+        return ids;
+    }
+
+    /**
+     * Reads statistic values, such as from a {@link Player}
+     */
+    public interface StatisticReader {
+
+        /**
+         * Get a reader of a player's statistics
+         *
+         * @param player the player
+         * @return a reader of the player's statistics
+         */
+        @NotNull
+        static StatisticReader of(@NotNull Player player) {
+            return new StatisticReader() {
+                @Override
+                public int getStatistic(@NotNull Statistic statistic) {
+                    return player.getStatistic(statistic);
+                }
+
+                @Override
+                public int getStatistic(@NotNull Statistic statistic, @NotNull Material material) {
+                    return player.getStatistic(statistic, material);
+                }
+
+                @Override
+                public int getStatistic(@NotNull Statistic statistic, @NotNull EntityType entityType) {
+                    return player.getStatistic(statistic, entityType);
+                }
+            };
+        }
+
+        int getStatistic(@NotNull Statistic statistic);
+
+        int getStatistic(@NotNull Statistic statistic, @NotNull Material material);
+
+        int getStatistic(@NotNull Statistic statistic, @NotNull EntityType entityType);
+
+    }
+
+    private static class Holder {
+        private static final BukkitStatisticIndex INSTANCE = new BukkitStatisticIndex();
+    }
+
+}
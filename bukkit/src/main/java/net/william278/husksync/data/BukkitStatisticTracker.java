@@ -0,0 +1,327 @@
+package net.william278.husksync.data;
+
+import net.william278.husksync.util.PerformanceMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerStatisticIncrementEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures player statistics incrementally, by tracking which typed statistics have changed since they were last
+ * captured.
+ * <p>
+ * Most statistics do not change between saves, so rather than reading every statistic pair in the
+ * {@link BukkitStatisticIndex} each time, the tracker listens to {@link PlayerStatisticIncrementEvent}s, keeping a
+ * set of dirty (statistic, material) and (statistic, entity type) pairs for each player. A capture then reads only
+ * the dirty pairs, merging them into the statistics last captured for the player. Untyped statistics are always read
+ * in full, as the event is not fired for those incremented every tick, such as play time and distances moved.
+ * <p>
+ * Statistics are captured in full the first time a player is captured, after their statistics are set by a sync,
+ * and periodically after that, so that changes made without an event, such as by commands or other plugins, are not
+ * missed for long.
+ */
+public class BukkitStatisticTracker implements Listener {
+
+    private static final Statistic[] STATISTICS = Statistic.values();
+    private static final Material[] MATERIALS = Material.values();
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+
+    private final Plugin plugin;
+    private final BukkitStatisticIndex index;
+    private final long fullCaptureIntervalMillis;
+    private final PerformanceMetrics metrics;
+    private final Map<UUID, TrackedStatistics> trackedPlayers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a statistic tracker, registering it to listen to statistic changes
+     *
+     * @param plugin                    the plugin to register the tracker and schedule its tasks with
+     * @param index                     the statistic index to capture full statistics with
+     * @param fullCaptureIntervalMillis how often to capture each player's statistics in full, or {@code 0} to always
+     *                                  capture statistics in full and not track changes
+     * @param metrics                   the metrics to record the number of full and incremental captures to
+     */
+    public BukkitStatisticTracker(@NotNull Plugin plugin, @NotNull BukkitStatisticIndex index,
+                                  final long fullCaptureIntervalMillis, @NotNull PerformanceMetrics metrics) {
+        this.plugin = plugin;
+        this.index = index;
+        this.fullCaptureIntervalMillis = fullCaptureIntervalMillis;
+        this.metrics = metrics;
+        metrics.registerGauge("statistics.apply.written_per_sync", () -> {
+            final long syncs = metrics.getCounter("statistics.apply.syncs");
+            return syncs == 0 ? 0 : metrics.getCounter("statistics.apply.written") / syncs;
+        });
+        if (fullCaptureIntervalMillis > 0) {
+            Bukkit.getServer().getPluginManager().registerEvents(this, plugin);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStatisticIncrement(@NotNull PlayerStatisticIncrementEvent event) {
+        final TrackedStatistics tracked = trackedPlayers.get(event.getPlayer().getUniqueId());
+        if (tracked == null) {
+            return;
+        }
+        final Statistic statistic = event.getStatistic();
+        switch (statistic.getType()) {
+            case ITEM, BLOCK -> {
+                if (event.getMaterial() != null) {
+                    tracked.markDirty(getPairKey(statistic, event.getMaterial().ordinal()));
+                }
+            }
+            case ENTITY -> {
+                if (event.getEntityType() != null) {
+                    tracked.markDirty(getPairKey(statistic, event.getEntityType().ordinal()));
+                }
+            }
+            default -> {
+                // Untyped statistics are read on every capture
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        // The quit save captures statistics asynchronously while the player is still online, so it may start tracking
+        // them again after this; invalidate them once more after the player has been removed
+        final UUID uuid = event.getPlayer().getUniqueId();
+        invalidate(uuid);
+        Bukkit.getScheduler().runTask(plugin, () -> invalidate(uuid));
+    }
+
+    /**
+     * Discard the tracked statistics of a player, so that their statistics are next captured in full. This must be
+     * called whenever a player's statistics are set, as setting statistics does not fire events.
+     *
+     * @param uuid the player's UUID
+     */
+    public void invalidate(@NotNull UUID uuid) {
+        trackedPlayers.remove(uuid);
+    }
+
+    /**
+     * Capture a player's statistics, reading only those that have changed since they were last captured if possible
+     *
+     * @param player the player to capture the statistics of
+     * @return the player's non-zero statistics
+     */
+    @NotNull
+    public StatisticsData capture(@NotNull Player player) {
+        final BukkitStatisticIndex.StatisticReader reader = BukkitStatisticIndex.StatisticReader.of(player);
+        if (fullCaptureIntervalMillis <= 0) {
+            metrics.increment("statistics.capture.full");
+            return index.capture(reader);
+        }
+
+        final long now = System.currentTimeMillis();
+        final TrackedStatistics tracked = trackedPlayers.get(player.getUniqueId());
+        if (tracked != null) {
+            synchronized (tracked) {
+                if (tracked.baseline != null && now - tracked.capturedAt < fullCaptureIntervalMillis) {
+                    metrics.increment("statistics.capture.incremental");
+                    tracked.baseline = captureChanges(reader, tracked.baseline, tracked.drainDirty());
+                    return tracked.baseline;
+                }
+            }
+        }
+
+        // Players who have left are not tracked, as nothing would discard their tracked statistics
+        metrics.increment("statistics.capture.full");
+        if (!player.isOnline()) {
+            return index.capture(reader);
+        }
+
+        // Start tracking before reading, so that changes made while reading are picked up by the next capture
+        final TrackedStatistics newlyTracked = new TrackedStatistics(now);
+        trackedPlayers.put(player.getUniqueId(), newlyTracked);
+        final StatisticsData statistics = index.capture(reader);
+        synchronized (newlyTracked) {
+            newlyTracked.baseline = statistics;
+        }
+
+        // If the player left while reading, their quit may already have been handled
+        if (!player.isOnline()) {
+            trackedPlayers.remove(player.getUniqueId(), newlyTracked);
+        }
+        return statistics;
+    }
+
+    /**
+     * Set a player's statistics, writing only those that differ from the player's current values.
+     * <p>
+     * When a player rejoins the server they last played on, most or all of their statistics already match, so
+     * comparing first saves writing each one again. Statistics, materials and entity types not known to this server
+     * are skipped. Must be called on the main thread.
+     *
+     * @param player     the player to set the statistics of
+     * @param statistics the statistics to set
+     */
+    public void apply(@NotNull Player player, @NotNull StatisticsData statistics) {
+        int written = 0;
+        int unchanged = 0;
+        for (Map.Entry<String, Integer> entry : statistics.untypedStatistics.entrySet()) {
+            final Statistic statistic = index.getStatistic(entry.getKey());
+            if (statistic == null) {
+                continue;
+            }
+            final int value = entry.getValue();
+            if (player.getStatistic(statistic) == value) {
+                unchanged++;
+                continue;
+            }
+            player.setStatistic(statistic, value);
+            written++;
+        }
+
+        for (Map.Entry<String, Map<String, Integer>> entry : getTypedStatistics(statistics)) {
+            final Statistic statistic = index.getStatistic(entry.getKey());
+            if (statistic == null) {
+                continue;
+            }
+            final boolean entityStatistic = statistic.getType() == Statistic.Type.ENTITY;
+            for (Map.Entry<String, Integer> qualifiedEntry : entry.getValue().entrySet()) {
+                final int value = qualifiedEntry.getValue();
+                if (entityStatistic) {
+                    final EntityType entityType = index.getEntityType(qualifiedEntry.getKey());
+                    if (entityType == null) {
+                        continue;
+                    }
+                    if (player.getStatistic(statistic, entityType) == value) {
+                        unchanged++;
+                        continue;
+                    }
+                    player.setStatistic(statistic, entityType, value);
+                } else {
+                    final Material material = index.getMaterial(qualifiedEntry.getKey());
+                    if (material == null) {
+                        continue;
+                    }
+                    if (player.getStatistic(statistic, material) == value) {
+                        unchanged++;
+                        continue;
+                    }
+                    player.setStatistic(statistic, material, value);
+                }
+                written++;
+            }
+        }
+
+        // Setting statistics fires no events, so the next capture must read them in full
+        invalidate(player.getUniqueId());
+        metrics.increment("statistics.apply.syncs");
+        metrics.add("statistics.apply.written", written);
+        metrics.add("statistics.apply.unchanged", unchanged);
+    }
+
+    @NotNull
+    private static List<Map.Entry<String, Map<String, Integer>>> getTypedStatistics(@NotNull StatisticsData statistics) {
+        final List<Map.Entry<String, Map<String, Integer>>> entries = new ArrayList<>(statistics.blockStatistics.size()
+                + statistics.itemStatistics.size() + statistics.entityStatistics.size());
+        entries.addAll(statistics.blockStatistics.entrySet());
+        entries.addAll(statistics.itemStatistics.entrySet());
+        entries.addAll(statistics.entityStatistics.entrySet());
+        return entries;
+    }
+
+    // Merge the current values of changed statistic pairs into a copy of the last captured statistics
+    @NotNull
+    private StatisticsData captureChanges(@NotNull BukkitStatisticIndex.StatisticReader reader,
+                                          @NotNull StatisticsData baseline, @NotNull Set<Long> dirtyPairs) {
+        final Map<String, Map<String, Integer>> blockStatistics = new HashMap<>(baseline.blockStatistics);
+        final Map<String, Map<String, Integer>> itemStatistics = new HashMap<>(baseline.itemStatistics);
+        final Map<String, Map<String, Integer>> entityStatistics = new HashMap<>(baseline.entityStatistics);
+
+        // Statistic maps are shared with the last capture, so each is copied before its first change
+        final Set<Map<String, Integer>> copiedMaps = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long pair : dirtyPairs) {
+            final Statistic statistic = STATISTICS[(int) (pair >>> 32)];
+            final int ordinal = (int) pair;
+            switch (statistic.getType()) {
+                case BLOCK -> setValue(blockStatistics, copiedMaps, statistic, MATERIALS[ordinal].name(),
+                        reader.getStatistic(statistic, MATERIALS[ordinal]));
+                case ITEM -> setValue(itemStatistics, copiedMaps, statistic, MATERIALS[ordinal].name(),
+                        reader.getStatistic(statistic, MATERIALS[ordinal]));
+                case ENTITY -> setValue(entityStatistics, copiedMaps, statistic, ENTITY_TYPES[ordinal].name(),
+                        reader.getStatistic(statistic, ENTITY_TYPES[ordinal]));
+            }
+        }
+        metrics.add("statistics.capture.dirty_pairs", dirtyPairs.size());
+
+        return new StatisticsData(index.captureUntyped(reader), blockStatistics, itemStatistics, entityStatistics);
+    }
+
+    private static void setValue(@NotNull Map<String, Map<String, Integer>> statistics,
+                                 @NotNull Set<Map<String, Integer>> copiedMaps, @NotNull Statistic statistic,
+                                 @NotNull String key, final int value) {
+        final Map<String, Integer> current = statistics.get(statistic.name());
+        final PackedStatisticMap values;
+        if (current instanceof PackedStatisticMap packed && copiedMaps.contains(packed)) {
+            values = packed;
+        } else {
+            values = current instanceof PackedStatisticMap packed ? new PackedStatisticMap(packed)
+                    : new PackedStatisticMap(current == null ? 8 : current.size() + 1);
+            if (current != null && !(current instanceof PackedStatisticMap)) {
+                values.putAll(current);
+            }
+            copiedMaps.add(values);
+            statistics.put(statistic.name(), values);
+        }
+        if (value != 0) {
+            values.putInt(key, value);
+            return;
+        }
+        values.remove(key);
+        if (values.isEmpty()) {
+            statistics.remove(statistic.name());
+        }
+    }
+
+    private static long getPairKey(@NotNull Statistic statistic, final int ordinal) {
+        return ((long) statistic.ordinal() << 32) | ordinal;
+    }
+
+    /**
+     * The statistics last captured for a player, and the statistic pairs that have changed since
+     */
+    private static class TrackedStatistics {
+
+        private final long capturedAt;
+        @Nullable
+        private StatisticsData baseline;
+        private final Object dirtyLock = new Object();
+        private Set<Long> dirtyPairs = new HashSet<>();
+
+        private TrackedStatistics(final long capturedAt) {
+            this.capturedAt = capturedAt;
+        }
+
+        private void markDirty(final long pair) {
+            synchronized (dirtyLock) {
+                dirtyPairs.add(pair);
+            }
+        }
+
+        @NotNull
+        private Set<Long> drainDirty() {
+            synchronized (dirtyLock) {
+                final Set<Long> drained = dirtyPairs;
+                dirtyPairs = new HashSet<>();
+                return drained;
+            }
+        }
+
+    }
+
+}
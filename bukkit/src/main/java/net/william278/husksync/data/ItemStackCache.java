@@ -0,0 +1,94 @@
+package net.william278.husksync.data;
+
+import net.william278.husksync.util.PerformanceMetrics;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of deserialized {@link ItemStack}s, keyed by their serialized bytes.
+ * <p>
+ * Many players carry identical stacks, such as blocks, torches and kit tools, so caching them saves rebuilding each one
+ * from its serialized map. The cache is bounded by the total size of its keys; stacks are cloned on the way in and
+ * out, so cached stacks are never modified.
+ */
+public class ItemStackCache {
+
+    private final long maxSizeBytes;
+    private final PerformanceMetrics metrics;
+    private final LinkedHashMap<ByteBuffer, ItemStack> items = new LinkedHashMap<>(256, 0.75f, true);
+    private long sizeBytes;
+
+    /**
+     * Create an item stack cache
+     *
+     * @param maxSizeBytes the maximum total size of the serialized items in the cache
+     * @param metrics      the metrics to record the cache hit rate to
+     */
+    public ItemStackCache(final long maxSizeBytes, @NotNull PerformanceMetrics metrics) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.metrics = metrics;
+        metrics.registerGauge("items.cache.size_bytes", this::getSizeBytes);
+        metrics.registerGauge("items.cache.hit_rate_percent", () -> {
+            final long hits = metrics.getCounter("items.cache.hits");
+            final long lookups = hits + metrics.getCounter("items.cache.misses");
+            return lookups == 0 ? 0 : hits * 100 / lookups;
+        });
+    }
+
+    /**
+     * Get a copy of a cached item stack
+     *
+     * @param serializedItem the serialized item
+     * @return a clone of the cached item stack, or {@code null} if it is not cached
+     */
+    @Nullable
+    public ItemStack get(final byte[] serializedItem) {
+        final ItemStack item;
+        synchronized (items) {
+            item = items.get(ByteBuffer.wrap(serializedItem));
+        }
+        if (item == null) {
+            metrics.increment("items.cache.misses");
+            return null;
+        }
+        metrics.increment("items.cache.hits");
+        return item.clone();
+    }
+
+    /**
+     * Cache an item stack, evicting the least recently used items if the cache is full
+     *
+     * @param serializedItem the serialized item
+     * @param item           the item stack it deserializes to
+     */
+    public void put(final byte[] serializedItem, @NotNull ItemStack item) {
+        if (serializedItem.length > maxSizeBytes) {
+            return;
+        }
+        final ItemStack copy = item.clone();
+        synchronized (items) {
+            if (items.put(ByteBuffer.wrap(serializedItem), copy) == null) {
+                sizeBytes += serializedItem.length;
+            }
+            final Iterator<Map.Entry<ByteBuffer, ItemStack>> iterator = items.entrySet().iterator();
+            while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+                sizeBytes -= iterator.next().getKey().capacity();
+                iterator.remove();
+                metrics.increment("items.cache.evictions");
+            }
+        }
+    }
+
+    private long getSizeBytes() {
+        synchronized (items) {
+            return sizeBytes;
+        }
+    }
+
+}
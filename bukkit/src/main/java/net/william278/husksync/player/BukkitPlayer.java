@@ -4,17 +4,19 @@ import de.themoep.minedown.MineDown;
 import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.william278.husksync.BukkitHuskSync;
+import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.*;
 import net.william278.husksync.editor.ItemEditorMenu;
+import net.william278.husksync.util.BukkitApplyScheduler;
 import net.william278.desertwell.Version;
 import org.bukkit.*;
 import org.bukkit.advancement.Advancement;
 import org.bukkit.advancement.AdvancementProgress;
 import org.bukkit.attribute.Attribute;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.potion.PotionEffect;
@@ -23,8 +25,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 /**
@@ -32,6 +32,9 @@ import java.util.logging.Level;
  */
 public class BukkitPlayer extends OnlineUser {
 
+    // The maximum number of advancement criteria to award or revoke in a single step of the apply scheduler
+    private static final int MAX_CRITERIA_CHANGES_PER_STEP = 50;
+
     private static final PersistentDataType<?, ?>[] PRIMITIVE_PERSISTENT_DATA_TYPES = new PersistentDataType<?, ?>[]{
             PersistentDataType.BYTE,
             PersistentDataType.SHORT,
@@ -83,61 +86,57 @@ public class BukkitPlayer extends OnlineUser {
     @Override
     public CompletableFuture<Void> setStatus(@NotNull StatusData statusData,
                                              @NotNull List<StatusDataFlag> statusDataFlags) {
-        return CompletableFuture.runAsync(() -> {
-            double currentMaxHealth = Objects.requireNonNull(player.getAttribute(Attribute.GENERIC_MAX_HEALTH))
-                    .getBaseValue();
-            if (statusDataFlags.contains(StatusDataFlag.SET_MAX_HEALTH)) {
-                if (statusData.maxHealth != 0d) {
-                    Objects.requireNonNull(player.getAttribute(Attribute.GENERIC_MAX_HEALTH))
-                            .setBaseValue(statusData.maxHealth);
-                    currentMaxHealth = statusData.maxHealth;
-                }
-            }
-            if (statusDataFlags.contains(StatusDataFlag.SET_HEALTH)) {
-                final double currentHealth = player.getHealth();
-                if (statusData.health != currentHealth) {
-                    final double healthToSet = currentHealth > currentMaxHealth ? currentMaxHealth : statusData.health;
-                    if (healthToSet < 1) {
-                        Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> player.setHealth(healthToSet));
-                    } else {
-                        player.setHealth(healthToSet);
-                    }
-                }
+        return runOnMainThread(() -> applyStatus(statusData, statusDataFlags));
+    }
 
-                if (statusData.healthScale != 0d) {
-                    player.setHealthScale(statusData.healthScale);
-                } else {
-                    player.setHealthScale(statusData.maxHealth);
-                }
-                player.setHealthScaled(statusData.healthScale != 0D);
+    // Set the player's status; must be called on the main thread
+    private void applyStatus(@NotNull StatusData statusData, @NotNull List<StatusDataFlag> statusDataFlags) {
+        double currentMaxHealth = Objects.requireNonNull(player.getAttribute(Attribute.GENERIC_MAX_HEALTH))
+                .getBaseValue();
+        if (statusDataFlags.contains(StatusDataFlag.SET_MAX_HEALTH)) {
+            if (statusData.maxHealth != 0d) {
+                Objects.requireNonNull(player.getAttribute(Attribute.GENERIC_MAX_HEALTH))
+                        .setBaseValue(statusData.maxHealth);
+                currentMaxHealth = statusData.maxHealth;
             }
-            if (statusDataFlags.contains(StatusDataFlag.SET_HUNGER)) {
-                player.setFoodLevel(statusData.hunger);
-                player.setSaturation(statusData.saturation);
-                player.setExhaustion(statusData.saturationExhaustion);
-            }
-            if (statusDataFlags.contains(StatusDataFlag.SET_SELECTED_ITEM_SLOT)) {
-                player.getInventory().setHeldItemSlot(statusData.selectedItemSlot);
-            }
-            if (statusDataFlags.contains(StatusDataFlag.SET_EXPERIENCE)) {
-                player.setTotalExperience(statusData.totalExperience);
-                player.setLevel(statusData.expLevel);
-                player.setExp(statusData.expProgress);
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_HEALTH)) {
+            final double currentHealth = player.getHealth();
+            if (statusData.health != currentHealth) {
+                final double healthToSet = currentHealth > currentMaxHealth ? currentMaxHealth : statusData.health;
+                player.setHealth(healthToSet);
             }
-            if (statusDataFlags.contains(StatusDataFlag.SET_GAME_MODE)) {
-                Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () ->
-                        player.setGameMode(GameMode.valueOf(statusData.gameMode)));
+
+            if (statusData.healthScale != 0d) {
+                player.setHealthScale(statusData.healthScale);
+            } else {
+                player.setHealthScale(statusData.maxHealth);
             }
-            if (statusDataFlags.contains(StatusDataFlag.SET_FLYING)) {
-                Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                    if (statusData.isFlying) {
-                        player.setAllowFlight(true);
-                        player.setFlying(true);
-                    }
-                    player.setFlying(false);
-                });
+            player.setHealthScaled(statusData.healthScale != 0D);
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_HUNGER)) {
+            player.setFoodLevel(statusData.hunger);
+            player.setSaturation(statusData.saturation);
+            player.setExhaustion(statusData.saturationExhaustion);
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_SELECTED_ITEM_SLOT)) {
+            player.getInventory().setHeldItemSlot(statusData.selectedItemSlot);
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_EXPERIENCE)) {
+            player.setTotalExperience(statusData.totalExperience);
+            player.setLevel(statusData.expLevel);
+            player.setExp(statusData.expProgress);
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_GAME_MODE)) {
+            player.setGameMode(GameMode.valueOf(statusData.gameMode));
+        }
+        if (statusDataFlags.contains(StatusDataFlag.SET_FLYING)) {
+            if (statusData.isFlying) {
+                player.setAllowFlight(true);
+                player.setFlying(true);
             }
-        });
+            player.setFlying(false);
+        }
     }
 
     @Override
@@ -148,14 +147,8 @@ public class BukkitPlayer extends OnlineUser {
 
     @Override
     public CompletableFuture<Void> setInventory(@NotNull ItemData itemData) {
-        return BukkitSerializer.deserializeInventory(itemData.serializedItems).thenApplyAsync(contents -> {
-            final CompletableFuture<Void> inventorySetFuture = new CompletableFuture<>();
-            Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                player.getInventory().setContents(contents.getContents());
-                inventorySetFuture.complete(null);
-            });
-            return inventorySetFuture.join();
-        });
+        return BukkitSerializer.deserializeInventory(itemData.serializedItems).thenCompose(contents ->
+                runOnMainThread(() -> player.getInventory().setContents(contents.getContents())));
     }
 
     @Override
@@ -166,14 +159,8 @@ public class BukkitPlayer extends OnlineUser {
 
     @Override
     public CompletableFuture<Void> setEnderChest(@NotNull ItemData enderChestData) {
-        return BukkitSerializer.deserializeItemStackArray(enderChestData.serializedItems).thenApplyAsync(contents -> {
-            final CompletableFuture<Void> enderChestSetFuture = new CompletableFuture<>();
-            Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                player.getEnderChest().setContents(contents);
-                enderChestSetFuture.complete(null);
-            });
-            return enderChestSetFuture.join();
-        });
+        return BukkitSerializer.deserializeItemStackArray(enderChestData.serializedItems).thenCompose(contents ->
+                runOnMainThread(() -> player.getEnderChest().setContents(contents)));
     }
 
     @Override
@@ -185,199 +172,173 @@ public class BukkitPlayer extends OnlineUser {
     @Override
     public CompletableFuture<Void> setPotionEffects(@NotNull PotionEffectData potionEffectData) {
         return BukkitSerializer.deserializePotionEffectArray(potionEffectData.serializedPotionEffects)
-                .thenApplyAsync(effects -> {
-                    final CompletableFuture<Void> potionEffectsSetFuture = new CompletableFuture<>();
-                    Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                        for (PotionEffect effect : player.getActivePotionEffects()) {
-                            player.removePotionEffect(effect.getType());
-                        }
-                        for (PotionEffect effect : effects) {
-                            player.addPotionEffect(effect);
-                        }
-                        potionEffectsSetFuture.complete(null);
-                    });
-                    return potionEffectsSetFuture.join();
-                });
+                .thenCompose(effects -> runOnMainThread(() -> applyPotionEffects(effects)));
+    }
+
+    // Replace the player's potion effects; must be called on the main thread
+    private void applyPotionEffects(@NotNull PotionEffect[] effects) {
+        for (PotionEffect effect : player.getActivePotionEffects()) {
+            player.removePotionEffect(effect.getType());
+        }
+        for (PotionEffect effect : effects) {
+            player.addPotionEffect(effect);
+        }
     }
 
     @Override
     public CompletableFuture<List<AdvancementData>> getAdvancements() {
         return CompletableFuture.supplyAsync(() -> {
-            final Iterator<Advancement> serverAdvancements = Bukkit.getServer().advancementIterator();
             final ArrayList<AdvancementData> advancementData = new ArrayList<>();
 
-            // Iterate through the server advancement set and add all advancements to the list
-            serverAdvancements.forEachRemaining(advancement -> {
-                final AdvancementProgress advancementProgress = player.getAdvancementProgress(advancement);
-                final Map<String, Date> awardedCriteria = new HashMap<>();
-
-                advancementProgress.getAwardedCriteria().forEach(criteriaKey -> awardedCriteria.put(criteriaKey,
-                        advancementProgress.getDateAwarded(criteriaKey)));
+            // Iterate through the server advancement catalog and add all advancements to the list
+            for (BukkitAdvancementCatalog.Entry entry : BukkitHuskSync.getInstance().getAdvancementCatalog().getEntries()) {
+                final AdvancementProgress advancementProgress = player.getAdvancementProgress(entry.advancement());
+                PackedCriteriaMap awardedCriteria = null;
+                for (String criterion : entry.criteria()) {
+                    final Date dateAwarded = advancementProgress.getDateAwarded(criterion);
+                    if (dateAwarded != null) {
+                        if (awardedCriteria == null) {
+                            awardedCriteria = new PackedCriteriaMap(entry.criteria().size());
+                        }
+                        awardedCriteria.putTime(criterion, dateAwarded.getTime());
+                    }
+                }
 
                 // Only save the advancement if criteria has been completed
-                if (!awardedCriteria.isEmpty()) {
-                    advancementData.add(new AdvancementData(advancement.getKey().toString(), awardedCriteria));
+                if (awardedCriteria != null) {
+                    advancementData.add(new AdvancementData(entry.key(), awardedCriteria));
                 }
-            });
+            }
             return advancementData;
         });
     }
 
     @Override
     public CompletableFuture<Void> setAdvancements(@NotNull List<AdvancementData> advancementData) {
-        return CompletableFuture.runAsync(() -> Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-
-            // Temporarily disable advancement announcing if needed
-            boolean announceAdvancementUpdate = false;
-            if (Boolean.TRUE.equals(player.getWorld().getGameRuleValue(GameRule.ANNOUNCE_ADVANCEMENTS))) {
-                player.getWorld().setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, false);
-                announceAdvancementUpdate = true;
-            }
-            final boolean finalAnnounceAdvancementUpdate = announceAdvancementUpdate;
-
-            // Save current experience and level
-            final int experienceLevel = player.getLevel();
-            final float expProgress = player.getExp();
-
-            // Determines whether the experience might have changed warranting an update
-            final AtomicBoolean correctExperience = new AtomicBoolean(false);
-
-            // Run asynchronously as advancement setting is expensive
-            CompletableFuture.runAsync(() -> {
-                // Apply the advancements to the player
-                final Iterator<Advancement> serverAdvancements = Bukkit.getServer().advancementIterator();
-                while (serverAdvancements.hasNext()) {
-                    // Iterate through all advancements
-                    final Advancement advancement = serverAdvancements.next();
-                    final AdvancementProgress playerProgress = player.getAdvancementProgress(advancement);
-
-                    advancementData.stream().filter(record -> record.key.equals(advancement.getKey().toString())).findFirst().ifPresentOrElse(
-                            // Award all criteria that the player does not have that they do on the cache
-                            record -> {
-                                record.completedCriteria.keySet().stream()
-                                        .filter(criterion -> !playerProgress.getAwardedCriteria().contains(criterion))
-                                        .forEach(criterion -> {
-                                            Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(),
-                                                    () -> player.getAdvancementProgress(advancement).awardCriteria(criterion));
-                                            correctExperience.set(true);
-                                        });
-
-                                // Revoke all criteria that the player does have but should not
-                                new ArrayList<>(playerProgress.getAwardedCriteria()).stream().filter(criterion -> !record.completedCriteria.containsKey(criterion))
-                                        .forEach(criterion -> Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(),
-                                                () -> player.getAdvancementProgress(advancement).revokeCriteria(criterion)));
-
-                            },
-                            // Revoke the criteria as the player shouldn't have any
-                            () -> new ArrayList<>(playerProgress.getAwardedCriteria()).forEach(criterion ->
-                                    Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(),
-                                            () -> player.getAdvancementProgress(advancement).revokeCriteria(criterion))));
-
-                    // Update the player's experience in case the advancement changed that
-                    if (correctExperience.get()) {
-                        player.setLevel(experienceLevel);
-                        player.setExp(expProgress);
-                        correctExperience.set(false);
-                    }
-                }
-
-                // Re-enable announcing advancements (back on main thread again)
-                Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                    if (finalAnnounceAdvancementUpdate) {
-                        player.getWorld().setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, true);
-                    }
-                });
-            });
-        }));
+        // Work out the criteria to change asynchronously, as reading advancement progress is expensive
+        return CompletableFuture.supplyAsync(() -> getCriteriaChanges(advancementData))
+                .thenCompose(this::applyCriteriaChanges);
     }
 
-    @Override
-    public CompletableFuture<StatisticsData> getStatistics() {
-        return CompletableFuture.supplyAsync(() -> {
-            final Map<String, Integer> untypedStatisticValues = new HashMap<>();
-            final Map<String, Map<String, Integer>> blockStatisticValues = new HashMap<>();
-            final Map<String, Map<String, Integer>> itemStatisticValues = new HashMap<>();
-            final Map<String, Map<String, Integer>> entityStatisticValues = new HashMap<>();
-
-            for (Statistic statistic : Statistic.values()) {
-                switch (statistic.getType()) {
-                    case ITEM -> {
-                        final Map<String, Integer> itemValues = new HashMap<>();
-                        Arrays.stream(Material.values()).filter(Material::isItem)
-                                .filter(itemMaterial -> (player.getStatistic(statistic, itemMaterial)) != 0)
-                                .forEach(itemMaterial -> itemValues.put(itemMaterial.name(),
-                                        player.getStatistic(statistic, itemMaterial)));
-                        if (!itemValues.isEmpty()) {
-                            itemStatisticValues.put(statistic.name(), itemValues);
-                        }
-                    }
-                    case BLOCK -> {
-                        final Map<String, Integer> blockValues = new HashMap<>();
-                        Arrays.stream(Material.values()).filter(Material::isBlock)
-                                .filter(blockMaterial -> (player.getStatistic(statistic, blockMaterial)) != 0)
-                                .forEach(blockMaterial -> blockValues.put(blockMaterial.name(),
-                                        player.getStatistic(statistic, blockMaterial)));
-                        if (!blockValues.isEmpty()) {
-                            blockStatisticValues.put(statistic.name(), blockValues);
-                        }
-                    }
-                    case ENTITY -> {
-                        final Map<String, Integer> entityValues = new HashMap<>();
-                        Arrays.stream(EntityType.values()).filter(EntityType::isAlive)
-                                .filter(entityType -> (player.getStatistic(statistic, entityType)) != 0)
-                                .forEach(entityType -> entityValues.put(entityType.name(),
-                                        player.getStatistic(statistic, entityType)));
-                        if (!entityValues.isEmpty()) {
-                            entityStatisticValues.put(statistic.name(), entityValues);
-                        }
-                    }
-                    case UNTYPED -> {
-                        if (player.getStatistic(statistic) != 0) {
-                            untypedStatisticValues.put(statistic.name(), player.getStatistic(statistic));
-                        }
+    /**
+     * Work out the advancement criteria to award to and revoke from the player to match their advancement records
+     *
+     * @param advancementData the player's advancement records
+     * @return the criteria to award and revoke, grouped by advancement
+     */
+    @NotNull
+    private List<CriterionChange> getCriteriaChanges(@NotNull List<AdvancementData> advancementData) {
+        final Map<String, AdvancementData> records = new HashMap<>(advancementData.size() * 2);
+        for (AdvancementData record : advancementData) {
+            records.put(record.key, record);
+        }
+
+        final List<CriterionChange> changes = new ArrayList<>();
+        for (BukkitAdvancementCatalog.Entry entry : BukkitHuskSync.getInstance().getAdvancementCatalog().getEntries()) {
+            final Advancement advancement = entry.advancement();
+            final AdvancementData record = records.get(entry.key());
+            final Collection<String> awardedCriteria = player.getAdvancementProgress(advancement).getAwardedCriteria();
+
+            // Award all criteria that the player does not have that they do on the record
+            if (record != null) {
+                for (String criterion : record.completedCriteria.keySet()) {
+                    if (!awardedCriteria.contains(criterion)) {
+                        changes.add(new CriterionChange(advancement, criterion, true));
                     }
                 }
             }
 
-            return new StatisticsData(untypedStatisticValues, blockStatisticValues,
-                    itemStatisticValues, entityStatisticValues);
-        });
+            // Revoke all criteria that the player does have but should not
+            for (String criterion : awardedCriteria) {
+                if (record == null || !record.completedCriteria.containsKey(criterion)) {
+                    changes.add(new CriterionChange(advancement, criterion, false));
+                }
+            }
+        }
+        return changes;
     }
 
-    @Override
-    public CompletableFuture<Void> setStatistics(@NotNull StatisticsData statisticsData) {
-        return CompletableFuture.runAsync(() -> {
-            // Set untyped statistics
-            for (String statistic : statisticsData.untypedStatistics.keySet()) {
-                player.setStatistic(Statistic.valueOf(statistic), statisticsData.untypedStatistics.get(statistic));
-            }
+    /**
+     * Award and revoke advancement criteria on the main thread through the {@link BukkitApplyScheduler}, in steps of
+     * up to {@link #MAX_CRITERIA_CHANGES_PER_STEP}, so that large changes are spread over several ticks
+     *
+     * @param changes the criteria to award and revoke
+     * @return a future completing once every change has been applied
+     */
+    @NotNull
+    private CompletableFuture<Void> applyCriteriaChanges(@NotNull List<CriterionChange> changes) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return BukkitHuskSync.getInstance().getApplyScheduler().submit(player, new BukkitApplyScheduler.ApplyStep() {
+            private int applied;
+            private int experienceLevel;
+            private float expProgress;
+
+            @Override
+            public boolean run() {
+                // Save current experience and level
+                if (applied == 0) {
+                    experienceLevel = player.getLevel();
+                    expProgress = player.getExp();
+                }
 
-            // Set block statistics
-            for (String statistic : statisticsData.blockStatistics.keySet()) {
-                for (String blockMaterial : statisticsData.blockStatistics.get(statistic).keySet()) {
-                    player.setStatistic(Statistic.valueOf(statistic), Material.valueOf(blockMaterial),
-                            statisticsData.blockStatistics.get(statistic).get(blockMaterial));
+                // Temporarily disable advancement announcing if needed, re-enabling it within the same step, so that
+                // the world's other players are not left without announcements between steps
+                final World world = player.getWorld();
+                final boolean announceAdvancementUpdate = Boolean.TRUE.equals(
+                        world.getGameRuleValue(GameRule.ANNOUNCE_ADVANCEMENTS));
+                if (announceAdvancementUpdate) {
+                    world.setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, false);
                 }
+                try {
+                    applyBatch();
+                } finally {
+                    if (announceAdvancementUpdate) {
+                        world.setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, true);
+                    }
+                }
+                return applied == changes.size();
             }
 
-            // Set item statistics
-            for (String statistic : statisticsData.itemStatistics.keySet()) {
-                for (String itemMaterial : statisticsData.itemStatistics.get(statistic).keySet()) {
-                    player.setStatistic(Statistic.valueOf(statistic), Material.valueOf(itemMaterial),
-                            statisticsData.itemStatistics.get(statistic).get(itemMaterial));
+            private void applyBatch() {
+                final int end = Math.min(changes.size(), applied + MAX_CRITERIA_CHANGES_PER_STEP);
+                boolean correctExperience = false;
+                Advancement advancement = null;
+                AdvancementProgress progress = null;
+                for (; applied < end; applied++) {
+                    final CriterionChange change = changes.get(applied);
+                    if (change.advancement() != advancement) {
+                        advancement = change.advancement();
+                        progress = player.getAdvancementProgress(advancement);
+                    }
+                    if (change.award()) {
+                        progress.awardCriteria(change.criterion());
+                        correctExperience = true;
+                    } else {
+                        progress.revokeCriteria(change.criterion());
+                    }
                 }
-            }
 
-            // Set entity statistics
-            for (String statistic : statisticsData.entityStatistics.keySet()) {
-                for (String entityType : statisticsData.entityStatistics.get(statistic).keySet()) {
-                    player.setStatistic(Statistic.valueOf(statistic), EntityType.valueOf(entityType),
-                            statisticsData.entityStatistics.get(statistic).get(entityType));
+                // Update the player's experience in case the advancement changed that
+                if (correctExperience) {
+                    player.setLevel(experienceLevel);
+                    player.setExp(expProgress);
                 }
             }
         });
     }
 
+    @Override
+    public CompletableFuture<StatisticsData> getStatistics() {
+        return CompletableFuture.supplyAsync(() -> BukkitHuskSync.getInstance().getStatisticTracker().capture(player));
+    }
+
+    @Override
+    public CompletableFuture<Void> setStatistics(@NotNull StatisticsData statisticsData) {
+        return runOnMainThread(() -> BukkitHuskSync.getInstance().getStatisticTracker().apply(player, statisticsData));
+    }
+
     @Override
     public CompletableFuture<LocationData> getLocation() {
         return CompletableFuture.supplyAsync(() ->
@@ -388,24 +349,24 @@ public class BukkitPlayer extends OnlineUser {
 
     @Override
     public CompletableFuture<Void> setLocation(@NotNull LocationData locationData) {
-        final CompletableFuture<Void> teleportFuture = new CompletableFuture<>();
-        AtomicReference<World> bukkitWorld = new AtomicReference<>(Bukkit.getWorld(locationData.worldName));
-        if (bukkitWorld.get() == null) {
-            bukkitWorld.set(Bukkit.getWorld(locationData.worldUuid));
+        return runOnMainThread(() -> applyLocation(locationData));
+    }
+
+    // Teleport the player to a location, if its world can be found; must be called on the main thread
+    private void applyLocation(@NotNull LocationData locationData) {
+        World bukkitWorld = Bukkit.getWorld(locationData.worldName);
+        if (bukkitWorld == null) {
+            bukkitWorld = Bukkit.getWorld(locationData.worldUuid);
         }
-        if (bukkitWorld.get() == null) {
-            Bukkit.getWorlds().stream().filter(world -> world.getEnvironment() == World.Environment
-                    .valueOf(locationData.worldEnvironment)).findFirst().ifPresent(bukkitWorld::set);
+        if (bukkitWorld == null) {
+            bukkitWorld = Bukkit.getWorlds().stream().filter(world -> world.getEnvironment() == World.Environment
+                    .valueOf(locationData.worldEnvironment)).findFirst().orElse(null);
         }
-        if (bukkitWorld.get() != null) {
-            Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), () -> {
-                player.teleport(new Location(bukkitWorld.get(),
-                        locationData.x, locationData.y, locationData.z,
-                        locationData.yaw, locationData.pitch), PlayerTeleportEvent.TeleportCause.PLUGIN);
-                teleportFuture.complete(null);
-            });
+        if (bukkitWorld != null) {
+            player.teleport(new Location(bukkitWorld,
+                    locationData.x, locationData.y, locationData.z,
+                    locationData.yaw, locationData.pitch), PlayerTeleportEvent.TeleportCause.PLUGIN);
         }
-        return teleportFuture;
     }
 
     @Override
@@ -477,7 +438,13 @@ public class BukkitPlayer extends OnlineUser {
 
     @Override
     public CompletableFuture<Void> setPersistentDataContainer(@NotNull PersistentDataContainerData persistentDataContainerData) {
-        return CompletableFuture.runAsync(() -> {
+        return runOnMainThread(() -> applyPersistentDataContainer(persistentDataContainerData));
+    }
+
+    // Replace the player's persistent data container, logging rather than failing if it cannot be written; must be
+    // called on the main thread
+    private void applyPersistentDataContainer(@NotNull PersistentDataContainerData persistentDataContainerData) {
+        try {
             player.getPersistentDataContainer().getKeys().forEach(namespacedKey ->
                     player.getPersistentDataContainer().remove(namespacedKey));
             persistentDataContainerData.getTags().forEach(keyString -> {
@@ -533,18 +500,110 @@ public class BukkitPlayer extends OnlineUser {
                             " as it has an invalid type. Skipping!"));
                 }
             });
-        }).exceptionally(throwable -> {
+        } catch (RuntimeException e) {
             BukkitHuskSync.getInstance().getLoggingAdapter().log(Level.WARNING,
                     "Could not write " + player.getName() + "'s persistent data map, skipping!");
-            throwable.printStackTrace();
-            return null;
-        });
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Apply user data by deserializing and preparing every section off the main thread, then setting them all in a
+     * single main-thread step of the {@link BukkitApplyScheduler}. Large advancement changes are split into further
+     * steps.
+     */
+    @Override
+    protected CompletableFuture<Void> applyData(@NotNull UserData data, @NotNull Settings settings) {
+        final CompletableFuture<BukkitInventoryMap> inventory =
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_INVENTORIES)
+                && data.getInventoryData() != null
+                        ? BukkitSerializer.deserializeInventory(data.getInventoryData().serializedItems)
+                        : CompletableFuture.completedFuture(null);
+        final CompletableFuture<ItemStack[]> enderChest =
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ENDER_CHESTS)
+                && data.getEnderChestData() != null
+                        ? BukkitSerializer.deserializeItemStackArray(data.getEnderChestData().serializedItems)
+                        : CompletableFuture.completedFuture(null);
+        final CompletableFuture<PotionEffect[]> potionEffects =
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_POTION_EFFECTS)
+                && data.getPotionEffectsData() != null
+                        ? BukkitSerializer.deserializePotionEffectArray(data.getPotionEffectsData().serializedPotionEffects)
+                        : CompletableFuture.completedFuture(null);
+        final CompletableFuture<List<CriterionChange>> criteriaChanges =
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ADVANCEMENTS)
+                && data.getAdvancementData() != null
+                        ? CompletableFuture.supplyAsync(() -> getCriteriaChanges(data.getAdvancementData()))
+                        : CompletableFuture.completedFuture(List.of());
+        final StatisticsData statistics = settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_STATISTICS)
+                ? data.getStatisticsData() : null;
+        final List<StatusDataFlag> statusDataFlags = StatusDataFlag.getFromSettings(settings);
+        final LocationData location = settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_LOCATION)
+                ? data.getLocationData() : null;
+        final PersistentDataContainerData persistentDataContainer =
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_PERSISTENT_DATA_CONTAINER)
+                        ? data.getPersistentDataContainerData() : null;
+
+        // Once every section is prepared, queue them to be set together on the main thread; the prepared futures are
+        // complete by the time the apply runs
+        return CompletableFuture.allOf(inventory, enderChest, potionEffects, criteriaChanges)
+                .thenCompose(prepared -> BukkitHuskSync.getInstance().getApplyScheduler().submit(player, () -> {
+                    final long startTime = System.nanoTime();
+                    if (inventory.join() != null) {
+                        player.getInventory().setContents(inventory.join().getContents());
+                    }
+                    if (enderChest.join() != null) {
+                        player.getEnderChest().setContents(enderChest.join());
+                    }
+                    if (potionEffects.join() != null) {
+                        applyPotionEffects(potionEffects.join());
+                    }
+                    applyStatus(data.getStatusData(), statusDataFlags);
+                    if (location != null) {
+                        applyLocation(location);
+                    }
+                    if (persistentDataContainer != null) {
+                        applyPersistentDataContainer(persistentDataContainer);
+                    }
+                    if (statistics != null) {
+                        BukkitHuskSync.getInstance().getStatisticTracker().apply(player, statistics);
+                    }
+                    BukkitHuskSync.getInstance().getMetrics().recordTime("apply.main_thread",
+                            System.nanoTime() - startTime);
+                    return true;
+                }))
+                .thenCompose(applied -> applyCriteriaChanges(criteriaChanges.join()));
+    }
+
+    /**
+     * Run a task on the main thread, completing the returned future once it has run, rather than blocking a thread
+     * to wait for it. The task is run immediately if called from the main thread.
+     *
+     * @param task the task to run
+     * @return a future completing once the task has run, or exceptionally if it threw
+     */
+    @NotNull
+    private CompletableFuture<Void> runOnMainThread(@NotNull Runnable task) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final Runnable completingTask = () -> {
+            try {
+                task.run();
+                future.complete(null);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            completingTask.run();
+        } else {
+            Bukkit.getScheduler().runTask(BukkitHuskSync.getInstance(), completingTask);
+        }
+        return future;
     }
 
     @Override
     public boolean isOffline() {
         try {
-            return player == null;
+            return player == null || !player.isOnline();
         } catch (Exception e) {
             e.printStackTrace();
             throw e;
@@ -606,4 +665,10 @@ public class BukkitPlayer extends OnlineUser {
         return maxHealth;
     }
 
+    /**
+     * An advancement criterion to award to or revoke from a player
+     */
+    private record CriterionChange(@NotNull Advancement advancement, @NotNull String criterion, boolean award) {
+    }
+
 }
@@ -0,0 +1,149 @@
+package net.william278.husksync.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Applies synchronised data to players on the main thread within a time budget each tick.
+ * <p>
+ * When many players join at once, such as after a network restart, applying all of their data as soon as it is ready
+ * would stall the main thread. Instead, applies are queued and run each tick until the tick's budget is used, with the
+ * rest spilling into later ticks. Players waiting on their data, such as those locked while joining, are served before
+ * other applies, such as data updates for players who are already playing. Applies may be split into steps, so that a
+ * large apply, such as of many advancements, is spread over several ticks rather than using a whole tick's budget.
+ * <p>
+ * At least one step is run each tick, so that applies always progress even if a single step exceeds the budget.
+ */
+public class BukkitApplyScheduler {
+
+    private final long budgetNanos;
+    private final Predicate<UUID> isWaiting;
+    private final PerformanceMetrics metrics;
+    private final Deque<QueuedApply> waitingQueue = new ArrayDeque<>();
+    private final Deque<QueuedApply> backgroundQueue = new ArrayDeque<>();
+    private final BukkitTask task;
+    private volatile long lastTickNanos;
+
+    /**
+     * Create an apply scheduler, and start running queued applies each tick
+     *
+     * @param plugin       the plugin to schedule the tick task with
+     * @param budgetMillis the main thread time to spend on applies each tick
+     * @param isWaiting    whether the player with a UUID is waiting on their data, and so should be served first
+     * @param metrics      the metrics to record the queue length and time used each tick to
+     */
+    public BukkitApplyScheduler(@NotNull Plugin plugin, final long budgetMillis, @NotNull Predicate<UUID> isWaiting,
+                                @NotNull PerformanceMetrics metrics) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.isWaiting = isWaiting;
+        this.metrics = metrics;
+        metrics.registerGauge("apply.queue.length", this::getQueueLength);
+        metrics.registerGauge("apply.tick.used_micros", () -> lastTickNanos / 1000);
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+    }
+
+    /**
+     * Queue an apply to be run on the main thread
+     *
+     * @param player the player the apply is for
+     * @param step   the apply, run repeatedly until it returns {@code true}
+     * @return a future completing once the apply has completed, or if the player leaves before it does
+     */
+    @NotNull
+    public CompletableFuture<Void> submit(@NotNull Player player, @NotNull ApplyStep step) {
+        final QueuedApply apply = new QueuedApply(player, step, isWaiting.test(player.getUniqueId()),
+                new CompletableFuture<>());
+        synchronized (this) {
+            (apply.waiting() ? waitingQueue : backgroundQueue).addLast(apply);
+        }
+        return apply.future();
+    }
+
+    /**
+     * Get the number of applies waiting to be run or completed
+     *
+     * @return the number of queued applies
+     */
+    public synchronized int getQueueLength() {
+        return waitingQueue.size() + backgroundQueue.size();
+    }
+
+    /**
+     * Stop running queued applies, failing any that are still queued
+     */
+    public void stop() {
+        task.cancel();
+        QueuedApply apply;
+        while ((apply = poll()) != null) {
+            apply.future().completeExceptionally(new IllegalStateException("The apply scheduler has been stopped"));
+        }
+    }
+
+    // Run queued applies until this tick's budget is used
+    private void tick() {
+        final long startTime = System.nanoTime();
+        long elapsed = 0;
+        int steps = 0;
+        QueuedApply apply;
+        while ((steps == 0 || elapsed < budgetNanos) && (apply = poll()) != null) {
+            steps++;
+            if (!apply.player().isOnline()) {
+                apply.future().complete(null);
+                continue;
+            }
+            try {
+                if (apply.step().run()) {
+                    apply.future().complete(null);
+                } else {
+                    synchronized (this) {
+                        (apply.waiting() ? waitingQueue : backgroundQueue).addLast(apply);
+                    }
+                }
+            } catch (RuntimeException e) {
+                apply.future().completeExceptionally(e);
+            }
+            elapsed = System.nanoTime() - startTime;
+        }
+        lastTickNanos = elapsed;
+        if (steps > 0) {
+            metrics.recordTime("apply.tick", elapsed);
+            metrics.add("apply.steps", steps);
+        }
+    }
+
+    @Nullable
+    private synchronized QueuedApply poll() {
+        final QueuedApply apply = waitingQueue.pollFirst();
+        return apply != null ? apply : backgroundQueue.pollFirst();
+    }
+
+    /**
+     * A step of applying data to a player on the main thread
+     */
+    @FunctionalInterface
+    public interface ApplyStep {
+
+        /**
+         * Run the next step of the apply
+         *
+         * @return {@code true} if the apply is complete, or {@code false} if it has more steps to run
+         */
+        boolean run();
+
+    }
+
+    private record QueuedApply(@NotNull Player player, @NotNull ApplyStep step, boolean waiting,
+                               @NotNull CompletableFuture<Void> future) {
+    }
+
+}
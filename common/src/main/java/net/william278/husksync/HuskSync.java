@@ -4,6 +4,7 @@ import net.william278.desertwell.UpdateChecker;
 import net.william278.husksync.config.Locales;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.DataAdapter;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
 import net.william278.husksync.editor.DataEditor;
 import net.william278.husksync.database.Database;
 import net.william278.husksync.event.EventCannon;
@@ -11,6 +12,7 @@ import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.player.OnlineUser;
 import net.william278.husksync.redis.RedisManager;
 import net.william278.husksync.util.Logger;
+import net.william278.husksync.util.PerformanceMetrics;
 import net.william278.husksync.util.ResourceReader;
 import net.william278.desertwell.Version;
 import org.jetbrains.annotations.NotNull;
@@ -70,6 +72,14 @@ public interface HuskSync {
     @NotNull
     DataAdapter getDataAdapter();
 
+    /**
+     * Returns the registry of compression codecs used by the data adapter
+     *
+     * @return the {@link CompressionCodecRegistry}
+     */
+    @NotNull
+    CompressionCodecRegistry getCompressionCodecs();
+
     /**
      * Returns the data editor implementation
      *
@@ -118,6 +128,14 @@ public interface HuskSync {
     @NotNull
     Logger getLoggingAdapter();
 
+    /**
+     * Returns the plugin runtime performance metrics
+     *
+     * @return the {@link PerformanceMetrics}
+     */
+    @NotNull
+    PerformanceMetrics getMetrics();
+
     /**
      * Returns the plugin resource file reader
      *
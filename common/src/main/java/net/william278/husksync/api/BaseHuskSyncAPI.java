@@ -67,16 +67,21 @@ public abstract class BaseHuskSyncAPI {
      * Because of this, if the user is online on another server on the network,
      * then the {@link UserData} returned by this method will <i>not necessarily reflective of
      * their current state</i>
+     * </p>
+     * If the user is offline and their data could not be read from the database, the future completes exceptionally,
+     * rather than returning an empty {@link Optional} as if they had no data
+     * </p>
+     * If the user is online, sections whose synchronization feature is disabled in the config are not captured and
+     * are {@code null} in the returned {@link UserData}; by default, this includes their location. Saved data may
+     * likewise lack sections that were disabled on the server that saved it
      * @since 2.0
      */
     public final CompletableFuture<Optional<UserData>> getUserData(@NotNull User user) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (user instanceof OnlineUser) {
-                return ((OnlineUser) user).getUserData(plugin.getLoggingAdapter(), plugin.getSettings()).join();
-            } else {
-                return plugin.getDatabase().getCurrentUserData(user).join().map(UserDataSnapshot::userData);
-            }
-        });
+        if (user instanceof OnlineUser) {
+            return ((OnlineUser) user).getUserData(plugin.getLoggingAdapter(), plugin.getSettings(), plugin.getMetrics());
+        }
+        return plugin.getDatabase().getCurrentUserData(user)
+                .thenApply(userDataSnapshot -> userDataSnapshot.map(UserDataSnapshot::userData));
     }
 
     /**
@@ -90,9 +95,8 @@ public abstract class BaseHuskSyncAPI {
      * @since 2.0
      */
     public final CompletableFuture<Void> setUserData(@NotNull User user, @NotNull UserData userData) {
-        return CompletableFuture.runAsync(() ->
-                plugin.getDatabase().setUserData(user, userData, DataSaveCause.API)
-                        .thenRun(() -> plugin.getRedisManager().sendUserDataUpdate(user, userData).join()));
+        return plugin.getDatabase().setUserData(user, userData, DataSaveCause.API)
+                .thenCompose(unused -> plugin.getRedisManager().sendUserDataUpdate(user, userData));
     }
 
     /**
@@ -103,9 +107,10 @@ public abstract class BaseHuskSyncAPI {
      * @since 2.0
      */
     public final CompletableFuture<Void> saveUserData(@NotNull OnlineUser user) {
-        return CompletableFuture.runAsync(() -> user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings())
-                .thenAccept(optionalUserData -> optionalUserData.ifPresent(
-                        userData -> plugin.getDatabase().setUserData(user, userData, DataSaveCause.API).join())));
+        return user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings(), plugin.getMetrics())
+                .thenCompose(optionalUserData -> optionalUserData
+                        .map(userData -> plugin.getDatabase().setUserData(user, userData, DataSaveCause.API))
+                        .orElseGet(() -> CompletableFuture.completedFuture(null)));
     }
 
     /**
@@ -119,7 +124,7 @@ public abstract class BaseHuskSyncAPI {
      * @since 2.0
      */
     public final CompletableFuture<List<UserDataSnapshot>> getSavedUserData(@NotNull User user) {
-        return CompletableFuture.supplyAsync(() -> plugin.getDatabase().getUserData(user).join());
+        return plugin.getDatabase().getUserData(user);
     }
 
     /**
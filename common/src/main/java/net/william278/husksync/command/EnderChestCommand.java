@@ -3,6 +3,7 @@ package net.william278.husksync.command;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.data.DataSaveCause;
 import net.william278.husksync.data.UserData;
+import net.william278.husksync.data.UserDataSection;
 import net.william278.husksync.data.UserDataSnapshot;
 import net.william278.husksync.editor.ItemEditorMenu;
 import net.william278.husksync.player.OnlineUser;
@@ -10,6 +11,7 @@ import net.william278.husksync.player.User;
 import org.jetbrains.annotations.NotNull;
 
 import java.text.DateFormat;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
@@ -35,10 +37,12 @@ public class EnderChestCommand extends CommandBase implements TabCompletable {
                         // View user data by specified UUID
                         try {
                             final UUID versionUuid = UUID.fromString(args[1]);
-                            plugin.getDatabase().getUserData(user, versionUuid).thenAccept(data -> data.ifPresentOrElse(
-                                    userData -> showEnderChestMenu(player, userData, user, false),
-                                    () -> plugin.getLocales().getLocale("error_invalid_version_uuid")
-                                            .ifPresent(player::sendMessage)));
+                            // Past versions are read-only, so only the ender chest section needs to be decoded
+                            plugin.getDatabase().getUserData(user, versionUuid, EnumSet.of(UserDataSection.ENDER_CHEST))
+                                    .thenAccept(data -> data.ifPresentOrElse(
+                                            userData -> showEnderChestMenu(player, userData, user, false),
+                                            () -> plugin.getLocales().getLocale("error_invalid_version_uuid")
+                                                    .ifPresent(player::sendMessage)));
                         } catch (IllegalArgumentException e) {
                             plugin.getLocales().getLocale("error_invalid_syntax",
                                     "/enderchest <player> [version_uuid]").ifPresent(player::sendMessage);
@@ -58,6 +62,10 @@ public class EnderChestCommand extends CommandBase implements TabCompletable {
                                     @NotNull User dataOwner, final boolean allowEdit) {
         CompletableFuture.runAsync(() -> {
             final UserData data = userDataSnapshot.userData();
+            if (data.getEnderChestData() == null) {
+                plugin.getLocales().getLocale("error_no_data_to_display").ifPresent(player::sendMessage);
+                return;
+            }
             final ItemEditorMenu menu = ItemEditorMenu.createEnderChestMenu(data.getEnderChestData(),
                     dataOwner, player, plugin.getLocales(), allowEdit);
             plugin.getLocales().getLocale("viewing_ender_chest_of", dataOwner.username,
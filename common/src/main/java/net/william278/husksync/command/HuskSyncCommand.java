@@ -3,20 +3,24 @@ package net.william278.husksync.command;
 import de.themoep.minedown.MineDown;
 import net.william278.desertwell.AboutMenu;
 import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataAdaptionException;
+import net.william278.husksync.data.compression.CompressionDictionary;
+import net.william278.husksync.data.compression.ZstdDictionaryCodec;
 import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.player.OnlineUser;
+import net.william278.husksync.player.User;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public class HuskSyncCommand extends CommandBase implements TabCompletable, ConsoleExecutable {
 
-    private final String[] SUB_COMMANDS = {"update", "about", "reload", "migrate"};
+    private final String[] SUB_COMMANDS = {"update", "about", "reload", "status", "dictionary", "migrate"};
     private final AboutMenu aboutMenu;
 
     public HuskSyncCommand(@NotNull HuskSync implementor) {
@@ -77,10 +81,32 @@ public class HuskSyncCommand extends CommandBase implements TabCompletable, Cons
                 plugin.reload();
                 plugin.getLocales().getLocale("reload_complete").ifPresent(player::sendMessage);
             }
+            case "status" -> {
+                if (!player.hasPermission(Permission.COMMAND_HUSKSYNC_STATUS.node)) {
+                    plugin.getLocales().getLocale("error_no_permission").ifPresent(player::sendMessage);
+                    return;
+                }
+                player.sendMessage(new MineDown("[HuskSync](#00fb9a bold) [| Database: " + getAvailability(
+                        plugin.getDatabase().isAvailable()) + ", Redis: " + getAvailability(
+                        plugin.getRedisManager().isAvailable()) + "](#00fb9a)"));
+                plugin.getMetrics().getSnapshot().forEach((name, value) -> player.sendMessage(
+                        new MineDown("[" + MineDown.escape(name) + ":](gray) [" + MineDown.escape(value) + "](white)")));
+            }
+            case "dictionary" -> {
+                if (!player.hasPermission(Permission.COMMAND_HUSKSYNC_DICTIONARY.node)) {
+                    plugin.getLocales().getLocale("error_no_permission").ifPresent(player::sendMessage);
+                    return;
+                }
+                player.sendMessage(new MineDown("[HuskSync](#00fb9a bold) [| Training a compression dictionary from stored user data...](#00fb9a)"));
+                trainCompressionDictionary().thenAccept(dictionary -> player.sendMessage(new MineDown(dictionary
+                        .map(trained -> "[HuskSync](#00fb9a bold) [| Trained compression dictionary #" + trained.id()
+                                        + " (" + trained.data().length + " bytes)](#00fb9a)")
+                        .orElse("[HuskSync](#00fb9a bold) [| Failed to train a compression dictionary. Check the console for details.](#ff3300)"))));
+            }
             case "migrate" ->
                     plugin.getLocales().getLocale("error_console_command_only").ifPresent(player::sendMessage);
             default -> plugin.getLocales().getLocale("error_invalid_syntax",
-                            "/husksync <update/about/reload>")
+                            "/husksync <update/about/reload/status/dictionary>")
                     .ifPresent(player::sendMessage);
         }
     }
@@ -88,7 +114,7 @@ public class HuskSyncCommand extends CommandBase implements TabCompletable, Cons
     @Override
     public void onConsoleExecute(@NotNull String[] args) {
         if (args.length < 1) {
-            plugin.getLoggingAdapter().log(Level.INFO, "Console usage: \"husksync <update/about/reload/migrate>\"");
+            plugin.getLoggingAdapter().log(Level.INFO, "Console usage: \"husksync <update/about/reload/status/dictionary/migrate>\"");
             return;
         }
         switch (args[0].toLowerCase()) {
@@ -104,6 +130,19 @@ public class HuskSyncCommand extends CommandBase implements TabCompletable, Cons
                 plugin.reload();
                 plugin.getLoggingAdapter().log(Level.INFO, "Reloaded config & message files.");
             }
+            case "status" -> {
+                plugin.getLoggingAdapter().log(Level.INFO, "Database: " + getAvailability(
+                        plugin.getDatabase().isAvailable()) + ", Redis: " + getAvailability(
+                        plugin.getRedisManager().isAvailable()));
+                plugin.getMetrics().getSnapshot().forEach((name, value) ->
+                        plugin.getLoggingAdapter().log(Level.INFO, name + ": " + value));
+            }
+            case "dictionary" -> {
+                plugin.getLoggingAdapter().log(Level.INFO, "Training a compression dictionary from stored user data...");
+                trainCompressionDictionary().thenAccept(dictionary -> dictionary.ifPresent(trained ->
+                        plugin.getLoggingAdapter().log(Level.INFO, "Trained compression dictionary #" + trained.id()
+                                                                   + " (" + trained.data().length + " bytes)")));
+            }
             case "migrate" -> {
                 if (args.length < 2) {
                     plugin.getLoggingAdapter().log(Level.INFO,
@@ -138,10 +177,65 @@ public class HuskSyncCommand extends CommandBase implements TabCompletable, Cons
                 });
             }
             default -> plugin.getLoggingAdapter().log(Level.INFO,
-                    "Invalid syntax. Console usage: \"husksync <update/about/reload/migrate>\"");
+                    "Invalid syntax. Console usage: \"husksync <update/about/reload/status/dictionary/migrate>\"");
         }
     }
 
+    /**
+     * Train a compression dictionary from users' current data, save it to the database, then compress data with it on
+     * this and all other servers
+     *
+     * @return a future returning the trained dictionary, or an empty optional if training failed
+     */
+    private CompletableFuture<Optional<CompressionDictionary>> trainCompressionDictionary() {
+        final int maxSamples = plugin.getSettings().getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_DICTIONARY_SAMPLES);
+        final int dictionarySize = plugin.getSettings().getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_COMPRESSION_DICTIONARY_SIZE_KB) * 1024;
+        return CompletableFuture.supplyAsync(() -> {
+            // Sample the current data of users, a page at a time
+            final List<byte[]> samples = new ArrayList<>();
+            UUID after = null;
+            while (samples.size() < maxSamples) {
+                final List<User> users = plugin.getDatabase().getUsers(after, 100).join();
+                if (users.isEmpty()) {
+                    break;
+                }
+                // Read the page's data in one query, and convert it to JSON without fully deserializing it
+                for (byte[] userData : plugin.getDatabase().getCurrentUserDataBytes(users).join()) {
+                    try {
+                        samples.add(plugin.getDataAdapter().toJsonBytes(userData));
+                    } catch (DataAdaptionException e) {
+                        plugin.getLoggingAdapter().log(Level.WARNING, "Skipped invalid user data while sampling", e);
+                    }
+                    if (samples.size() >= maxSamples) {
+                        break;
+                    }
+                }
+                after = users.get(users.size() - 1).uuid;
+            }
+
+            try {
+                return ZstdDictionaryCodec.train(samples, dictionarySize);
+            } catch (IOException e) {
+                plugin.getLoggingAdapter().log(Level.WARNING, "Failed to train a compression dictionary from "
+                                                              + samples.size() + " samples", e);
+                return null;
+            }
+        }).thenCompose(dictionary -> dictionary == null
+                ? CompletableFuture.completedFuture(Optional.<CompressionDictionary>empty())
+                : plugin.getDatabase().saveCompressionDictionary(dictionary)).thenApply(saved -> {
+            saved.ifPresent(dictionary -> {
+                plugin.getCompressionCodecs().registerDictionary(dictionary, true);
+                plugin.getRedisManager().sendCompressionDictionaryUpdate(dictionary.id());
+            });
+            return saved;
+        });
+    }
+
+    @NotNull
+    private static String getAvailability(boolean available) {
+        return available ? "available" : "unavailable";
+    }
+
     private void logMigratorsList() {
         plugin.getLoggingAdapter().log(Level.INFO,
                 "List of available migrators:\nMigrator ID / Migrator Name:\n" +
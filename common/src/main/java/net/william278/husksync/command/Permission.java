@@ -27,6 +27,14 @@ public enum Permission {
      * Lets the user view the plugin version and check for updates {@code /husksync update}
      */
     COMMAND_HUSKSYNC_UPDATE("husksync.command.husksync.update", DefaultAccess.OPERATORS),
+    /**
+     * Lets the user view runtime performance metrics and backend health {@code /husksync status}
+     */
+    COMMAND_HUSKSYNC_STATUS("husksync.command.husksync.status", DefaultAccess.OPERATORS),
+    /**
+     * Lets the user train a new compression dictionary from stored user data {@code /husksync dictionary}
+     */
+    COMMAND_HUSKSYNC_DICTIONARY("husksync.command.husksync.dictionary", DefaultAccess.OPERATORS),
 
     /*
      * /userdata command permissions
@@ -2,13 +2,11 @@ package net.william278.husksync.command;
 
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.data.DataSaveCause;
+import net.william278.husksync.editor.DataEditor;
 import net.william278.husksync.player.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -43,7 +41,7 @@ public class UserDataCommand extends CommandBase implements TabCompletable {
                         final UUID versionUuid = UUID.fromString(args[2]);
                         CompletableFuture.runAsync(() -> plugin.getDatabase().getUserByName(username.toLowerCase()).thenAccept(
                                 optionalUser -> optionalUser.ifPresentOrElse(
-                                        user -> plugin.getDatabase().getUserData(user, versionUuid).thenAccept(data ->
+                                        user -> plugin.getDatabase().getUserData(user, versionUuid, DataEditor.OVERVIEW_SECTIONS).thenAccept(data ->
                                                 data.ifPresentOrElse(userData -> plugin.getDataEditor()
                                                                 .displayDataOverview(player, userData, user),
                                                         () -> plugin.getLocales().getLocale("error_invalid_version_uuid")
@@ -58,7 +56,7 @@ public class UserDataCommand extends CommandBase implements TabCompletable {
                 } else {
                     CompletableFuture.runAsync(() -> plugin.getDatabase().getUserByName(username.toLowerCase()).thenAccept(
                             optionalUser -> optionalUser.ifPresentOrElse(
-                                    user -> plugin.getDatabase().getCurrentUserData(user).thenAccept(
+                                    user -> plugin.getDatabase().getCurrentUserData(user, DataEditor.OVERVIEW_SECTIONS).thenAccept(
                                             latestData -> latestData.ifPresentOrElse(
                                                     userData -> plugin.getDataEditor()
                                                             .displayDataOverview(player, userData, user),
@@ -82,7 +80,7 @@ public class UserDataCommand extends CommandBase implements TabCompletable {
                 final String username = args[1];
                 CompletableFuture.runAsync(() -> plugin.getDatabase().getUserByName(username.toLowerCase()).thenAccept(
                         optionalUser -> optionalUser.ifPresentOrElse(
-                                user -> plugin.getDatabase().getUserData(user).thenAccept(dataList -> {
+                                user -> plugin.getDatabase().getUserDataMetadata(user).thenAccept(dataList -> {
                                     if (dataList.isEmpty()) {
                                         plugin.getLocales().getLocale("error_no_data_to_display")
                                                 .ifPresent(player::sendMessage);
@@ -188,8 +186,10 @@ public class UserDataCommand extends CommandBase implements TabCompletable {
                     final UUID versionUuid = UUID.fromString(args[2]);
                     CompletableFuture.runAsync(() -> plugin.getDatabase().getUserByName(username.toLowerCase()).thenAccept(
                             optionalUser -> optionalUser.ifPresentOrElse(
-                                    user -> plugin.getDatabase().getUserData(user, versionUuid).thenAccept(
-                                            optionalUserData -> optionalUserData.ifPresentOrElse(userData -> {
+                                    user -> plugin.getDatabase().getUserDataMetadata(user).thenAccept(
+                                            snapshots -> snapshots.stream()
+                                                    .filter(snapshot -> snapshot.versionUuid().equals(versionUuid))
+                                                    .findFirst().ifPresentOrElse(userData -> {
                                                 if (userData.pinned()) {
                                                     plugin.getDatabase().unpinUserData(user, versionUuid).join();
                                                     plugin.getLocales().getLocale("data_unpinned",
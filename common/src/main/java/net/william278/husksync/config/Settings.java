@@ -136,16 +136,45 @@ public class Settings {
         DATABASE_CONNECTION_POOL_TIMEOUT("database.connection_pool.connection_timeout", OptionType.INTEGER, 5000),
         DATABASE_USERS_TABLE_NAME("database.table_names.users_table", OptionType.STRING, "husksync_users"),
         DATABASE_USER_DATA_TABLE_NAME("database.table_names.user_data_table", OptionType.STRING, "husksync_user_data"),
+        DATABASE_USER_DATA_ARCHIVE_TABLE_NAME("database.table_names.user_data_archive_table", OptionType.STRING, "husksync_user_data_archive"),
+        DATABASE_COMPRESSION_DICTIONARIES_TABLE_NAME("database.table_names.compression_dictionaries_table", OptionType.STRING, "husksync_compression_dictionaries"),
+        DATABASE_JOURNAL_ENABLED("database.journal.enabled", OptionType.BOOLEAN, true),
+        DATABASE_JOURNAL_FLUSH_INTERVAL_MILLISECONDS("database.journal.flush_interval_milliseconds", OptionType.INTEGER, 20),
+        DATABASE_JOURNAL_REPLAY_INTERVAL_SECONDS("database.journal.replay_interval_seconds", OptionType.INTEGER, 15),
 
         REDIS_HOST("redis.credentials.host", OptionType.STRING, "localhost"),
         REDIS_PORT("redis.credentials.port", OptionType.INTEGER, 6379),
         REDIS_PASSWORD("redis.credentials.password", OptionType.STRING, ""),
         REDIS_USE_SSL("redis.use_ssl", OptionType.BOOLEAN, false),
 
+        CIRCUIT_BREAKER_FAILURE_THRESHOLD("circuit_breaker.failure_threshold", OptionType.INTEGER, 5),
+        CIRCUIT_BREAKER_OPEN_DURATION_MILLISECONDS("circuit_breaker.open_duration_milliseconds", OptionType.INTEGER, 10000),
+
         SYNCHRONIZATION_MAX_USER_DATA_SNAPSHOTS("synchronization.max_user_data_snapshots", OptionType.INTEGER, 5),
+        SYNCHRONIZATION_RETENTION_CAUSE_LIMITS("synchronization.retention.cause_limits", OptionType.STRING_LIST),
+        SYNCHRONIZATION_RETENTION_AGE_BUCKETS("synchronization.retention.age_buckets", OptionType.STRING_LIST),
+        SYNCHRONIZATION_RETENTION_COMPACTION_INTERVAL_MINUTES("synchronization.retention.compaction_interval_minutes", OptionType.INTEGER, 30),
+        SYNCHRONIZATION_RETENTION_OFF_PEAK_HOURS("synchronization.retention.off_peak_hours", OptionType.STRING, "2-6"),
+        SYNCHRONIZATION_RETENTION_DELETE_BATCH_SIZE("synchronization.retention.delete_batch_size", OptionType.INTEGER, 500),
+        SYNCHRONIZATION_RETENTION_ARCHIVE_AFTER_DAYS("synchronization.retention.archive_after_days", OptionType.INTEGER, 0),
         SYNCHRONIZATION_SAVE_ON_WORLD_SAVE("synchronization.save_on_world_save", OptionType.BOOLEAN, true),
         SYNCHRONIZATION_COMPRESS_DATA("synchronization.compress_data", OptionType.BOOLEAN, true),
+        SYNCHRONIZATION_COMPRESSION_CODEC("synchronization.compression.codec", OptionType.STRING, "SNAPPY"),
+        SYNCHRONIZATION_COMPRESSION_LEVEL("synchronization.compression.level", OptionType.INTEGER, 3),
+        SYNCHRONIZATION_COMPRESSION_ADAPTIVE("synchronization.compression.adaptive.enabled", OptionType.BOOLEAN, false),
+        SYNCHRONIZATION_COMPRESSION_RAW_THRESHOLD_BYTES("synchronization.compression.adaptive.raw_threshold_bytes", OptionType.INTEGER, 512),
+        SYNCHRONIZATION_COMPRESSION_STRONG_THRESHOLD_BYTES("synchronization.compression.adaptive.strong_threshold_bytes", OptionType.INTEGER, 65536),
+        SYNCHRONIZATION_COMPRESSION_FAST_CODEC("synchronization.compression.adaptive.fast_codec", OptionType.STRING, "LZ4"),
+        SYNCHRONIZATION_COMPRESSION_STRONG_CODEC("synchronization.compression.adaptive.strong_codec", OptionType.STRING, "ZSTD"),
+        SYNCHRONIZATION_COMPRESSION_DICTIONARY_SIZE_KB("synchronization.compression.dictionary_size_kb", OptionType.INTEGER, 112),
+        SYNCHRONIZATION_COMPRESSION_DICTIONARY_SAMPLES("synchronization.compression.dictionary_training_samples", OptionType.INTEGER, 1000),
+        SYNCHRONIZATION_BINARY_DATA_FORMAT("synchronization.binary_data_format", OptionType.BOOLEAN, false),
+        SYNCHRONIZATION_COMPACT_ITEM_FORMAT("synchronization.compact_item_format", OptionType.BOOLEAN, false),
         SYNCHRONIZATION_NETWORK_LATENCY_MILLISECONDS("synchronization.network_latency_milliseconds", OptionType.INTEGER, 500),
+        SYNCHRONIZATION_STAGE_TIMEOUT_MILLISECONDS("synchronization.stage_timeout_milliseconds", OptionType.INTEGER, 10000),
+        SYNCHRONIZATION_ITEM_CACHE_SIZE_KB("synchronization.item_cache_size_kb", OptionType.INTEGER, 4096),
+        SYNCHRONIZATION_STATISTICS_FULL_CAPTURE_MINUTES("synchronization.statistics_full_capture_minutes", OptionType.INTEGER, 10),
+        SYNCHRONIZATION_APPLY_TICK_BUDGET_MILLISECONDS("synchronization.apply_tick_budget_milliseconds", OptionType.INTEGER, 5),
         SYNCHRONIZATION_SAVE_DEAD_PLAYER_INVENTORIES("synchronization.save_dead_player_inventories", OptionType.BOOLEAN, true),
         SYNCHRONIZATION_SYNC_INVENTORIES("synchronization.features.inventories", OptionType.BOOLEAN, true),
         SYNCHRONIZATION_SYNC_ENDER_CHESTS("synchronization.features.ender_chests", OptionType.BOOLEAN, true),
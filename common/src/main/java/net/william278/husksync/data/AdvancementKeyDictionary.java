@@ -0,0 +1,105 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A shared, versioned dictionary of the advancement key prefixes and criterion names that most players' advancement
+ * data repeats, such as {@code minecraft:recipes/building_blocks/} and {@code has_the_recipe}.
+ * <p>
+ * The binary format writes a reference to a dictionary entry in place of the string, along with the dictionary version
+ * it was written with. Entries may only ever be appended, with a new version marking the new size, so that data
+ * written with an older version can still be read.
+ */
+public final class AdvancementKeyDictionary {
+
+    /**
+     * The current version of the dictionary
+     */
+    public static final int CURRENT_VERSION = 1;
+
+    private static final String[] ENTRIES = {
+            // Version 1
+            "",
+            "minecraft:",
+            "minecraft:recipes/",
+            "minecraft:recipes/brewing/",
+            "minecraft:recipes/building_blocks/",
+            "minecraft:recipes/combat/",
+            "minecraft:recipes/decorations/",
+            "minecraft:recipes/food/",
+            "minecraft:recipes/misc/",
+            "minecraft:recipes/redstone/",
+            "minecraft:recipes/tools/",
+            "minecraft:recipes/transportation/",
+            "minecraft:story/",
+            "minecraft:nether/",
+            "minecraft:end/",
+            "minecraft:adventure/",
+            "minecraft:husbandry/",
+            "has_the_recipe"
+    };
+
+    // The number of entries in each version of the dictionary, indexed by version
+    private static final int[] VERSION_SIZES = {0, 18};
+
+    private static final Map<String, Integer> IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < getCurrentSize(); i++) {
+            IDS.put(ENTRIES[i], i);
+        }
+    }
+
+    private AdvancementKeyDictionary() {
+    }
+
+    /**
+     * Get the number of entries in a version of the dictionary
+     *
+     * @param version the dictionary version
+     * @return the number of entries
+     * @throws IOException if the version is not known
+     */
+    public static int getSize(final int version) throws IOException {
+        if (version < 1 || version >= VERSION_SIZES.length) {
+            throw new IOException("Unsupported advancement key dictionary version: " + version);
+        }
+        return VERSION_SIZES[version];
+    }
+
+    /**
+     * Get the number of entries in the current version of the dictionary
+     *
+     * @return the number of entries
+     */
+    public static int getCurrentSize() {
+        return VERSION_SIZES[CURRENT_VERSION];
+    }
+
+    /**
+     * Get the ID of a string in the current version of the dictionary
+     *
+     * @param value the key prefix or criterion name
+     * @return the ID of the entry, or {@code -1} if the string is not in the dictionary
+     */
+    public static int getId(@NotNull String value) {
+        final Integer id = IDS.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get a dictionary entry
+     *
+     * @param id the ID of the entry
+     * @return the key prefix or criterion name
+     */
+    @NotNull
+    public static String getEntry(final int id) {
+        return ENTRIES[id];
+    }
+
+}
@@ -0,0 +1,641 @@
+package net.william278.husksync.data;
+
+import com.google.gson.JsonParseException;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A {@link DataAdapter} that encodes {@link UserData} in a compact, schema-driven binary format.
+ * <p>
+ * Data is written as an envelope header followed by a payload of length-prefixed sections:
+ * <pre>
+ * magic            4 bytes, "HSBD"
+ * envelope version 1 byte
+ * format version   varint, the {@link UserData#getFormatVersion() UserData format version}
+ * minecraft version string
+ * section count    varint
+ * section table    per section: id (1 byte), flags (1 byte), payload offset (varint), length (varint)
+ * payload          the encoded sections
+ * </pre>
+ * Numbers are written as varints and strings as a varint length followed by UTF-8 bytes. If compression is enabled,
+ * each section is compressed individually with the configured {@link CompressionCodecRegistry codec} when doing so
+ * makes it smaller. Items serialized in the platform's compact binary format are written as raw bytes, rather than as
+ * their Base-64 string. Advancement keys and criteria are written as references to the shared
+ * {@link AdvancementKeyDictionary} or a per-section string table, with criteria completion times as epoch milliseconds.
+ * <p>
+ * The section table allows {@link #decodeSections(byte[], Set) decoding only some sections}.
+ * <p>
+ * Data that does not begin with the header is read as legacy (Snappy-compressed) JSON, so existing data can still be
+ * read and is upgraded when it is next saved.
+ */
+public class BinaryDataAdapter extends JsonDataAdapter {
+
+    private static final byte[] MAGIC = {'H', 'S', 'B', 'D'};
+    private static final int ENVELOPE_VERSION = 1;
+    private static final int FLAG_COMPRESSED = 0x01;
+    private static final int FLAG_RAW_ITEMS = 0x02;
+    private static final int FLAG_INTERNED_KEYS = 0x04;
+
+    private final boolean compress;
+
+    public BinaryDataAdapter(final boolean compress) {
+        this(compress, new CompressionCodecRegistry());
+    }
+
+    public BinaryDataAdapter(final boolean compress, @NotNull CompressionCodecRegistry compressionCodecs) {
+        super(compressionCodecs);
+        this.compress = compress;
+    }
+
+    @Override
+    public byte[] toBytes(@NotNull UserData data) throws DataAdaptionException {
+        // Sections are encoded into one pooled buffer, and compressed straight out of it
+        try (SerializationBuffer sectionBuffer = SerializationBuffer.acquire();
+             SerializationBuffer outputBuffer = SerializationBuffer.acquire()) {
+            // Encode each section present in the data
+            final Map<UserDataSection, byte[]> sections = new EnumMap<>(UserDataSection.class);
+            final Map<UserDataSection, Integer> sectionFlags = new EnumMap<>(UserDataSection.class);
+            final BinaryWriter sectionWriter = new BinaryWriter(sectionBuffer);
+            for (UserDataSection section : UserDataSection.values()) {
+                sectionBuffer.reset();
+                if (!writeSection(section, data, sectionWriter)) {
+                    continue;
+                }
+                byte[] sectionData = null;
+                int flags = getRawItems(section, data).isPresent() ? FLAG_RAW_ITEMS : 0;
+                if (section == UserDataSection.ADVANCEMENTS) {
+                    flags |= FLAG_INTERNED_KEYS;
+                }
+                if (compress) {
+                    final byte[] compressed = compressionCodecs.compress(sectionBuffer.getBuffer(), 0,
+                            sectionBuffer.size(), compressionCodecs.getConfiguredType());
+                    if (compressed.length < sectionBuffer.size()) {
+                        sectionData = compressed;
+                        flags |= FLAG_COMPRESSED;
+                    }
+                }
+                sections.put(section, sectionData != null ? sectionData : sectionBuffer.toByteArray());
+                sectionFlags.put(section, flags);
+            }
+
+            // Write the envelope header and section table, followed by the section payload
+            final BinaryWriter writer = new BinaryWriter(outputBuffer);
+            writer.writeBytes(MAGIC);
+            writer.write(ENVELOPE_VERSION);
+            writer.writeVarInt(data.formatVersion);
+            writer.writeString(data.minecraftVersion);
+            writer.writeVarInt(sections.size());
+            int offset = 0;
+            for (Map.Entry<UserDataSection, byte[]> section : sections.entrySet()) {
+                writer.write(section.getKey().id);
+                writer.write(sectionFlags.get(section.getKey()));
+                writer.writeVarInt(offset);
+                writer.writeVarInt(section.getValue().length);
+                offset += section.getValue().length;
+            }
+            for (byte[] sectionData : sections.values()) {
+                writer.writeBytes(sectionData);
+            }
+            return outputBuffer.toByteArray();
+        } catch (IOException e) {
+            throw new DataAdaptionException("Failed to compress data", e);
+        }
+    }
+
+    @Override
+    public @NotNull UserData fromBytes(byte[] data) throws DataAdaptionException {
+        if (isBinaryFormat(data)) {
+            return readBinary(data, EnumSet.allOf(UserDataSection.class), compressionCodecs);
+        }
+
+        // Fall back to reading legacy JSON, which may be compressed
+        if (data.length > 0 && data[0] == '{') {
+            return super.fromBytes(data);
+        }
+        try {
+            return super.fromBytes(compressionCodecs.decompress(data));
+        } catch (IOException e) {
+            throw new DataAdaptionException("Failed to decompress data", e);
+        }
+    }
+
+    /**
+     * Returns whether the data begins with the binary format envelope header
+     *
+     * @param data the serialized data
+     * @return {@code true} if the data is in the binary format
+     */
+    protected static boolean isBinaryFormat(final byte[] data) {
+        if (data.length < MAGIC.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read {@link UserData} from data in the binary format, decoding only the given sections. Other sections are
+     * skipped without being decompressed or parsed, and are left {@code null}.
+     *
+     * @param data              the serialized data, which must begin with the envelope header
+     * @param sections          the sections to decode
+     * @param compressionCodecs the codecs to decompress sections with
+     * @return the {@link UserData}
+     * @throws DataAdaptionException if the data is invalid or uses an unsupported envelope version
+     */
+    @NotNull
+    protected static UserData readBinary(final byte[] data, @NotNull Set<UserDataSection> sections,
+                                         @NotNull CompressionCodecRegistry compressionCodecs) throws DataAdaptionException {
+        try {
+            final BinaryReader reader = new BinaryReader(data, MAGIC.length, data.length);
+            final int envelopeVersion = reader.readByte();
+            if (envelopeVersion != ENVELOPE_VERSION) {
+                throw new IOException("Unsupported binary data envelope version: " + envelopeVersion);
+            }
+            final UserData userData = new UserData();
+            userData.formatVersion = reader.readVarInt();
+            userData.minecraftVersion = reader.readString();
+
+            // Read the section table, then decode each section from the payload
+            final int sectionCount = reader.readVarInt();
+            final int[][] sectionTable = new int[sectionCount][];
+            for (int i = 0; i < sectionCount; i++) {
+                sectionTable[i] = new int[]{reader.readByte(), reader.readByte(), reader.readVarInt(), reader.readVarInt()};
+            }
+            final int payloadStart = reader.position;
+            for (int[] entry : sectionTable) {
+                final Optional<UserDataSection> section = UserDataSection.getSectionById(entry[0]);
+                if (section.isEmpty() || !sections.contains(section.get())) {
+                    continue;
+                }
+                final int start = payloadStart + entry[2];
+                final int end = start + entry[3];
+                if (start < payloadStart || end > data.length) {
+                    throw new IOException("Section " + section.get() + " is out of bounds");
+                }
+                if ((entry[1] & FLAG_COMPRESSED) != 0) {
+                    final byte[] uncompressed = compressionCodecs.decompress(Arrays.copyOfRange(data, start, end));
+                    readSection(section.get(), userData, new BinaryReader(uncompressed, 0, uncompressed.length), entry[1]);
+                } else {
+                    readSection(section.get(), userData, new BinaryReader(data, start, end), entry[1]);
+                }
+            }
+            return userData;
+        } catch (IOException | IndexOutOfBoundsException | JsonParseException e) {
+            throw new DataAdaptionException("Failed to read binary data", e);
+        }
+    }
+
+    /**
+     * Write a section of {@link UserData}
+     *
+     * @return {@code false} if the data does not contain the section
+     */
+    private static boolean writeSection(@NotNull UserDataSection section, @NotNull UserData data,
+                                        @NotNull BinaryWriter writer) {
+        switch (section) {
+            case STATUS -> {
+                final StatusData status = data.statusData;
+                if (status == null) {
+                    return false;
+                }
+                writer.writeDouble(status.health);
+                writer.writeDouble(status.maxHealth);
+                writer.writeDouble(status.healthScale);
+                writer.writeSignedVarInt(status.hunger);
+                writer.writeFloat(status.saturation);
+                writer.writeFloat(status.saturationExhaustion);
+                writer.writeSignedVarInt(status.selectedItemSlot);
+                writer.writeSignedVarInt(status.totalExperience);
+                writer.writeSignedVarInt(status.expLevel);
+                writer.writeFloat(status.expProgress);
+                writer.writeString(status.gameMode);
+                writer.write(status.isFlying ? 1 : 0);
+            }
+            case INVENTORY, ENDER_CHEST -> {
+                final ItemData items = section == UserDataSection.INVENTORY ? data.inventoryData : data.enderChestData;
+                if (items == null) {
+                    return false;
+                }
+                // Items in the compact format are written as-is, rather than as their Base-64 string
+                final Optional<byte[]> rawItems = getRawItems(section, data);
+                if (rawItems.isPresent()) {
+                    writer.writeBytes(rawItems.get());
+                } else {
+                    writer.writeString(items.serializedItems);
+                }
+            }
+            case POTION_EFFECTS -> {
+                if (data.potionEffectData == null) {
+                    return false;
+                }
+                writer.writeString(data.potionEffectData.serializedPotionEffects);
+            }
+            case ADVANCEMENTS -> {
+                if (data.advancementData == null) {
+                    return false;
+                }
+                writeAdvancements(data.advancementData, writer);
+            }
+            case STATISTICS -> {
+                final StatisticsData statistics = data.statisticData;
+                if (statistics == null) {
+                    return false;
+                }
+                writer.writeStatisticMap(statistics.untypedStatistics);
+                writer.writeNestedStatisticMap(statistics.blockStatistics);
+                writer.writeNestedStatisticMap(statistics.itemStatistics);
+                writer.writeNestedStatisticMap(statistics.entityStatistics);
+            }
+            case LOCATION -> {
+                final LocationData location = data.locationData;
+                if (location == null) {
+                    return false;
+                }
+                writer.writeString(location.worldName);
+                writer.writeLong(location.worldUuid.getMostSignificantBits());
+                writer.writeLong(location.worldUuid.getLeastSignificantBits());
+                writer.writeString(location.worldEnvironment);
+                writer.writeDouble(location.x);
+                writer.writeDouble(location.y);
+                writer.writeDouble(location.z);
+                writer.writeFloat(location.yaw);
+                writer.writeFloat(location.pitch);
+            }
+            case PERSISTENT_DATA_CONTAINER -> {
+                if (data.persistentDataContainerData == null) {
+                    return false;
+                }
+                // Tag values are untyped, so they keep their JSON encoding
+                writer.writeString(GSON.toJson(data.persistentDataContainerData, PersistentDataContainerData.class));
+            }
+        }
+        return true;
+    }
+
+    // Get the compact binary items of an item section, if it is in that format
+    private static Optional<byte[]> getRawItems(@NotNull UserDataSection section, @NotNull UserData data) {
+        final ItemData items = switch (section) {
+            case INVENTORY -> data.inventoryData;
+            case ENDER_CHEST -> data.enderChestData;
+            default -> null;
+        };
+        return items == null ? Optional.empty() : items.getCompactItems();
+    }
+
+    private static void readSection(@NotNull UserDataSection section, @NotNull UserData data,
+                                    @NotNull BinaryReader reader, final int flags) throws IOException {
+        switch (section) {
+            case STATUS -> data.statusData = new StatusData(reader.readDouble(), reader.readDouble(),
+                    reader.readDouble(), reader.readSignedVarInt(), reader.readFloat(), reader.readFloat(),
+                    reader.readSignedVarInt(), reader.readSignedVarInt(), reader.readSignedVarInt(),
+                    reader.readFloat(), reader.readString(), reader.readByte() != 0);
+            case INVENTORY -> data.inventoryData = readItems(reader, flags);
+            case ENDER_CHEST -> data.enderChestData = readItems(reader, flags);
+            case POTION_EFFECTS -> data.potionEffectData = new PotionEffectData(reader.readString());
+            case ADVANCEMENTS -> data.advancementData = readAdvancements(reader, flags);
+            case STATISTICS -> data.statisticData = new StatisticsData(reader.readStatisticMap(),
+                    reader.readNestedStatisticMap(), reader.readNestedStatisticMap(), reader.readNestedStatisticMap());
+            case LOCATION -> data.locationData = new LocationData(reader.readString(),
+                    new UUID(reader.readLong(), reader.readLong()), reader.readString(),
+                    reader.readDouble(), reader.readDouble(), reader.readDouble(),
+                    reader.readFloat(), reader.readFloat());
+            case PERSISTENT_DATA_CONTAINER -> data.persistentDataContainerData = GSON.fromJson(reader.readString(),
+                    PersistentDataContainerData.class);
+        }
+    }
+
+    /**
+     * Write advancements, splitting each key into a prefix and name. Prefixes and criterion names are written as
+     * references: IDs below the dictionary size refer to the {@link AdvancementKeyDictionary}, and the rest to a string
+     * table written at the start of the section. Completion times are delta-encoded, as criteria are often completed
+     * at around the same time.
+     * <pre>
+     * dictionary version varint
+     * string table       count (varint), then each string
+     * advancements       count (varint), then per advancement: key prefix reference (varint), key name (string),
+     *                    criteria count (varint), then per criterion: name reference (varint), time delta (varlong)
+     * </pre>
+     */
+    private static void writeAdvancements(@NotNull List<AdvancementData> advancements, @NotNull BinaryWriter writer) {
+        final int dictionarySize = AdvancementKeyDictionary.getCurrentSize();
+        final Map<String, Integer> stringTable = new LinkedHashMap<>();
+        for (AdvancementData advancement : advancements) {
+            getStringReference(getKeyPrefix(advancement.key), stringTable, dictionarySize);
+            for (String criterion : advancement.completedCriteria.keySet()) {
+                getStringReference(criterion, stringTable, dictionarySize);
+            }
+        }
+
+        writer.writeVarInt(AdvancementKeyDictionary.CURRENT_VERSION);
+        writer.writeVarInt(stringTable.size());
+        for (String value : stringTable.keySet()) {
+            writer.writeString(value);
+        }
+        writer.writeVarInt(advancements.size());
+        long lastTime = 0;
+        for (AdvancementData advancement : advancements) {
+            final String prefix = getKeyPrefix(advancement.key);
+            writer.writeVarInt(getStringReference(prefix, stringTable, dictionarySize));
+            writer.writeString(advancement.key.substring(prefix.length()));
+            writer.writeVarInt(advancement.completedCriteria.size());
+            for (Map.Entry<String, Date> criterion : advancement.completedCriteria.entrySet()) {
+                final long time = criterion.getValue().getTime();
+                writer.writeVarInt(getStringReference(criterion.getKey(), stringTable, dictionarySize));
+                writer.writeVarLong(time - lastTime);
+                lastTime = time;
+            }
+        }
+    }
+
+    @NotNull
+    private static List<AdvancementData> readAdvancements(@NotNull BinaryReader reader, final int flags) throws IOException {
+        if ((flags & FLAG_INTERNED_KEYS) == 0) {
+            final int advancementCount = reader.readVarInt();
+            final List<AdvancementData> advancements = new ArrayList<>(advancementCount);
+            for (int i = 0; i < advancementCount; i++) {
+                final String key = reader.readString();
+                final int criteriaCount = reader.readVarInt();
+                final PackedCriteriaMap criteria = new PackedCriteriaMap(criteriaCount);
+                for (int j = 0; j < criteriaCount; j++) {
+                    criteria.putTime(reader.readString(), reader.readVarLong());
+                }
+                advancements.add(new AdvancementData(key, criteria));
+            }
+            return advancements;
+        }
+
+        // Resolve references against the dictionary version the data was written with, followed by the string table
+        final int dictionarySize = AdvancementKeyDictionary.getSize(reader.readVarInt());
+        final String[] strings = new String[dictionarySize + reader.readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = i < dictionarySize ? AdvancementKeyDictionary.getEntry(i) : reader.readString();
+        }
+        final int advancementCount = reader.readVarInt();
+        final List<AdvancementData> advancements = new ArrayList<>(advancementCount);
+        long lastTime = 0;
+        for (int i = 0; i < advancementCount; i++) {
+            final String key = strings[reader.readVarInt()] + reader.readString();
+            final int criteriaCount = reader.readVarInt();
+            final PackedCriteriaMap criteria = new PackedCriteriaMap(criteriaCount);
+            for (int j = 0; j < criteriaCount; j++) {
+                final String criterion = strings[reader.readVarInt()];
+                lastTime += reader.readVarLong();
+                criteria.putTime(criterion, lastTime);
+            }
+            advancements.add(new AdvancementData(key, criteria));
+        }
+        return advancements;
+    }
+
+    // Get the prefix of an advancement key, up to and including its last path separator or namespace separator
+    @NotNull
+    private static String getKeyPrefix(@NotNull String key) {
+        final int separator = key.lastIndexOf('/');
+        return key.substring(0, separator >= 0 ? separator + 1 : key.indexOf(':') + 1);
+    }
+
+    // Get the reference to a string, adding it to the string table if it is not in the dictionary
+    private static int getStringReference(@NotNull String value, @NotNull Map<String, Integer> stringTable,
+                                          final int dictionarySize) {
+        final int dictionaryId = AdvancementKeyDictionary.getId(value);
+        if (dictionaryId >= 0) {
+            return dictionaryId;
+        }
+        return stringTable.computeIfAbsent(value, key -> dictionarySize + stringTable.size());
+    }
+
+    @NotNull
+    private static ItemData readItems(@NotNull BinaryReader reader, final int flags) throws IOException {
+        if ((flags & FLAG_RAW_ITEMS) != 0) {
+            return ItemData.fromCompactItems(Arrays.copyOfRange(reader.data, reader.position, reader.limit));
+        }
+        return new ItemData(reader.readString());
+    }
+
+    /**
+     * Writes primitives in the binary format
+     */
+    private static class BinaryWriter {
+
+        private final SerializationBuffer buffer;
+
+        private BinaryWriter(@NotNull SerializationBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void write(final int value) {
+            buffer.write(value);
+        }
+
+        private void writeBytes(final byte[] bytes) {
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarInt(final int value) {
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                write((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            write(remaining);
+        }
+
+        private void writeSignedVarInt(final int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarLong(final long value) {
+            long remaining = (value << 1) ^ (value >> 63);
+            while ((remaining & ~0x7FL) != 0) {
+                write((int) (remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            write((int) remaining);
+        }
+
+        private void writeLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        private void writeDouble(final double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        private void writeFloat(final float value) {
+            final int bits = Float.floatToIntBits(value);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write(bits >>> shift);
+            }
+        }
+
+        // Strings are prefixed with their length plus one, so that zero can represent null
+        private void writeString(@Nullable String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            writeBytes(bytes);
+        }
+
+        private void writeStatisticMap(@Nullable Map<String, Integer> statistics) {
+            if (statistics == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(statistics.size());
+            for (Map.Entry<String, Integer> statistic : statistics.entrySet()) {
+                writeString(statistic.getKey());
+                writeSignedVarInt(statistic.getValue());
+            }
+        }
+
+        private void writeNestedStatisticMap(@Nullable Map<String, Map<String, Integer>> statistics) {
+            if (statistics == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(statistics.size());
+            for (Map.Entry<String, Map<String, Integer>> statistic : statistics.entrySet()) {
+                writeString(statistic.getKey());
+                writeStatisticMap(statistic.getValue());
+            }
+        }
+
+    }
+
+    /**
+     * Reads primitives in the binary format from a region of a byte array
+     */
+    private static class BinaryReader {
+
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        private BinaryReader(final byte[] data, final int position, final int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        private int readByte() throws IOException {
+            if (position >= limit) {
+                throw new IOException("Unexpected end of binary data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final int read = readByte();
+                value |= (read & 0x7F) << shift;
+                if ((read & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in binary data");
+        }
+
+        private int readSignedVarInt() throws IOException {
+            final int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                final int read = readByte();
+                value |= (long) (read & 0x7F) << shift;
+                if ((read & 0x80) == 0) {
+                    return (value >>> 1) ^ -(value & 1);
+                }
+            }
+            throw new IOException("Malformed varlong in binary data");
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        private double readDouble() throws IOException {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        private float readFloat() throws IOException {
+            int bits = 0;
+            for (int i = 0; i < 4; i++) {
+                bits = (bits << 8) | readByte();
+            }
+            return Float.intBitsToFloat(bits);
+        }
+
+        @Nullable
+        private String readString() throws IOException {
+            final int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > limit - position) {
+                throw new IOException("Unexpected end of binary data");
+            }
+            final String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        // Read a count of elements, checking it against the bytes left, as every element takes at least one byte
+        private int readCount() throws IOException {
+            final int count = readVarInt();
+            if (count < 0 || count > limit - position) {
+                throw new IOException("Invalid element count in binary data: " + count);
+            }
+            return count;
+        }
+
+        @NotNull
+        private Map<String, Integer> readStatisticMap() throws IOException {
+            final int size = readCount();
+            final PackedStatisticMap statistics = new PackedStatisticMap(size);
+            for (int i = 0; i < size; i++) {
+                // Statistic maps are written from maps, so their keys are distinct
+                final String key = readString();
+                if (key == null) {
+                    throw new IOException("Missing statistic key in binary data");
+                }
+                statistics.append(key, readSignedVarInt());
+            }
+            return statistics;
+        }
+
+        @NotNull
+        private Map<String, Map<String, Integer>> readNestedStatisticMap() throws IOException {
+            final int size = readCount();
+            final Map<String, Map<String, Integer>> statistics = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                statistics.put(readString(), readStatisticMap());
+            }
+            return statistics;
+        }
+
+    }
+
+}
@@ -1,16 +1,62 @@
 package net.william278.husksync.data;
 
+import net.william278.husksync.data.compression.CompressionCodec;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
+import net.william278.husksync.data.compression.CompressionPolicy;
 import org.jetbrains.annotations.NotNull;
-import org.xerial.snappy.Snappy;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class CompressedDataAdapter extends JsonDataAdapter {
 
+    /**
+     * The policy choosing how to compress data, or {@code null} to always compress with the configured codec
+     */
+    @Nullable
+    private final CompressionPolicy compressionPolicy;
+
+    public CompressedDataAdapter() {
+        super();
+        this.compressionPolicy = null;
+    }
+
+    public CompressedDataAdapter(@NotNull CompressionCodecRegistry compressionCodecs) {
+        this(compressionCodecs, null);
+    }
+
+    public CompressedDataAdapter(@NotNull CompressionCodecRegistry compressionCodecs,
+                                 @Nullable CompressionPolicy compressionPolicy) {
+        super(compressionCodecs);
+        this.compressionPolicy = compressionPolicy;
+    }
+
     @Override
     public byte[] toBytes(@NotNull UserData data) throws DataAdaptionException {
-        try {
-            return Snappy.compress(super.toBytes(data));
+        return toBytes(data, CompressionPolicy.Destination.DATABASE);
+    }
+
+    @Override
+    public byte[] toBytes(@NotNull UserData data, @NotNull CompressionPolicy.Destination destination) throws DataAdaptionException {
+        // The JSON is compressed straight out of the pooled buffer it is written to
+        try (SerializationBuffer json = SerializationBuffer.acquire()) {
+            writeJson(data, json);
+            if (compressionPolicy == null) {
+                return compressionCodecs.compress(json.getBuffer(), 0, json.size(),
+                        compressionCodecs.getConfiguredType());
+            }
+
+            // Uncompressed JSON is read back as-is, as it can never be mistaken for compressed data
+            final long startTime = System.nanoTime();
+            final Optional<CompressionCodec.Type> type = compressionPolicy.selectCodec(json.size(), destination,
+                    compressionCodecs.getActiveCodec().getType());
+            final byte[] compressed = type.isPresent()
+                    ? compressionCodecs.compress(json.getBuffer(), 0, json.size(), type.get())
+                    : json.toByteArray();
+            compressionPolicy.recordResult(type.orElse(null), destination, json.size(), compressed.length,
+                    System.nanoTime() - startTime);
+            return compressed;
         } catch (IOException e) {
             throw new DataAdaptionException("Failed to compress data", e);
         }
@@ -18,8 +64,24 @@ public class CompressedDataAdapter extends JsonDataAdapter {
 
     @Override
     public @NotNull UserData fromBytes(byte[] data) throws DataAdaptionException {
+        // Data written by another adapter is not compressed as a whole
+        if (BinaryDataAdapter.isBinaryFormat(data) || (data.length > 0 && data[0] == '{')) {
+            return super.fromBytes(data);
+        }
+        try {
+            return super.fromBytes(compressionCodecs.decompress(data));
+        } catch (IOException e) {
+            throw new DataAdaptionException("Failed to decompress data", e);
+        }
+    }
+
+    @Override
+    public byte[] toJsonBytes(byte[] data) throws DataAdaptionException {
+        if (BinaryDataAdapter.isBinaryFormat(data) || (data.length > 0 && data[0] == '{')) {
+            return super.toJsonBytes(data);
+        }
         try {
-            return super.fromBytes(Snappy.uncompress(data));
+            return super.toJsonBytes(compressionCodecs.decompress(data));
         } catch (IOException e) {
             throw new DataAdaptionException("Failed to decompress data", e);
         }
@@ -1,7 +1,11 @@
 package net.william278.husksync.data;
 
+import net.william278.husksync.data.compression.CompressionPolicy;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
 /**
  * An adapter that adapts {@link UserData} to and from a portable byte array.
  */
@@ -16,6 +20,19 @@ public interface DataAdapter {
      */
     byte[] toBytes(@NotNull UserData data) throws DataAdaptionException;
 
+    /**
+     * Converts {@link UserData} to a byte array, to be sent to the given destination. Adapters that compress data may
+     * choose how to compress it based on the destination.
+     *
+     * @param data        The {@link UserData} to adapt
+     * @param destination Where the byte array is being sent
+     * @return The byte array.
+     * @throws DataAdaptionException If an error occurred during adaptation.
+     */
+    default byte[] toBytes(@NotNull UserData data, @NotNull CompressionPolicy.Destination destination) throws DataAdaptionException {
+        return toBytes(data);
+    }
+
     /**
      * Serializes {@link UserData} to a JSON string.
      *
@@ -27,6 +44,18 @@ public interface DataAdapter {
     @NotNull
     String toJson(@NotNull UserData data, boolean pretty) throws DataAdaptionException;
 
+    /**
+     * Converts a byte array to JSON, without deserializing it to {@link UserData} where the format allows it, such as
+     * to sample data to train a compression dictionary with.
+     *
+     * @param data The byte array to convert.
+     * @return The data as UTF-8 encoded JSON.
+     * @throws DataAdaptionException If an error occurred during adaptation, such as if the byte array is invalid.
+     */
+    default byte[] toJsonBytes(final byte[] data) throws DataAdaptionException {
+        return toJson(fromBytes(data), false).getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * Converts a byte array to {@link UserData}.
      *
@@ -37,4 +66,18 @@ public interface DataAdapter {
     @NotNull
     UserData fromBytes(final byte[] data) throws DataAdaptionException;
 
+    /**
+     * Converts a byte array to {@link UserData}, decoding only the requested sections where the format allows it.
+     * Sections that were not requested may be {@code null} in the returned data.
+     *
+     * @param data     The byte array to adapt.
+     * @param sections The {@link UserDataSection}s to decode.
+     * @return The {@link UserData}.
+     * @throws DataAdaptionException If an error occurred during adaptation, such as if the byte array is invalid.
+     */
+    @NotNull
+    default UserData decodeSections(final byte[] data, @NotNull Set<UserDataSection> sections) throws DataAdaptionException {
+        return fromBytes(data);
+    }
+
 }
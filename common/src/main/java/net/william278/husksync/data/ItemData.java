@@ -3,11 +3,19 @@ package net.william278.husksync.data;
 import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Base64;
+import java.util.Optional;
+
 /**
  * Stores information about the contents of a player's inventory or Ender Chest.
  */
 public class ItemData {
 
+    /**
+     * Prefix of items serialized in the platform's compact binary format. This can never begin a legacy Base-64 string
+     */
+    private static final char COMPACT_PREFIX = '#';
+
     /**
      * A Base-64 string of platform-serialized items
      */
@@ -18,6 +26,29 @@ public class ItemData {
         this.serializedItems = serializedItems;
     }
 
+    /**
+     * Create {@link ItemData} from items serialized in the platform's compact binary format
+     *
+     * @param compactItems the serialized items
+     * @return the {@link ItemData}
+     */
+    @NotNull
+    public static ItemData fromCompactItems(final byte[] compactItems) {
+        return new ItemData(COMPACT_PREFIX + Base64.getEncoder().encodeToString(compactItems));
+    }
+
+    /**
+     * Get the items serialized in the platform's compact binary format
+     *
+     * @return the serialized items, or an empty optional if the items are in the legacy format
+     */
+    public Optional<byte[]> getCompactItems() {
+        if (serializedItems == null || serializedItems.isEmpty() || serializedItems.charAt(0) != COMPACT_PREFIX) {
+            return Optional.empty();
+        }
+        return Optional.of(Base64.getDecoder().decode(serializedItems.substring(1)));
+    }
+
     @SuppressWarnings("unused")
     protected ItemData() {
     }
@@ -1,29 +1,97 @@
 package net.william278.husksync.data;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
+import net.william278.husksync.data.compression.CompressionCodecRegistry;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class JsonDataAdapter implements DataAdapter {
 
+    /**
+     * Shared, thread-safe {@link Gson} instances, using the {@link UserDataTypeAdapterFactory}
+     */
+    protected static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new UserDataTypeAdapterFactory())
+            .create();
+    private static final Gson PRETTY_GSON = GSON.newBuilder().setPrettyPrinting().create();
+
+    /**
+     * Codecs used to compress data, and to decompress data in any format this adapter can read
+     */
+    protected final CompressionCodecRegistry compressionCodecs;
+
+    public JsonDataAdapter() {
+        this(new CompressionCodecRegistry());
+    }
+
+    public JsonDataAdapter(@NotNull CompressionCodecRegistry compressionCodecs) {
+        this.compressionCodecs = compressionCodecs;
+    }
+
     @Override
     public byte[] toBytes(@NotNull UserData data) throws DataAdaptionException {
-        return toJson(data, false).getBytes(StandardCharsets.UTF_8);
+        try (SerializationBuffer buffer = SerializationBuffer.acquire()) {
+            writeJson(data, buffer);
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Write {@link UserData} as UTF-8 encoded JSON into a buffer
+     *
+     * @param data   the data to write
+     * @param buffer the buffer to write to
+     * @throws DataAdaptionException if the data could not be written
+     */
+    protected void writeJson(@NotNull UserData data, @NotNull SerializationBuffer buffer) throws DataAdaptionException {
+        // The writer is flushed rather than closed, as closing it would release the buffer
+        try {
+            final Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+            GSON.toJson(data, UserData.class, writer);
+            writer.flush();
+        } catch (IOException | JsonParseException e) {
+            throw new DataAdaptionException("Failed to write JSON data", e);
+        }
     }
 
     @Override
     public @NotNull String toJson(@NotNull UserData data, boolean pretty) throws DataAdaptionException {
-        return (pretty ? new GsonBuilder().setPrettyPrinting() : new GsonBuilder()).create().toJson(data);
+        return (pretty ? PRETTY_GSON : GSON).toJson(data, UserData.class);
     }
 
     @Override
     public @NotNull UserData fromBytes(byte[] data) throws DataAdaptionException {
-        try {
-            return new GsonBuilder().create().fromJson(new String(data, StandardCharsets.UTF_8), UserData.class);
-        } catch (JsonSyntaxException e) {
+        if (BinaryDataAdapter.isBinaryFormat(data)) {
+            return BinaryDataAdapter.readBinary(data, EnumSet.allOf(UserDataSection.class), compressionCodecs);
+        }
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, UserData.class);
+        } catch (IOException | JsonParseException e) {
             throw new DataAdaptionException("Failed to parse JSON data", e);
         }
     }
+
+    @Override
+    public byte[] toJsonBytes(byte[] data) throws DataAdaptionException {
+        // JSON data is already JSON; only the binary format must be decoded
+        if (BinaryDataAdapter.isBinaryFormat(data)) {
+            return DataAdapter.super.toJsonBytes(data);
+        }
+        return data;
+    }
+
+    @Override
+    public @NotNull UserData decodeSections(byte[] data, @NotNull Set<UserDataSection> sections) throws DataAdaptionException {
+        // Only the binary format can be decoded partially; JSON must be parsed in full
+        if (BinaryDataAdapter.isBinaryFormat(data)) {
+            return BinaryDataAdapter.readBinary(data, sections, compressionCodecs);
+        }
+        return fromBytes(data);
+    }
 }
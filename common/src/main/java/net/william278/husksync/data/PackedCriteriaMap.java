@@ -0,0 +1,191 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A map of advancement criteria to when they were completed, stored as an array of criterion names and a primitive
+ * array of epoch millisecond timestamps.
+ * <p>
+ * Criterion names read from the binary format are shared between every advancement that uses them, and a
+ * {@link Date} is only created when a value is requested through the {@link Map} API. Entries keep their insertion
+ * order, and lookups scan the name array, which is fast for the few criteria an advancement has.
+ */
+public class PackedCriteriaMap extends AbstractMap<String, Date> {
+
+    private String[] criteria;
+    private long[] times;
+    private int size;
+
+    public PackedCriteriaMap() {
+        this(2);
+    }
+
+    /**
+     * Create a packed criteria map
+     *
+     * @param expectedSize the number of criteria the map is expected to hold
+     */
+    public PackedCriteriaMap(final int expectedSize) {
+        this.criteria = new String[Math.max(1, expectedSize)];
+        this.times = new long[criteria.length];
+    }
+
+    /**
+     * Get when a criterion was completed, without creating a {@link Date}
+     *
+     * @param criterion    the criterion name
+     * @param defaultValue the value to return if the criterion is not in the map
+     * @return the epoch millisecond time the criterion was completed, or {@code defaultValue} if it is not in the map
+     */
+    public long getTime(@NotNull String criterion, final long defaultValue) {
+        final int index = indexOf(criterion);
+        return index < 0 ? defaultValue : times[index];
+    }
+
+    /**
+     * Set when a criterion was completed, without creating a {@link Date}
+     *
+     * @param criterion the criterion name
+     * @param time      the epoch millisecond time the criterion was completed
+     */
+    public void putTime(@NotNull String criterion, final long time) {
+        final int index = indexOf(criterion);
+        if (index >= 0) {
+            times[index] = time;
+            return;
+        }
+        if (size == criteria.length) {
+            criteria = Arrays.copyOf(criteria, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        criteria[size] = criterion;
+        times[size++] = time;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return key instanceof String criterion && indexOf(criterion) >= 0;
+    }
+
+    @Override
+    @Nullable
+    public Date get(@Nullable Object key) {
+        if (!(key instanceof String criterion)) {
+            return null;
+        }
+        final int index = indexOf(criterion);
+        return index < 0 ? null : new Date(times[index]);
+    }
+
+    @Override
+    @Nullable
+    public Date put(@NotNull String criterion, @Nullable Date time) {
+        final Date previous = get(criterion);
+        if (time == null) {
+            remove(criterion);
+        } else {
+            putTime(criterion, time.getTime());
+        }
+        return previous;
+    }
+
+    @Override
+    @Nullable
+    public Date remove(@Nullable Object key) {
+        if (!(key instanceof String criterion)) {
+            return null;
+        }
+        final int index = indexOf(criterion);
+        if (index < 0) {
+            return null;
+        }
+        final Date previous = new Date(times[index]);
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(criteria, 0, size, null);
+        size = 0;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, Date>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<String, Date>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    private int indexOf(@NotNull String criterion) {
+        for (int i = 0; i < size; i++) {
+            if (criteria[i].equals(criterion)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(final int index) {
+        System.arraycopy(criteria, index + 1, criteria, index, size - index - 1);
+        System.arraycopy(times, index + 1, times, index, size - index - 1);
+        criteria[--size] = null;
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Date>> {
+
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Date> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            final int index = last;
+            return new SimpleEntry<>(criteria[index], new Date(times[index])) {
+                @Override
+                public Date setValue(@NotNull Date value) {
+                    times[index] = value.getTime();
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,290 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A map of statistic keys to values, stored as two primitive int arrays rather than as boxed entries in a hash table.
+ * <p>
+ * Keys are held as their {@link StatisticKeyIndex} IDs and values as unboxed ints, so a map of a thousand statistics
+ * takes two small arrays instead of a thousand hash entries, strings and {@link Integer}s. Only non-zero statistics
+ * are normally stored, so the map is sparse; entries keep their insertion order, and map entries are only created when
+ * the map is iterated through the {@link Map} API. Lookups scan the key array, which is fast for the sizes statistics
+ * maps reach. {@code null} values are not stored.
+ * <p>
+ * Keys not {@link StatisticKeyIndex#register(String) registered} with the index, such as statistics from another
+ * server version, are stored by name in a separate map, and are iterated after the packed keys.
+ */
+public class PackedStatisticMap extends AbstractMap<String, Integer> {
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    @Nullable
+    private Map<String, Integer> unindexed;
+
+    public PackedStatisticMap() {
+        this(8);
+    }
+
+    /**
+     * Create a packed statistic map
+     *
+     * @param expectedSize the number of statistics the map is expected to hold
+     */
+    public PackedStatisticMap(final int expectedSize) {
+        this.keys = new int[Math.max(1, expectedSize)];
+        this.values = new int[keys.length];
+    }
+
+    /**
+     * Create a copy of a packed statistic map
+     *
+     * @param map the map to copy
+     */
+    public PackedStatisticMap(@NotNull PackedStatisticMap map) {
+        this.keys = Arrays.copyOf(map.keys, Math.max(1, map.size));
+        this.values = Arrays.copyOf(map.values, keys.length);
+        this.size = map.size;
+        this.unindexed = map.unindexed == null ? null : new LinkedHashMap<>(map.unindexed);
+    }
+
+    /**
+     * Get the value of a statistic without boxing it
+     *
+     * @param key          the statistic key
+     * @param defaultValue the value to return if the statistic is not in the map
+     * @return the value of the statistic, or {@code defaultValue} if it is not in the map
+     */
+    public int getInt(@NotNull String key, final int defaultValue) {
+        final int id = StatisticKeyIndex.findId(key);
+        if (id < 0) {
+            return unindexed == null ? defaultValue : unindexed.getOrDefault(key, defaultValue);
+        }
+        final int index = indexOf(id);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    /**
+     * Set the value of a statistic without boxing it
+     *
+     * @param key   the statistic key
+     * @param value the value of the statistic
+     */
+    public void putInt(@NotNull String key, final int value) {
+        final int id = StatisticKeyIndex.findId(key);
+        if (id < 0) {
+            putUnindexed(key, value);
+            return;
+        }
+        final int index = indexOf(id);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        append(id, value);
+    }
+
+    /**
+     * Append a statistic without boxing its value or scanning the map for its key.
+     * <p>
+     * The caller must ensure the statistic is not already in the map, such as when reading a map of distinct keys.
+     *
+     * @param key   the statistic key
+     * @param value the value of the statistic
+     */
+    public void append(@NotNull String key, final int value) {
+        final int id = StatisticKeyIndex.findId(key);
+        if (id < 0) {
+            putUnindexed(key, value);
+            return;
+        }
+        append(id, value);
+    }
+
+    /**
+     * Append a statistic by its {@link StatisticKeyIndex} ID, without boxing its value or looking up its key.
+     * <p>
+     * The caller must ensure the statistic is not already in the map, such as when filling a new map from a list of
+     * distinct statistics.
+     *
+     * @param id    the {@link StatisticKeyIndex} ID of the statistic key
+     * @param value the value of the statistic
+     */
+    public void append(final int id, final int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = id;
+        values[size++] = value;
+    }
+
+    @Override
+    public int size() {
+        return size + (unindexed == null ? 0 : unindexed.size());
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @Nullable
+    public Integer get(@Nullable Object key) {
+        if (!(key instanceof String string)) {
+            return null;
+        }
+        final int id = StatisticKeyIndex.findId(string);
+        if (id < 0) {
+            return unindexed == null ? null : unindexed.get(string);
+        }
+        final int index = indexOf(id);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    @Nullable
+    public Integer put(@NotNull String key, @Nullable Integer value) {
+        final Integer previous = get(key);
+        if (value == null) {
+            remove(key);
+        } else {
+            putInt(key, value);
+        }
+        return previous;
+    }
+
+    @Override
+    @Nullable
+    public Integer remove(@Nullable Object key) {
+        if (!(key instanceof String string)) {
+            return null;
+        }
+        final int id = StatisticKeyIndex.findId(string);
+        if (id < 0) {
+            return unindexed == null ? null : unindexed.remove(string);
+        }
+        final int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        final int previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        unindexed = null;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return PackedStatisticMap.this.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<String, Integer>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    private void putUnindexed(@NotNull String key, final int value) {
+        if (unindexed == null) {
+            unindexed = new LinkedHashMap<>();
+        }
+        unindexed.put(key, value);
+    }
+
+    private int indexOf(final int id) {
+        if (id < 0) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(final int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Integer>> {
+
+        private int next;
+        private int last = -1;
+        private boolean lastUnindexed;
+        @Nullable
+        private Iterator<Entry<String, Integer>> unindexedIterator;
+
+        @Override
+        public boolean hasNext() {
+            return next < size || (unindexed != null && getUnindexedIterator().hasNext());
+        }
+
+        @Override
+        public Entry<String, Integer> next() {
+            if (next >= size) {
+                if (unindexed == null) {
+                    throw new NoSuchElementException();
+                }
+                final Entry<String, Integer> entry = getUnindexedIterator().next();
+                last = -1;
+                lastUnindexed = true;
+                return entry;
+            }
+            lastUnindexed = false;
+            last = next++;
+            final int index = last;
+            return new SimpleEntry<>(StatisticKeyIndex.getName(keys[index]), values[index]) {
+                @Override
+                public Integer setValue(@NotNull Integer value) {
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (lastUnindexed) {
+                getUnindexedIterator().remove();
+                lastUnindexed = false;
+                return;
+            }
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+
+        // Unindexed entries are iterated once the packed entries are exhausted
+        @NotNull
+        private Iterator<Entry<String, Integer>> getUnindexedIterator() {
+            if (unindexedIterator == null) {
+                unindexedIterator = Objects.requireNonNull(unindexed).entrySet().iterator();
+            }
+            return unindexedIterator;
+        }
+
+    }
+
+}
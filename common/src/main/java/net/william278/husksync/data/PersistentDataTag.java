@@ -24,6 +24,12 @@ public class PersistentDataTag<T> {
         this.value = value;
     }
 
+    // Constructor for tags whose type may not be known, used by the UserDataTypeAdapterFactory
+    PersistentDataTag(String type, T value) {
+        this.type = type;
+        this.value = value;
+    }
+
     private PersistentDataTag() {
     }
 
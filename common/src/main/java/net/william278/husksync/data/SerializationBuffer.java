@@ -0,0 +1,104 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A reusable, growable byte buffer for serializing data, pooled per thread to avoid allocating fresh buffers for every
+ * save.
+ * <p>
+ * Buffers are {@link #acquire() acquired} in a try-with-resources block and returned to the pool when closed. Each
+ * thread pools a few buffers, so that nested stages, such as serializing then compressing, can each hold one; beyond
+ * that, unpooled buffers are handed out. Buffers that grow past {@link #MAX_RETAINED_CAPACITY} are shrunk when
+ * released, so that one very large save does not pin its memory.
+ */
+public class SerializationBuffer extends ByteArrayOutputStream implements AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final int POOLED_BUFFERS_PER_THREAD = 3;
+    private static final ThreadLocal<SerializationBuffer[]> POOL = ThreadLocal.withInitial(() -> {
+        final SerializationBuffer[] buffers = new SerializationBuffer[POOLED_BUFFERS_PER_THREAD];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new SerializationBuffer(true);
+        }
+        return buffers;
+    });
+
+    private final boolean pooled;
+    private boolean inUse;
+
+    private SerializationBuffer(final boolean pooled) {
+        super(INITIAL_CAPACITY);
+        this.pooled = pooled;
+    }
+
+    /**
+     * Acquire an empty buffer from this thread's pool
+     *
+     * @return the buffer, which must be {@link #close() closed} once its contents are no longer needed
+     */
+    @NotNull
+    public static SerializationBuffer acquire() {
+        for (SerializationBuffer buffer : POOL.get()) {
+            if (!buffer.inUse) {
+                buffer.inUse = true;
+                buffer.reset();
+                return buffer;
+            }
+        }
+        return new SerializationBuffer(false);
+    }
+
+    /**
+     * Get the backing array of this buffer, of which only the first {@link #size()} bytes are written. The array is
+     * reused once the buffer is released, and may be replaced as the buffer grows.
+     *
+     * @return the backing array
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Ensure the buffer can hold a number of further bytes without growing, so that they can be written directly into
+     * the {@link #getBuffer() backing array}
+     *
+     * @param length the number of bytes to reserve
+     */
+    public void reserve(final int length) {
+        if (count + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+        }
+    }
+
+    /**
+     * Mark bytes written directly into the {@link #getBuffer() backing array} after those already written
+     *
+     * @param length the number of bytes written, which must have been {@link #reserve(int) reserved}
+     */
+    public void advance(final int length) {
+        if (length < 0 || count + length > buf.length) {
+            throw new IndexOutOfBoundsException("Cannot advance buffer by " + length + " bytes");
+        }
+        count += length;
+    }
+
+    /**
+     * Return this buffer to its thread's pool
+     */
+    @Override
+    public void close() {
+        if (!pooled) {
+            return;
+        }
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+        count = 0;
+        inUse = false;
+    }
+
+}
@@ -0,0 +1,85 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each statistic, material and entity type name a compact integer ID, so that {@link PackedStatisticMap}s can
+ * store their keys as primitive ints rather than strings.
+ * <p>
+ * IDs are allocated in the order names are registered and are never freed. Platforms should {@link #register(String...)
+ * register} their statistic, material and entity type names on startup, in ordinal order, so that the IDs follow the
+ * ordinals of those enums. Names read from data are never registered, so that the index only holds the platform's own
+ * names, however many unknown names are read; {@link PackedStatisticMap}s store those names as strings instead.
+ */
+public final class StatisticKeyIndex {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int size;
+
+    private StatisticKeyIndex() {
+    }
+
+    /**
+     * Register names with the index, allocating them consecutive IDs if they have not been registered before
+     *
+     * @param keys the names to register
+     */
+    public static void register(@NotNull String... keys) {
+        for (String key : keys) {
+            register(key);
+        }
+    }
+
+    /**
+     * Register a name with the index, allocating it a new ID if it has not been registered before
+     *
+     * @param key the statistic, material or entity type name
+     * @return the ID of the name
+     */
+    public static int register(@NotNull String key) {
+        final Integer id = IDS.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (IDS) {
+            final Integer existing = IDS.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = key;
+            IDS.put(key, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Find the ID of a name, without allocating one if it has not been registered
+     *
+     * @param key the statistic, material or entity type name
+     * @return the ID of the name, or {@code -1} if it has not been registered
+     */
+    public static int findId(@NotNull String key) {
+        final Integer id = IDS.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the name with an ID
+     *
+     * @param id the ID, as returned by {@link #register(String)}
+     * @return the name
+     */
+    @NotNull
+    public static String getName(final int id) {
+        return names[id];
+    }
+
+}
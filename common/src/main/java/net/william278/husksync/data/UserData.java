@@ -2,6 +2,7 @@ package net.william278.husksync.data;
 
 import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -77,10 +78,10 @@ public class UserData {
     @SerializedName("format_version")
     protected int formatVersion;
 
-    public UserData(@NotNull StatusData statusData, @NotNull ItemData inventoryData,
-                    @NotNull ItemData enderChestData, @NotNull PotionEffectData potionEffectData,
-                    @NotNull List<AdvancementData> advancementData, @NotNull StatisticsData statisticData,
-                    @NotNull LocationData locationData, @NotNull PersistentDataContainerData persistentDataContainerData,
+    public UserData(@NotNull StatusData statusData, @Nullable ItemData inventoryData,
+                    @Nullable ItemData enderChestData, @Nullable PotionEffectData potionEffectData,
+                    @Nullable List<AdvancementData> advancementData, @Nullable StatisticsData statisticData,
+                    @Nullable LocationData locationData, @Nullable PersistentDataContainerData persistentDataContainerData,
                     @NotNull String minecraftVersion) {
         this.statusData = statusData;
         this.inventoryData = inventoryData;
@@ -103,30 +104,72 @@ public class UserData {
         return statusData;
     }
 
+    /**
+     * Get the player's inventory, which is not captured if inventory synchronization is disabled
+     *
+     * @return the inventory, or {@code null} if it was not captured
+     */
+    @Nullable
     public ItemData getInventoryData() {
         return inventoryData;
     }
 
+    /**
+     * Get the player's ender chest, which is not captured if ender chest synchronization is disabled
+     *
+     * @return the ender chest, or {@code null} if it was not captured
+     */
+    @Nullable
     public ItemData getEnderChestData() {
         return enderChestData;
     }
 
+    /**
+     * Get the player's potion effects, which are not captured if potion effect synchronization is disabled
+     *
+     * @return the potion effects, or {@code null} if they were not captured
+     */
+    @Nullable
     public PotionEffectData getPotionEffectsData() {
         return potionEffectData;
     }
 
+    /**
+     * Get the player's advancements, which are not captured if advancement synchronization is disabled
+     *
+     * @return the advancements, or {@code null} if they were not captured
+     */
+    @Nullable
     public List<AdvancementData> getAdvancementData() {
         return advancementData;
     }
 
+    /**
+     * Get the player's statistics, which are not captured if statistic synchronization is disabled
+     *
+     * @return the statistics, or {@code null} if they were not captured
+     */
+    @Nullable
     public StatisticsData getStatisticsData() {
         return statisticData;
     }
 
+    /**
+     * Get the player's location, which is not captured if location synchronization is disabled
+     *
+     * @return the location, or {@code null} if it was not captured
+     */
+    @Nullable
     public LocationData getLocationData() {
         return locationData;
     }
 
+    /**
+     * Get the player's persistent data container, which is not captured if its synchronization is disabled
+     *
+     * @return the persistent data container, or {@code null} if it was not captured
+     */
+    @Nullable
     public PersistentDataContainerData getPersistentDataContainerData() {
         return persistentDataContainerData;
     }
@@ -0,0 +1,45 @@
+package net.william278.husksync.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Optional;
+
+/**
+ * Identifies a section of {@link UserData}, as stored in the {@link BinaryDataAdapter} section table
+ */
+public enum UserDataSection {
+
+    STATUS(0),
+    INVENTORY(1),
+    ENDER_CHEST(2),
+    POTION_EFFECTS(3),
+    ADVANCEMENTS(4),
+    STATISTICS(5),
+    LOCATION(6),
+    PERSISTENT_DATA_CONTAINER(7);
+
+    /**
+     * The identifier of this section in serialized data. This must never change once assigned.
+     */
+    public final int id;
+
+    UserDataSection(final int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get a {@link UserDataSection} by its serialized identifier
+     *
+     * @param id the section identifier
+     * @return the section, if the identifier is known
+     */
+    public static Optional<UserDataSection> getSectionById(final int id) {
+        for (UserDataSection section : values()) {
+            if (section.id == id) {
+                return Optional.of(section);
+            }
+        }
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,544 @@
+package net.william278.husksync.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A {@link TypeAdapterFactory} providing streaming {@link TypeAdapter}s for {@link UserData} and each of its sections,
+ * so that they are (de)serialized without reflection.
+ * <p>
+ * The adapters produce exactly the same JSON as Gson's reflective adapters would, so data written by either can be
+ * read by the other.
+ */
+public class UserDataTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(@NotNull Gson gson, @NotNull TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        if (rawType == UserData.class) {
+            return (TypeAdapter<T>) new UserDataAdapter(gson).nullSafe();
+        } else if (rawType == StatusData.class) {
+            return (TypeAdapter<T>) new StatusDataAdapter().nullSafe();
+        } else if (rawType == ItemData.class) {
+            return (TypeAdapter<T>) new ItemDataAdapter().nullSafe();
+        } else if (rawType == PotionEffectData.class) {
+            return (TypeAdapter<T>) new PotionEffectDataAdapter().nullSafe();
+        } else if (rawType == AdvancementData.class) {
+            return (TypeAdapter<T>) new AdvancementDataAdapter(gson.getAdapter(Date.class)).nullSafe();
+        } else if (rawType == StatisticsData.class) {
+            return (TypeAdapter<T>) new StatisticsDataAdapter().nullSafe();
+        } else if (rawType == LocationData.class) {
+            return (TypeAdapter<T>) new LocationDataAdapter().nullSafe();
+        } else if (rawType == PersistentDataContainerData.class) {
+            return (TypeAdapter<T>) new PersistentDataContainerDataAdapter(gson.getAdapter(Object.class)).nullSafe();
+        }
+        return null;
+    }
+
+    private static class UserDataAdapter extends TypeAdapter<UserData> {
+
+        private final TypeAdapter<StatusData> statusDataAdapter;
+        private final TypeAdapter<ItemData> itemDataAdapter;
+        private final TypeAdapter<PotionEffectData> potionEffectDataAdapter;
+        private final TypeAdapter<AdvancementData> advancementDataAdapter;
+        private final TypeAdapter<StatisticsData> statisticsDataAdapter;
+        private final TypeAdapter<LocationData> locationDataAdapter;
+        private final TypeAdapter<PersistentDataContainerData> persistentDataContainerDataAdapter;
+
+        private UserDataAdapter(@NotNull Gson gson) {
+            this.statusDataAdapter = gson.getAdapter(StatusData.class);
+            this.itemDataAdapter = gson.getAdapter(ItemData.class);
+            this.potionEffectDataAdapter = gson.getAdapter(PotionEffectData.class);
+            this.advancementDataAdapter = gson.getAdapter(AdvancementData.class);
+            this.statisticsDataAdapter = gson.getAdapter(StatisticsData.class);
+            this.locationDataAdapter = gson.getAdapter(LocationData.class);
+            this.persistentDataContainerDataAdapter = gson.getAdapter(PersistentDataContainerData.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, UserData data) throws IOException {
+            out.beginObject();
+            out.name("status");
+            statusDataAdapter.write(out, data.statusData);
+            out.name("inventory");
+            itemDataAdapter.write(out, data.inventoryData);
+            out.name("ender_chest");
+            itemDataAdapter.write(out, data.enderChestData);
+            out.name("potion_effects");
+            potionEffectDataAdapter.write(out, data.potionEffectData);
+            out.name("advancements");
+            if (data.advancementData == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (AdvancementData advancement : data.advancementData) {
+                    advancementDataAdapter.write(out, advancement);
+                }
+                out.endArray();
+            }
+            out.name("statistics");
+            statisticsDataAdapter.write(out, data.statisticData);
+            out.name("location");
+            locationDataAdapter.write(out, data.locationData);
+            out.name("persistent_data_container");
+            persistentDataContainerDataAdapter.write(out, data.persistentDataContainerData);
+            out.name("minecraft_version").value(data.minecraftVersion);
+            out.name("format_version").value(data.formatVersion);
+            out.endObject();
+        }
+
+        @Override
+        public UserData read(JsonReader in) throws IOException {
+            final UserData data = new UserData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "status" -> data.statusData = statusDataAdapter.read(in);
+                    case "inventory" -> data.inventoryData = itemDataAdapter.read(in);
+                    case "ender_chest" -> data.enderChestData = itemDataAdapter.read(in);
+                    case "potion_effects" -> data.potionEffectData = potionEffectDataAdapter.read(in);
+                    case "advancements" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            data.advancementData = null;
+                            continue;
+                        }
+                        final List<AdvancementData> advancements = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            advancements.add(advancementDataAdapter.read(in));
+                        }
+                        in.endArray();
+                        data.advancementData = advancements;
+                    }
+                    case "statistics" -> data.statisticData = statisticsDataAdapter.read(in);
+                    case "location" -> data.locationData = locationDataAdapter.read(in);
+                    case "persistent_data_container" ->
+                            data.persistentDataContainerData = persistentDataContainerDataAdapter.read(in);
+                    case "minecraft_version" -> data.minecraftVersion = readString(in);
+                    case "format_version" -> data.formatVersion = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return data;
+        }
+
+    }
+
+    private static class StatusDataAdapter extends TypeAdapter<StatusData> {
+
+        @Override
+        public void write(JsonWriter out, StatusData status) throws IOException {
+            out.beginObject();
+            out.name("health").value(status.health);
+            out.name("max_health").value(status.maxHealth);
+            out.name("health_scale").value(status.healthScale);
+            out.name("hunger").value(status.hunger);
+            out.name("saturation").value(Float.valueOf(status.saturation));
+            out.name("saturation_exhaustion").value(Float.valueOf(status.saturationExhaustion));
+            out.name("selected_item_slot").value(status.selectedItemSlot);
+            out.name("total_experience").value(status.totalExperience);
+            out.name("experience_level").value(status.expLevel);
+            out.name("experience_progress").value(Float.valueOf(status.expProgress));
+            out.name("game_mode").value(status.gameMode);
+            out.name("is_flying").value(status.isFlying);
+            out.endObject();
+        }
+
+        @Override
+        public StatusData read(JsonReader in) throws IOException {
+            final StatusData status = new StatusData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "health" -> status.health = in.nextDouble();
+                    case "max_health" -> status.maxHealth = in.nextDouble();
+                    case "health_scale" -> status.healthScale = in.nextDouble();
+                    case "hunger" -> status.hunger = in.nextInt();
+                    case "saturation" -> status.saturation = (float) in.nextDouble();
+                    case "saturation_exhaustion" -> status.saturationExhaustion = (float) in.nextDouble();
+                    case "selected_item_slot" -> status.selectedItemSlot = in.nextInt();
+                    case "total_experience" -> status.totalExperience = in.nextInt();
+                    case "experience_level" -> status.expLevel = in.nextInt();
+                    case "experience_progress" -> status.expProgress = (float) in.nextDouble();
+                    case "game_mode" -> status.gameMode = readString(in);
+                    case "is_flying" -> status.isFlying = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return status;
+        }
+
+    }
+
+    private static class ItemDataAdapter extends TypeAdapter<ItemData> {
+
+        @Override
+        public void write(JsonWriter out, ItemData items) throws IOException {
+            out.beginObject();
+            out.name("serialized_items").value(items.serializedItems);
+            out.endObject();
+        }
+
+        @Override
+        public ItemData read(JsonReader in) throws IOException {
+            final ItemData items = new ItemData();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("serialized_items")) {
+                    items.serializedItems = readString(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return items;
+        }
+
+    }
+
+    private static class PotionEffectDataAdapter extends TypeAdapter<PotionEffectData> {
+
+        @Override
+        public void write(JsonWriter out, PotionEffectData potionEffects) throws IOException {
+            out.beginObject();
+            out.name("serialized_potion_effects").value(potionEffects.serializedPotionEffects);
+            out.endObject();
+        }
+
+        @Override
+        public PotionEffectData read(JsonReader in) throws IOException {
+            final PotionEffectData potionEffects = new PotionEffectData();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("serialized_potion_effects")) {
+                    potionEffects.serializedPotionEffects = readString(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return potionEffects;
+        }
+
+    }
+
+    private static class AdvancementDataAdapter extends TypeAdapter<AdvancementData> {
+
+        // Dates keep Gson's default encoding, for compatibility with existing data, but epoch milliseconds are read too
+        private final TypeAdapter<Date> dateAdapter;
+
+        private AdvancementDataAdapter(@NotNull TypeAdapter<Date> dateAdapter) {
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, AdvancementData advancement) throws IOException {
+            out.beginObject();
+            out.name("key").value(advancement.key);
+            out.name("completed_criteria");
+            if (advancement.completedCriteria == null) {
+                out.nullValue();
+            } else {
+                out.beginObject();
+                for (Map.Entry<String, Date> criterion : advancement.completedCriteria.entrySet()) {
+                    out.name(criterion.getKey());
+                    dateAdapter.write(out, criterion.getValue());
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public AdvancementData read(JsonReader in) throws IOException {
+            final AdvancementData advancement = new AdvancementData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "key" -> advancement.key = readString(in);
+                    case "completed_criteria" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            continue;
+                        }
+                        final PackedCriteriaMap criteria = new PackedCriteriaMap();
+                        String lastDate = null;
+                        long lastTime = 0;
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            final String criterion = in.nextName();
+                            if (in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                                continue;
+                            }
+                            if (in.peek() == JsonToken.NUMBER) {
+                                criteria.putTime(criterion, in.nextLong());
+                                continue;
+                            }
+
+                            // Criteria are often completed together, so reuse the last parsed date when it repeats
+                            final String date = in.nextString();
+                            if (!date.equals(lastDate)) {
+                                lastTime = dateAdapter.fromJsonTree(new JsonPrimitive(date)).getTime();
+                                lastDate = date;
+                            }
+                            criteria.putTime(criterion, lastTime);
+                        }
+                        in.endObject();
+                        advancement.completedCriteria = criteria;
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return advancement;
+        }
+
+    }
+
+    private static class StatisticsDataAdapter extends TypeAdapter<StatisticsData> {
+
+        @Override
+        public void write(JsonWriter out, StatisticsData statistics) throws IOException {
+            out.beginObject();
+            out.name("untyped_statistics");
+            writeStatisticMap(out, statistics.untypedStatistics);
+            out.name("block_statistics");
+            writeNestedStatisticMap(out, statistics.blockStatistics);
+            out.name("item_statistics");
+            writeNestedStatisticMap(out, statistics.itemStatistics);
+            out.name("entity_statistics");
+            writeNestedStatisticMap(out, statistics.entityStatistics);
+            out.endObject();
+        }
+
+        @Override
+        public StatisticsData read(JsonReader in) throws IOException {
+            final StatisticsData statistics = new StatisticsData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "untyped_statistics" -> statistics.untypedStatistics = readStatisticMap(in);
+                    case "block_statistics" -> statistics.blockStatistics = readNestedStatisticMap(in);
+                    case "item_statistics" -> statistics.itemStatistics = readNestedStatisticMap(in);
+                    case "entity_statistics" -> statistics.entityStatistics = readNestedStatisticMap(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return statistics;
+        }
+
+        private static void writeStatisticMap(@NotNull JsonWriter out,
+                                              @Nullable Map<String, Integer> statistics) throws IOException {
+            if (statistics == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Map.Entry<String, Integer> statistic : statistics.entrySet()) {
+                out.name(statistic.getKey()).value(statistic.getValue());
+            }
+            out.endObject();
+        }
+
+        private static void writeNestedStatisticMap(@NotNull JsonWriter out,
+                                                    @Nullable Map<String, Map<String, Integer>> statistics) throws IOException {
+            if (statistics == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Map.Entry<String, Map<String, Integer>> statistic : statistics.entrySet()) {
+                out.name(statistic.getKey());
+                writeStatisticMap(out, statistic.getValue());
+            }
+            out.endObject();
+        }
+
+        @Nullable
+        private static Map<String, Integer> readStatisticMap(@NotNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final PackedStatisticMap statistics = new PackedStatisticMap();
+            in.beginObject();
+            while (in.hasNext()) {
+                final String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    // Keys in a JSON object are distinct, so can be appended without scanning for them
+                    statistics.append(key, in.nextInt());
+                }
+            }
+            in.endObject();
+            return statistics;
+        }
+
+        @Nullable
+        private static Map<String, Map<String, Integer>> readNestedStatisticMap(@NotNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final Map<String, Map<String, Integer>> statistics = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                statistics.put(in.nextName(), readStatisticMap(in));
+            }
+            in.endObject();
+            return statistics;
+        }
+
+    }
+
+    private static class LocationDataAdapter extends TypeAdapter<LocationData> {
+
+        @Override
+        public void write(JsonWriter out, LocationData location) throws IOException {
+            out.beginObject();
+            out.name("world_name").value(location.worldName);
+            out.name("world_uuid").value(location.worldUuid == null ? null : location.worldUuid.toString());
+            out.name("world_environment").value(location.worldEnvironment);
+            out.name("x").value(location.x);
+            out.name("y").value(location.y);
+            out.name("z").value(location.z);
+            out.name("yaw").value(Float.valueOf(location.yaw));
+            out.name("pitch").value(Float.valueOf(location.pitch));
+            out.endObject();
+        }
+
+        @Override
+        public LocationData read(JsonReader in) throws IOException {
+            final LocationData location = new LocationData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "world_name" -> location.worldName = readString(in);
+                    case "world_uuid" -> {
+                        final String worldUuid = readString(in);
+                        location.worldUuid = worldUuid == null ? null : UUID.fromString(worldUuid);
+                    }
+                    case "world_environment" -> location.worldEnvironment = readString(in);
+                    case "x" -> location.x = in.nextDouble();
+                    case "y" -> location.y = in.nextDouble();
+                    case "z" -> location.z = in.nextDouble();
+                    case "yaw" -> location.yaw = (float) in.nextDouble();
+                    case "pitch" -> location.pitch = (float) in.nextDouble();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return location;
+        }
+
+    }
+
+    private static class PersistentDataContainerDataAdapter extends TypeAdapter<PersistentDataContainerData> {
+
+        // Tag values are untyped, so they are (de)serialized by their runtime type, as Gson would by default
+        private final TypeAdapter<Object> valueAdapter;
+
+        private PersistentDataContainerDataAdapter(@NotNull TypeAdapter<Object> valueAdapter) {
+            this.valueAdapter = valueAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, PersistentDataContainerData container) throws IOException {
+            out.beginObject();
+            out.name("persistent_data_map");
+            if (container.persistentDataMap == null) {
+                out.nullValue();
+            } else {
+                out.beginObject();
+                for (Map.Entry<String, PersistentDataTag<?>> tag : container.persistentDataMap.entrySet()) {
+                    out.name(tag.getKey());
+                    if (tag.getValue() == null) {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    out.name("type").value(tag.getValue().type);
+                    out.name("value");
+                    valueAdapter.write(out, tag.getValue().value);
+                    out.endObject();
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public PersistentDataContainerData read(JsonReader in) throws IOException {
+            final PersistentDataContainerData container = new PersistentDataContainerData();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("persistent_data_map")) {
+                    in.skipValue();
+                    continue;
+                }
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                final Map<String, PersistentDataTag<?>> tags = new LinkedHashMap<>();
+                in.beginObject();
+                while (in.hasNext()) {
+                    tags.put(in.nextName(), readTag(in));
+                }
+                in.endObject();
+                container.persistentDataMap = tags;
+            }
+            in.endObject();
+            return container;
+        }
+
+        @Nullable
+        private PersistentDataTag<?> readTag(@NotNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String type = null;
+            Object value = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "type" -> type = readString(in);
+                    case "value" -> value = valueAdapter.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new PersistentDataTag<>(type, value);
+        }
+
+    }
+
+    @Nullable
+    private static String readString(@NotNull JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+}
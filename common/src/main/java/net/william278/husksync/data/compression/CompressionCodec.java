@@ -0,0 +1,104 @@
+package net.william278.husksync.data.compression;
+
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A codec used to compress serialized user data
+ *
+ * @see CompressionCodecRegistry
+ */
+public interface CompressionCodec {
+
+    /**
+     * Get the {@link Type} of this codec, which identifies it in compressed data
+     *
+     * @return the codec type
+     */
+    @NotNull
+    Type getType();
+
+    /**
+     * Get the ID of the dictionary this codec compresses with, or {@code 0} if it does not use a dictionary
+     *
+     * @return the dictionary ID
+     */
+    default int getDictionaryId() {
+        return 0;
+    }
+
+    /**
+     * Compress data
+     *
+     * @param data the data to compress
+     * @return the compressed data
+     * @throws IOException if the data could not be compressed
+     */
+    byte[] compress(final byte[] data) throws IOException;
+
+    /**
+     * Compress a region of data, appending the result to a buffer. Codecs should override this to compress directly
+     * into the buffer, rather than through intermediate arrays.
+     *
+     * @param data   the array holding the data to compress
+     * @param offset the offset of the data in the array
+     * @param length the length of the data
+     * @param output the buffer to append the compressed data to
+     * @throws IOException if the data could not be compressed
+     */
+    default void compress(final byte[] data, final int offset, final int length,
+                          @NotNull SerializationBuffer output) throws IOException {
+        output.write(compress(Arrays.copyOfRange(data, offset, offset + length)));
+    }
+
+    /**
+     * Decompress data compressed by this codec
+     *
+     * @param data the compressed data
+     * @return the decompressed data
+     * @throws IOException if the data could not be decompressed
+     */
+    byte[] decompress(final byte[] data) throws IOException;
+
+    /**
+     * Identifies a type of {@link CompressionCodec}
+     */
+    enum Type {
+        SNAPPY(1),
+        LZ4(2),
+        ZSTD(3),
+        ZSTD_DICTIONARY(4);
+
+        /**
+         * The identifier of this codec type in compressed data. This must never change once assigned.
+         */
+        public final int id;
+
+        Type(final int id) {
+            this.id = id;
+        }
+
+        public static Optional<Type> getTypeById(final int id) {
+            for (Type type : values()) {
+                if (type.id == id) {
+                    return Optional.of(type);
+                }
+            }
+            return Optional.empty();
+        }
+
+        public static Optional<Type> getTypeByName(@NotNull String name) {
+            try {
+                return Optional.of(valueOf(name.trim().toUpperCase(Locale.ENGLISH)));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+}
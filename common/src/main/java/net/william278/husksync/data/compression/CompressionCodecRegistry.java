@@ -0,0 +1,295 @@
+package net.william278.husksync.data.compression;
+
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the available {@link CompressionCodec}s, compressing data with the configured codec and decompressing data
+ * with whichever codec it was compressed with.
+ * <p>
+ * Compressed data is tagged with a header identifying its codec (and dictionary, if any):
+ * <pre>
+ * magic         4 bytes, 0xFF "HSC"
+ * codec type    1 byte, the {@link CompressionCodec.Type#id}
+ * dictionary ID 4 bytes, only for {@link CompressionCodec.Type#ZSTD_DICTIONARY}
+ * payload       the compressed data
+ * </pre>
+ * Data compressed with Snappy is written without a header, exactly as it was before codecs were configurable, so that
+ * it remains readable by older versions. Untagged data is therefore always read as Snappy.
+ * <p>
+ * Dictionaries should be registered ahead of time, as they are trained and on startup. Data referencing a dictionary
+ * that has not been registered fails to decompress rather than blocking the calling thread; a single background load
+ * of the dictionary is started so that later reads succeed, and dictionaries that could not be loaded are not looked
+ * up again for a while.
+ */
+public class CompressionCodecRegistry {
+
+    // Untagged data is raw Snappy, which can never begin with these bytes: they would decode as a length varint
+    // followed by a copy element, but valid Snappy data must begin with a literal
+    private static final byte[] MAGIC = {(byte) 0xFF, 'H', 'S', 'C'};
+
+    // How long to wait after failing to load a dictionary before trying to load it again
+    private static final long MISSING_DICTIONARY_RETRY_MILLIS = 60_000;
+
+    private final Map<Long, CompressionCodec> codecs = new ConcurrentHashMap<>();
+    private final CompressionCodec.Type configuredType;
+    private final int level;
+    private volatile CompressionCodec activeCodec;
+    private final Map<Integer, CompletableFuture<Optional<CompressionDictionary>>> dictionaryLoads = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> missingDictionaries = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile Function<Integer, CompletableFuture<Optional<CompressionDictionary>>> dictionaryLoader;
+
+    /**
+     * Create a registry that compresses data with Snappy
+     */
+    public CompressionCodecRegistry() {
+        this(CompressionCodec.Type.SNAPPY, 0);
+    }
+
+    /**
+     * Create a registry that compresses data with the given codec type
+     *
+     * @param type  the type of codec to compress data with. If this is {@link CompressionCodec.Type#ZSTD_DICTIONARY},
+     *              data is compressed with plain zstd until a dictionary is {@link #registerDictionary registered}
+     * @param level the compression level, for codecs that support levels
+     */
+    public CompressionCodecRegistry(@NotNull CompressionCodec.Type type, final int level) {
+        this.configuredType = type;
+        this.level = level;
+        this.activeCodec = getCodec(type == CompressionCodec.Type.ZSTD_DICTIONARY ? CompressionCodec.Type.ZSTD : type, 0)
+                .orElseThrow();
+    }
+
+    /**
+     * Compress data with the active codec
+     *
+     * @param data the data to compress
+     * @return the compressed data, tagged with the codec used
+     * @throws IOException if the data could not be compressed
+     */
+    public byte[] compress(final byte[] data) throws IOException {
+        return compress(data, 0, data.length, activeCodec);
+    }
+
+    /**
+     * Compress data with a specific type of codec
+     *
+     * @param data the data to compress
+     * @param type the type of codec to compress with. If this is the configured type, the active codec is used;
+     *             otherwise {@link CompressionCodec.Type#ZSTD_DICTIONARY} falls back to plain zstd
+     * @return the compressed data, tagged with the codec used
+     * @throws IOException if the data could not be compressed
+     */
+    public byte[] compress(final byte[] data, @NotNull CompressionCodec.Type type) throws IOException {
+        return compress(data, 0, data.length, type);
+    }
+
+    /**
+     * Compress a region of data with a specific type of codec, such as the contents of a {@link SerializationBuffer},
+     * without first copying it out
+     *
+     * @param data   the array holding the data to compress
+     * @param offset the offset of the data in the array
+     * @param length the length of the data
+     * @param type   the type of codec to compress with, as for {@link #compress(byte[], CompressionCodec.Type)}
+     * @return the compressed data, tagged with the codec used
+     * @throws IOException if the data could not be compressed
+     */
+    public byte[] compress(final byte[] data, final int offset, final int length,
+                           @NotNull CompressionCodec.Type type) throws IOException {
+        if (type == configuredType) {
+            return compress(data, offset, length, activeCodec);
+        }
+        return compress(data, offset, length, getCodec(type == CompressionCodec.Type.ZSTD_DICTIONARY
+                ? CompressionCodec.Type.ZSTD : type, 0).orElseThrow());
+    }
+
+    // Compress into a pooled buffer after the codec header, so the only allocation is the returned array
+    private byte[] compress(final byte[] data, final int offset, final int length,
+                            @NotNull CompressionCodec codec) throws IOException {
+        try (SerializationBuffer output = SerializationBuffer.acquire()) {
+            if (codec.getType() != CompressionCodec.Type.SNAPPY) {
+                output.write(MAGIC);
+                output.write(codec.getType().id);
+                if (codec.getType() == CompressionCodec.Type.ZSTD_DICTIONARY) {
+                    final int dictionaryId = codec.getDictionaryId();
+                    output.write(dictionaryId >>> 24);
+                    output.write(dictionaryId >>> 16);
+                    output.write(dictionaryId >>> 8);
+                    output.write(dictionaryId);
+                }
+            }
+            codec.compress(data, offset, length, output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Decompress data, using the codec identified by its header, or Snappy if it is untagged
+     *
+     * @param data the compressed data
+     * @return the decompressed data
+     * @throws IOException if the data could not be decompressed, or its codec or dictionary is unavailable. A
+     *                     dictionary that has not been registered yet is loaded in the background, so reading the
+     *                     data again once it has loaded will succeed
+     */
+    public byte[] decompress(final byte[] data) throws IOException {
+        if (!isTagged(data)) {
+            return Snappy.uncompress(data);
+        }
+        final int typeId = data[MAGIC.length] & 0xFF;
+        final CompressionCodec.Type type = CompressionCodec.Type.getTypeById(typeId)
+                .orElseThrow(() -> new IOException("Unknown compression codec: " + typeId));
+        int headerLength = MAGIC.length + 1;
+        int dictionaryId = 0;
+        if (type == CompressionCodec.Type.ZSTD_DICTIONARY) {
+            if (data.length < headerLength + 4) {
+                throw new IOException("Compressed data header is truncated");
+            }
+            dictionaryId = ((data[headerLength] & 0xFF) << 24) | ((data[headerLength + 1] & 0xFF) << 16)
+                           | ((data[headerLength + 2] & 0xFF) << 8) | (data[headerLength + 3] & 0xFF);
+            headerLength += 4;
+        }
+        final int finalDictionaryId = dictionaryId;
+        final CompressionCodec codec = getCodec(type, dictionaryId).orElseThrow(() -> new IOException(
+                "Compression dictionary #" + finalDictionaryId + " is not available"));
+        return codec.decompress(Arrays.copyOfRange(data, headerLength, data.length));
+    }
+
+    /**
+     * Returns whether data begins with a codec header
+     *
+     * @param data the data
+     * @return {@code true} if the data is tagged with its codec
+     */
+    public static boolean isTagged(final byte[] data) {
+        if (data.length <= MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Register a compression dictionary, so that data compressed with it can be decompressed
+     *
+     * @param dictionary the dictionary to register
+     * @param activate   whether to compress data with the dictionary from now on. This only takes effect if the
+     *                   registry is configured to use {@link CompressionCodec.Type#ZSTD_DICTIONARY}
+     */
+    public void registerDictionary(@NotNull CompressionDictionary dictionary, final boolean activate) {
+        missingDictionaries.remove(dictionary.id());
+        final CompressionCodec codec = codecs.computeIfAbsent(getKey(CompressionCodec.Type.ZSTD_DICTIONARY, dictionary.id()),
+                key -> new ZstdDictionaryCodec(dictionary, level));
+        if (activate && configuredType == CompressionCodec.Type.ZSTD_DICTIONARY) {
+            activeCodec = codec;
+        }
+    }
+
+    /**
+     * Set the function used to load dictionaries that have not been registered, when decompressing data that
+     * references them
+     *
+     * @param dictionaryLoader function asynchronously loading a dictionary by its ID
+     */
+    public void setDictionaryLoader(@NotNull Function<Integer, CompletableFuture<Optional<CompressionDictionary>>> dictionaryLoader) {
+        this.dictionaryLoader = dictionaryLoader;
+    }
+
+    /**
+     * Load a dictionary with the {@link #setDictionaryLoader dictionary loader} and register it, without activating
+     * it. Concurrent loads of the same dictionary share a single load.
+     *
+     * @param dictionaryId the ID of the dictionary to load
+     * @return a future returning the loaded dictionary, or an empty optional if it could not be loaded
+     */
+    @NotNull
+    public CompletableFuture<Optional<CompressionDictionary>> loadDictionary(final int dictionaryId) {
+        final Function<Integer, CompletableFuture<Optional<CompressionDictionary>>> loader = dictionaryLoader;
+        if (loader == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        final CompletableFuture<Optional<CompressionDictionary>> load = dictionaryLoads.computeIfAbsent(dictionaryId,
+                id -> loader.apply(id)
+                        .exceptionally(throwable -> Optional.empty())
+                        .thenApply(dictionary -> {
+                            dictionary.ifPresentOrElse(loaded -> registerDictionary(loaded, false),
+                                    () -> missingDictionaries.put(id, System.currentTimeMillis()));
+                            return dictionary;
+                        }));
+        load.whenComplete((dictionary, throwable) -> dictionaryLoads.remove(dictionaryId, load));
+        return load;
+    }
+
+    /**
+     * Get the codec currently used to compress data
+     *
+     * @return the active codec
+     */
+    @NotNull
+    public CompressionCodec getActiveCodec() {
+        return activeCodec;
+    }
+
+    /**
+     * Get the codec type this registry is configured to compress data with
+     *
+     * @return the configured codec type
+     */
+    @NotNull
+    public CompressionCodec.Type getConfiguredType() {
+        return configuredType;
+    }
+
+    private Optional<CompressionCodec> getCodec(@NotNull CompressionCodec.Type type, final int dictionaryId) {
+        final long key = getKey(type, dictionaryId);
+        final CompressionCodec codec = codecs.get(key);
+        if (codec != null) {
+            return Optional.of(codec);
+        }
+        switch (type) {
+            case SNAPPY -> {
+                return Optional.of(codecs.computeIfAbsent(key, k -> new SnappyCodec()));
+            }
+            case LZ4 -> {
+                return Optional.of(codecs.computeIfAbsent(key, k -> new Lz4Codec()));
+            }
+            case ZSTD -> {
+                return Optional.of(codecs.computeIfAbsent(key, k -> new ZstdCodec(level)));
+            }
+            default -> {
+                final Long missingSince = missingDictionaries.get(dictionaryId);
+                if (missingSince != null && System.currentTimeMillis() - missingSince < MISSING_DICTIONARY_RETRY_MILLIS) {
+                    return Optional.empty();
+                }
+                // Never wait on the load, as this runs on the database and event threads; only use it if it is
+                // already done, such as when the dictionary was loaded since the codec lookup above
+                final CompletableFuture<Optional<CompressionDictionary>> load = loadDictionary(dictionaryId);
+                if (!load.isDone()) {
+                    return Optional.empty();
+                }
+                return load.getNow(Optional.empty()).map(dictionary -> codecs.get(key));
+            }
+        }
+    }
+
+    private static long getKey(@NotNull CompressionCodec.Type type, final int dictionaryId) {
+        return ((long) type.id << 32) | (dictionaryId & 0xFFFFFFFFL);
+    }
+
+}
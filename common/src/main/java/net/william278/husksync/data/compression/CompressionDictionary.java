@@ -0,0 +1,12 @@
+package net.william278.husksync.data.compression;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A compression dictionary trained on user data snapshots, stored in the database
+ *
+ * @param id   the ID of the dictionary, referenced by data compressed with it
+ * @param data the dictionary content
+ */
+public record CompressionDictionary(int id, byte @NotNull [] data) {
+}
@@ -0,0 +1,115 @@
+package net.william278.husksync.data.compression;
+
+import net.william278.husksync.util.PerformanceMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses how to compress serialized data based on its size and where it is being sent.
+ * <p>
+ * Small payloads are left uncompressed, as compressing them costs time for little saving. Data handed off over Redis
+ * is latency-critical, so it is compressed with a fast codec; large payloads written to the database are compressed
+ * with a strong codec, and everything else with the configured codec. The size and time achieved by each codec is
+ * recorded to the {@link PerformanceMetrics}, so that the thresholds can be tuned.
+ */
+public class CompressionPolicy {
+
+    private static final String RAW_METRIC_NAME = "raw";
+
+    private final int rawThreshold;
+    private final int strongThreshold;
+    private final CompressionCodec.Type fastType;
+    private final CompressionCodec.Type strongType;
+    @Nullable
+    private final PerformanceMetrics metrics;
+    private final Set<String> reportedCodecs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a compression policy
+     *
+     * @param rawThreshold    payloads smaller than this many bytes are not compressed
+     * @param strongThreshold payloads written to the database at least this many bytes long are compressed with the
+     *                        strong codec
+     * @param fastType        the codec used for latency-critical destinations
+     * @param strongType      the codec used for large payloads written to the database
+     * @param metrics         the metrics to record compression results to, or {@code null} to not record results
+     */
+    public CompressionPolicy(final int rawThreshold, final int strongThreshold, @NotNull CompressionCodec.Type fastType,
+                             @NotNull CompressionCodec.Type strongType, @Nullable PerformanceMetrics metrics) {
+        this.rawThreshold = rawThreshold;
+        this.strongThreshold = strongThreshold;
+        this.fastType = fastType;
+        this.strongType = strongType;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Select the codec to compress a payload with
+     *
+     * @param size        the size of the payload, in bytes
+     * @param destination where the payload is being sent
+     * @param defaultType the configured codec type, used when neither the fast nor strong codec applies
+     * @return the codec type to compress the payload with, or an empty optional if it should not be compressed
+     */
+    public Optional<CompressionCodec.Type> selectCodec(final int size, @NotNull Destination destination,
+                                                       @NotNull CompressionCodec.Type defaultType) {
+        if (size < rawThreshold) {
+            return Optional.empty();
+        }
+        return Optional.of(switch (destination) {
+            case REDIS -> fastType;
+            case DATABASE -> size >= strongThreshold ? strongType : defaultType;
+        });
+    }
+
+    /**
+     * Record the result of compressing a payload
+     *
+     * @param type          the codec type the payload was compressed with, or {@code null} if it was not compressed
+     * @param destination   where the payload is being sent
+     * @param inputSize     the size of the payload, in bytes
+     * @param outputSize    the size of the compressed payload, in bytes
+     * @param durationNanos the time taken to compress the payload
+     */
+    public void recordResult(@Nullable CompressionCodec.Type type, @NotNull Destination destination,
+                             final int inputSize, final int outputSize, final long durationNanos) {
+        if (metrics == null) {
+            return;
+        }
+        final String name = "compression." + (type == null ? RAW_METRIC_NAME : type.name().toLowerCase(Locale.ENGLISH));
+        if (reportedCodecs.add(name)) {
+            registerRatioGauge(metrics, name);
+        }
+        metrics.recordTime(name + "." + destination.name().toLowerCase(Locale.ENGLISH), durationNanos);
+        metrics.add(name + ".bytes_in", inputSize);
+        metrics.add(name + ".bytes_out", outputSize);
+    }
+
+    // Report the ratio of output to input bytes, as a percentage
+    private static void registerRatioGauge(@NotNull PerformanceMetrics metrics, @NotNull String name) {
+        metrics.registerGauge(name + ".ratio_percent", () -> {
+            final long bytesIn = metrics.getCounter(name + ".bytes_in");
+            return bytesIn == 0 ? 0 : metrics.getCounter(name + ".bytes_out") * 100 / bytesIn;
+        });
+    }
+
+    /**
+     * Identifies where serialized data is being sent
+     */
+    public enum Destination {
+        /**
+         * Data handed off between servers over Redis, where latency matters most
+         */
+        REDIS,
+        /**
+         * Data saved to the database, where size matters most
+         */
+        DATABASE
+    }
+
+}
@@ -0,0 +1,85 @@
+package net.william278.husksync.data.compression;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@link CompressionCodec} using LZ4, which decompresses very quickly
+ */
+public class Lz4Codec implements CompressionCodec {
+
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    public Lz4Codec() {
+        final LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public @NotNull Type getType() {
+        return Type.LZ4;
+    }
+
+    // LZ4 blocks do not record their decompressed length, so it is written before the block
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        final byte[] compressed = new byte[4 + compressor.maxCompressedLength(data.length)];
+        writeLength(compressed, 0, data.length);
+        try {
+            final int compressedLength = compressor.compress(data, 0, data.length, compressed, 4,
+                    compressed.length - 4);
+            return Arrays.copyOf(compressed, 4 + compressedLength);
+        } catch (LZ4Exception e) {
+            throw new IOException("Failed to compress data with LZ4", e);
+        }
+    }
+
+    @Override
+    public void compress(byte[] data, int offset, int length, @NotNull SerializationBuffer output) throws IOException {
+        final int maxLength = compressor.maxCompressedLength(length);
+        output.reserve(4 + maxLength);
+        final byte[] buffer = output.getBuffer();
+        final int start = output.size();
+        writeLength(buffer, start, length);
+        try {
+            output.advance(4 + compressor.compress(data, offset, length, buffer, start + 4, maxLength));
+        } catch (LZ4Exception e) {
+            throw new IOException("Failed to compress data with LZ4", e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("LZ4 data is truncated");
+        }
+        final int length = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        if (length < 0) {
+            throw new IOException("Invalid LZ4 decompressed length: " + length);
+        }
+        try {
+            final byte[] decompressed = new byte[length];
+            decompressor.decompress(data, 4, decompressed, 0, length);
+            return decompressed;
+        } catch (LZ4Exception e) {
+            throw new IOException("Failed to decompress LZ4 data", e);
+        }
+    }
+
+    private static void writeLength(final byte[] output, final int offset, final int length) {
+        output[offset] = (byte) (length >>> 24);
+        output[offset + 1] = (byte) (length >>> 16);
+        output[offset + 2] = (byte) (length >>> 8);
+        output[offset + 3] = (byte) length;
+    }
+
+}
@@ -0,0 +1,35 @@
+package net.william278.husksync.data.compression;
+
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+
+/**
+ * A {@link CompressionCodec} using Snappy, which is very fast but has a modest compression ratio
+ */
+public class SnappyCodec implements CompressionCodec {
+
+    @Override
+    public @NotNull Type getType() {
+        return Type.SNAPPY;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        return Snappy.compress(data);
+    }
+
+    @Override
+    public void compress(byte[] data, int offset, int length, @NotNull SerializationBuffer output) throws IOException {
+        output.reserve(Snappy.maxCompressedLength(length));
+        output.advance(Snappy.compress(data, offset, length, output.getBuffer(), output.size()));
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) throws IOException {
+        return Snappy.uncompress(data);
+    }
+
+}
@@ -0,0 +1,101 @@
+package net.william278.husksync.data.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * A {@link CompressionCodec} using Zstandard at a configurable level, giving a much better ratio than Snappy on
+ * repetitive data
+ */
+public class ZstdCodec implements CompressionCodec {
+
+    private final int level;
+
+    public ZstdCodec(final int level) {
+        this.level = level;
+    }
+
+    @Override
+    public @NotNull Type getType() {
+        return Type.ZSTD;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        try {
+            return Zstd.compress(data, level);
+        } catch (ZstdException e) {
+            throw new IOException("Failed to compress data with zstd", e);
+        }
+    }
+
+    @Override
+    public void compress(byte[] data, int offset, int length, @NotNull SerializationBuffer output) throws IOException {
+        final int maxLength = getMaxCompressedLength(length);
+        output.reserve(maxLength);
+        try {
+            output.advance(checkResult(Zstd.compressByteArray(output.getBuffer(), output.size(), maxLength,
+                    data, offset, length, level)));
+        } catch (ZstdException e) {
+            throw new IOException("Failed to compress data with zstd", e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) throws IOException {
+        try {
+            return Zstd.decompress(data, getDecompressedSize(data));
+        } catch (ZstdException e) {
+            throw new IOException("Failed to decompress zstd data", e);
+        }
+    }
+
+    /**
+     * Get the maximum size of a zstd frame compressing data of a given length
+     *
+     * @param length the length of the data
+     * @return the maximum compressed size
+     * @throws IOException if the data is too large to compress into an array
+     */
+    protected static int getMaxCompressedLength(final int length) throws IOException {
+        final long bound = Zstd.compressBound(length);
+        if (bound > Integer.MAX_VALUE) {
+            throw new IOException("Data is too large to compress with zstd: " + length + " bytes");
+        }
+        return (int) bound;
+    }
+
+    /**
+     * Check the result of a zstd operation writing to an array
+     *
+     * @param result the number of bytes written, or a zstd error code
+     * @return the number of bytes written
+     * @throws IOException if the result is an error code
+     */
+    protected static int checkResult(final long result) throws IOException {
+        if (Zstd.isError(result)) {
+            throw new IOException("zstd operation failed: " + Zstd.getErrorName(result));
+        }
+        return (int) result;
+    }
+
+    /**
+     * Get the decompressed size recorded in the header of a zstd frame
+     *
+     * @param data the compressed frame
+     * @return the decompressed size
+     * @throws IOException if the size is not recorded or is too large
+     */
+    protected static int getDecompressedSize(final byte[] data) throws IOException {
+        final long size = Zstd.decompressedSize(data);
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid zstd decompressed size: " + size);
+        }
+        return (int) size;
+    }
+
+}
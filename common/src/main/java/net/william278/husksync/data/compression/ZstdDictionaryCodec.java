@@ -0,0 +1,88 @@
+package net.william278.husksync.data.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import net.william278.husksync.data.SerializationBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link CompressionCodec} using Zstandard with a {@link CompressionDictionary} trained on user data snapshots.
+ * Small payloads share most of their structure, so a dictionary improves the compression ratio considerably.
+ */
+public class ZstdDictionaryCodec implements CompressionCodec {
+
+    private final int dictionaryId;
+    private final ZstdDictCompress compressDictionary;
+    private final ZstdDictDecompress decompressDictionary;
+
+    public ZstdDictionaryCodec(@NotNull CompressionDictionary dictionary, final int level) {
+        this.dictionaryId = dictionary.id();
+        this.compressDictionary = new ZstdDictCompress(dictionary.data(), level);
+        this.decompressDictionary = new ZstdDictDecompress(dictionary.data());
+    }
+
+    @Override
+    public @NotNull Type getType() {
+        return Type.ZSTD_DICTIONARY;
+    }
+
+    @Override
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        try {
+            return Zstd.compress(data, compressDictionary);
+        } catch (ZstdException e) {
+            throw new IOException("Failed to compress data with zstd dictionary #" + dictionaryId, e);
+        }
+    }
+
+    @Override
+    public void compress(byte[] data, int offset, int length, @NotNull SerializationBuffer output) throws IOException {
+        output.reserve(ZstdCodec.getMaxCompressedLength(length));
+        try {
+            output.advance(ZstdCodec.checkResult(Zstd.compressFastDict(output.getBuffer(), output.size(),
+                    data, offset, length, compressDictionary)));
+        } catch (ZstdException e) {
+            throw new IOException("Failed to compress data with zstd dictionary #" + dictionaryId, e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) throws IOException {
+        try {
+            return Zstd.decompress(data, decompressDictionary, ZstdCodec.getDecompressedSize(data));
+        } catch (ZstdException e) {
+            throw new IOException("Failed to decompress data with zstd dictionary #" + dictionaryId, e);
+        }
+    }
+
+    /**
+     * Train a zstd dictionary on sample data
+     *
+     * @param samples        the samples to train on, such as serialized user data snapshots
+     * @param dictionarySize the maximum size of the dictionary, in bytes
+     * @return the dictionary content
+     * @throws IOException if there are too few samples to train a dictionary
+     */
+    public static byte[] train(@NotNull List<byte[]> samples, final int dictionarySize) throws IOException {
+        final long sampleSize = samples.stream().mapToLong(sample -> sample.length).sum();
+        final ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, sampleSize), dictionarySize);
+        samples.forEach(trainer::addSample);
+        try {
+            return trainer.trainSamples();
+        } catch (ZstdException e) {
+            throw new IOException("Failed to train a zstd dictionary on " + samples.size() + " samples", e);
+        }
+    }
+
+}
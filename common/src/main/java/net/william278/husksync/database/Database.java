@@ -3,21 +3,22 @@ package net.william278.husksync.database;
 import net.william278.husksync.data.DataAdapter;
 import net.william278.husksync.data.DataSaveCause;
 import net.william278.husksync.data.UserData;
+import net.william278.husksync.data.UserDataSection;
 import net.william278.husksync.data.UserDataSnapshot;
+import net.william278.husksync.data.compression.CompressionDictionary;
 import net.william278.husksync.event.EventCannon;
 import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.player.User;
 import net.william278.husksync.util.Logger;
 import net.william278.husksync.util.ResourceReader;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * An abstract representation of the plugin database, storing player data.
@@ -37,9 +38,14 @@ public abstract class Database {
     protected final String dataTableName;
 
     /**
-     * The maximum number of user records to store in the database at once per user
+     * Name of the table that stores archived data
      */
-    protected final int maxUserDataRecords;
+    protected final String archiveTableName;
+
+    /**
+     * Name of the table that stores trained compression dictionaries
+     */
+    protected final String dictionaryTableName;
 
     /**
      * {@link DataAdapter} implementation used for adapting {@link UserData} to and from JSON
@@ -83,17 +89,25 @@ public abstract class Database {
         return logger;
     }
 
+    /**
+     * Listener notified once a user's saves have all been written to the database
+     */
+    private Consumer<User> commitListener = user -> {
+    };
+
     /**
      * The {@link ResourceReader} used to read internal resource files by name
      */
     private final ResourceReader resourceReader;
 
-    protected Database(@NotNull String playerTableName, @NotNull String dataTableName, final int maxUserDataRecords,
+    protected Database(@NotNull String playerTableName, @NotNull String dataTableName,
+                       @NotNull String archiveTableName, @NotNull String dictionaryTableName,
                        @NotNull ResourceReader resourceReader, @NotNull DataAdapter dataAdapter,
                        @NotNull EventCannon eventCannon, @NotNull Logger logger) {
         this.playerTableName = playerTableName;
         this.dataTableName = dataTableName;
-        this.maxUserDataRecords = maxUserDataRecords;
+        this.archiveTableName = archiveTableName;
+        this.dictionaryTableName = dictionaryTableName;
         this.resourceReader = resourceReader;
         this.dataAdapter = dataAdapter;
         this.eventCannon = eventCannon;
@@ -121,7 +135,9 @@ public abstract class Database {
      */
     protected final String formatStatementTables(@NotNull String sql) {
         return sql.replaceAll("%users_table%", playerTableName)
-                .replaceAll("%user_data_table%", dataTableName);
+                .replaceAll("%user_data_table%", dataTableName)
+                .replaceAll("%user_data_archive_table%", archiveTableName)
+                .replaceAll("%compression_dictionaries_table%", dictionaryTableName);
     }
 
     /**
@@ -155,13 +171,38 @@ public abstract class Database {
      */
     public abstract CompletableFuture<Optional<User>> getUserByName(@NotNull String username);
 
+    /**
+     * Get a page of users, ordered by UUID
+     *
+     * @param after the UUID of the last user on the previous page, or {@code null} to get the first page
+     * @param limit the maximum number of users to get
+     * @return A future returning the list of {@link User}s
+     */
+    public abstract CompletableFuture<List<User>> getUsers(@Nullable UUID after, int limit);
+
     /**
      * Get the current uniquely versioned user data for a given user, if it exists.
      *
      * @param user the user to get data for
-     * @return an optional containing the {@link UserDataSnapshot}, if it exists, or an empty optional if it does not
+     * @return an optional containing the {@link UserDataSnapshot}, if it exists, or an empty optional if it does not.
+     * The future completes exceptionally if the database could not be read, so that a failed read is never mistaken
+     * for a user without data
+     */
+    public final CompletableFuture<Optional<UserDataSnapshot>> getCurrentUserData(@NotNull User user) {
+        return getCurrentUserData(user, EnumSet.allOf(UserDataSection.class));
+    }
+
+    /**
+     * Get the current uniquely versioned user data for a given user, if it exists, decoding only the given sections.
+     *
+     * @param user     the user to get data for
+     * @param sections the {@link UserDataSection}s to decode; other sections may be {@code null}
+     * @return an optional containing the {@link UserDataSnapshot}, if it exists, or an empty optional if it does not.
+     * The future completes exceptionally if the database could not be read
+     * @see DataAdapter#decodeSections(byte[], Set)
      */
-    public abstract CompletableFuture<Optional<UserDataSnapshot>> getCurrentUserData(@NotNull User user);
+    public abstract CompletableFuture<Optional<UserDataSnapshot>> getCurrentUserData(@NotNull User user,
+                                                                                    @NotNull Set<UserDataSection> sections);
 
     /**
      * Get all {@link UserDataSnapshot} entries for a user from the database.
@@ -169,7 +210,19 @@ public abstract class Database {
      * @param user The user to get data for
      * @return A future returning a list of a user's {@link UserDataSnapshot} entries
      */
-    public abstract CompletableFuture<List<UserDataSnapshot>> getUserData(@NotNull User user);
+    public final CompletableFuture<List<UserDataSnapshot>> getUserData(@NotNull User user) {
+        return getUserData(user, EnumSet.allOf(UserDataSection.class));
+    }
+
+    /**
+     * Get all {@link UserDataSnapshot} entries for a user from the database, decoding only the given sections.
+     *
+     * @param user     The user to get data for
+     * @param sections The {@link UserDataSection}s to decode; other sections may be {@code null}
+     * @return A future returning a list of a user's {@link UserDataSnapshot} entries
+     */
+    public abstract CompletableFuture<List<UserDataSnapshot>> getUserData(@NotNull User user,
+                                                                         @NotNull Set<UserDataSection> sections);
 
     /**
      * Gets a specific {@link UserDataSnapshot} entry for a user from the database, by its UUID.
@@ -178,16 +231,39 @@ public abstract class Database {
      * @param versionUuid The UUID of the {@link UserDataSnapshot} entry to get
      * @return A future returning an optional containing the {@link UserDataSnapshot}, if it exists, or an empty optional if it does not
      */
-    public abstract CompletableFuture<Optional<UserDataSnapshot>> getUserData(@NotNull User user, @NotNull UUID versionUuid);
+    public final CompletableFuture<Optional<UserDataSnapshot>> getUserData(@NotNull User user, @NotNull UUID versionUuid) {
+        return getUserData(user, versionUuid, EnumSet.allOf(UserDataSection.class));
+    }
 
     /**
-     * <b>(Internal)</b> Prune user data for a given user to the maximum value as configured.
+     * Gets a specific {@link UserDataSnapshot} entry for a user from the database, by its UUID, decoding only the given
+     * sections.
      *
-     * @param user The user to prune data for
-     * @return A future returning void when complete
-     * @implNote Data snapshots marked as {@code pinned} are exempt from rotation
+     * @param user        The user to get data for
+     * @param versionUuid The UUID of the {@link UserDataSnapshot} entry to get
+     * @param sections    The {@link UserDataSection}s to decode; other sections may be {@code null}
+     * @return A future returning an optional containing the {@link UserDataSnapshot}, if it exists, or an empty optional if it does not
      */
-    protected abstract CompletableFuture<Void> rotateUserData(@NotNull User user);
+    public abstract CompletableFuture<Optional<UserDataSnapshot>> getUserData(@NotNull User user, @NotNull UUID versionUuid,
+                                                                             @NotNull Set<UserDataSection> sections);
+
+    /**
+     * <b>(Internal)</b> Get the serialized data of the current snapshots of a batch of users, without decoding it,
+     * such as to sample data to train a compression dictionary with
+     *
+     * @param users The users to get the current data of
+     * @return A future returning the serialized data of each user's current snapshot, for users that have one
+     */
+    public abstract CompletableFuture<List<byte[]>> getCurrentUserDataBytes(@NotNull List<User> users);
+
+    /**
+     * Get the metadata of all a user's data snapshots, including archived snapshots, without reading their data.
+     * Use this rather than {@link #getUserData(User, Set)} to list a user's snapshots.
+     *
+     * @param user The user to get snapshot metadata for
+     * @return A future returning the list of {@link RetentionPolicy.SnapshotMetadata}, newest first
+     */
+    public abstract CompletableFuture<List<RetentionPolicy.SnapshotMetadata>> getUserDataMetadata(@NotNull User user);
 
     /**
      * Deletes a specific {@link UserDataSnapshot} entry for a user from the database, by its UUID.
@@ -198,9 +274,30 @@ public abstract class Database {
      */
     public abstract CompletableFuture<Boolean> deleteUserData(@NotNull User user, @NotNull UUID versionUuid);
 
+    /**
+     * <b>(Internal)</b> Moves {@link UserDataSnapshot} entries for a user to the archive table, where they are stored
+     * with stronger compression. Archived entries are still returned by {@link #getUserData(User)} and
+     * {@link #getUserData(User, UUID)}.
+     *
+     * @param user         The user to archive data for
+     * @param versionUuids The UUIDs of the {@link UserDataSnapshot} entries to archive
+     * @return A future returning the number of entries archived
+     * @see RetentionCompactor
+     */
+    public abstract CompletableFuture<Integer> archiveUserData(@NotNull User user, @NotNull List<UUID> versionUuids);
+
+    /**
+     * <b>(Internal)</b> Deletes a batch of {@link UserDataSnapshot} entries from the database, by their UUIDs.
+     *
+     * @param versionUuids The UUIDs of the {@link UserDataSnapshot} entries to delete
+     * @return A future returning the number of entries deleted
+     * @see RetentionCompactor
+     */
+    public abstract CompletableFuture<Integer> deleteUserData(@NotNull List<UUID> versionUuids);
+
     /**
      * Save user data to the database<p>
-     * This will remove the oldest data for the user if the amount of data exceeds the limit as configured
+     * Old data is pruned in the background by the {@link RetentionCompactor}, according to the configured {@link RetentionPolicy}
      *
      * @param user     The user to add data for
      * @param userData The {@link UserData} to set. The implementation should version it with a random UUID and the current timestamp during insertion.
@@ -229,6 +326,29 @@ public abstract class Database {
      */
     public abstract CompletableFuture<Void> unpinUserData(@NotNull User user, @NotNull UUID versionUuid);
 
+    /**
+     * Save a trained compression dictionary to the database, assigning it a new ID
+     *
+     * @param dictionary the raw dictionary data
+     * @return A future returning the saved {@link CompressionDictionary}, or an empty optional if it could not be saved
+     */
+    public abstract CompletableFuture<Optional<CompressionDictionary>> saveCompressionDictionary(byte[] dictionary);
+
+    /**
+     * Get a compression dictionary by its ID
+     *
+     * @param id the ID of the dictionary
+     * @return A future returning the {@link CompressionDictionary}, if it exists
+     */
+    public abstract CompletableFuture<Optional<CompressionDictionary>> getCompressionDictionary(int id);
+
+    /**
+     * Get every trained compression dictionary, such as to register them all on startup
+     *
+     * @return A future returning the list of {@link CompressionDictionary}s, oldest first
+     */
+    public abstract CompletableFuture<List<CompressionDictionary>> getCompressionDictionaries();
+
     /**
      * Wipes <b>all</b> {@link UserData} entries from the database.
      * <b>This should never be used</b>, except when preparing tables for migration.
@@ -238,9 +358,72 @@ public abstract class Database {
      */
     public abstract CompletableFuture<Void> wipeDatabase();
 
+    /**
+     * Returns whether the database is currently accepting requests.
+     * <p>
+     * While the database is unavailable, requests fail fast and callers should fall back to cached data where possible.
+     *
+     * @return {@code true} if the database is healthy
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Try to acquire a named lock shared by every server connected to the database, such as to elect a single server
+     * to run a background job. The lock is held until it is closed
+     *
+     * @param name the name of the lock
+     * @return the lock if it was acquired, or an empty optional if it is held by another server
+     */
+    public Optional<Lock> tryLock(@NotNull String name) {
+        return Optional.of(() -> {
+        });
+    }
+
+    /**
+     * Returns whether a user has saves that have been accepted, such as by being journaled, but not yet written to the
+     * database
+     *
+     * @param user the user to check
+     * @return {@code true} if the user has saves waiting to be written to the database
+     */
+    public boolean hasPendingSaves(@NotNull User user) {
+        return false;
+    }
+
+    /**
+     * Set the listener to notify once a user's saves have all been written to the database, such as when their
+     * journaled saves have been replayed
+     *
+     * @param commitListener the listener, accepting the user whose saves have been written
+     */
+    public void setCommitListener(@NotNull Consumer<User> commitListener) {
+        this.commitListener = commitListener;
+    }
+
+    /**
+     * Notify the commit listener that a user's saves have all been written to the database
+     *
+     * @param user the user whose saves have been written
+     */
+    protected final void onSavesCommitted(@NotNull User user) {
+        commitListener.accept(user);
+    }
+
     /**
      * Close the database connection
      */
     public abstract void close();
 
+    /**
+     * A lock acquired with {@link #tryLock(String)}, released when closed
+     */
+    public interface Lock extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
 }
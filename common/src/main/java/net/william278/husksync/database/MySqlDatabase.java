@@ -3,20 +3,29 @@ package net.william278.husksync.database;
 import com.zaxxer.hikari.HikariDataSource;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.*;
+import net.william278.husksync.data.compression.CompressionDictionary;
 import net.william278.husksync.event.DataSaveEvent;
 import net.william278.husksync.event.EventCannon;
 import net.william278.husksync.player.User;
+import net.william278.husksync.util.CircuitBreaker;
 import net.william278.husksync.util.Logger;
+import net.william278.husksync.util.PerformanceMetrics;
 import net.william278.husksync.util.ResourceReader;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.Date;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
 import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 public class MySqlDatabase extends Database {
 
@@ -46,16 +55,40 @@ public class MySqlDatabase extends Database {
 
     private static final String DATA_POOL_NAME = "HuskSyncHikariPool";
 
+    /**
+     * The {@link SaveJournal} saves are recorded to before being written, or {@code null} if journaling is disabled
+     */
+    @Nullable
+    private final SaveJournal journal;
+    private final long journalReplayIntervalMillis;
+
+    /**
+     * Tracks the health of the database, so that requests fail fast rather than waiting on connection timeouts
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Adapter used to read archived data, which is stored as compressed JSON
+     */
+    private final DataAdapter archiveDataAdapter = new JsonDataAdapter();
+
+    /**
+     * Database writes currently in progress, awaited when the database is closed
+     */
+    private final Set<CompletableFuture<Void>> inFlightWrites = ConcurrentHashMap.newKeySet();
+
     /**
      * The Hikari data source - a pool of database connections that can be fetched on-demand
      */
     private HikariDataSource connectionPool;
 
     public MySqlDatabase(@NotNull Settings settings, @NotNull ResourceReader resourceReader, @NotNull Logger logger,
-                         @NotNull DataAdapter dataAdapter, @NotNull EventCannon eventCannon) {
+                         @NotNull DataAdapter dataAdapter, @NotNull EventCannon eventCannon,
+                         @NotNull PerformanceMetrics metrics, @Nullable SaveJournal journal) {
         super(settings.getStringValue(Settings.ConfigOption.DATABASE_USERS_TABLE_NAME),
                 settings.getStringValue(Settings.ConfigOption.DATABASE_USER_DATA_TABLE_NAME),
-                Math.max(1, Math.min(20, settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_MAX_USER_DATA_SNAPSHOTS))),
+                settings.getStringValue(Settings.ConfigOption.DATABASE_USER_DATA_ARCHIVE_TABLE_NAME),
+                settings.getStringValue(Settings.ConfigOption.DATABASE_COMPRESSION_DICTIONARIES_TABLE_NAME),
                 resourceReader, dataAdapter, eventCannon, logger);
         this.mySqlHost = settings.getStringValue(Settings.ConfigOption.DATABASE_HOST);
         this.mySqlPort = settings.getIntegerValue(Settings.ConfigOption.DATABASE_PORT);
@@ -68,6 +101,13 @@ public class MySqlDatabase extends Database {
         this.hikariMaximumLifetime = settings.getIntegerValue(Settings.ConfigOption.DATABASE_CONNECTION_POOL_MAX_LIFETIME);
         this.hikariKeepAliveTime = settings.getIntegerValue(Settings.ConfigOption.DATABASE_CONNECTION_POOL_KEEPALIVE);
         this.hikariConnectionTimeOut = settings.getIntegerValue(Settings.ConfigOption.DATABASE_CONNECTION_POOL_TIMEOUT);
+        this.journal = journal;
+        this.circuitBreaker = new CircuitBreaker("database",
+                settings.getIntegerValue(Settings.ConfigOption.CIRCUIT_BREAKER_FAILURE_THRESHOLD),
+                settings.getIntegerValue(Settings.ConfigOption.CIRCUIT_BREAKER_OPEN_DURATION_MILLISECONDS),
+                metrics, logger);
+        this.journalReplayIntervalMillis = Math.max(1, settings.getIntegerValue(
+                Settings.ConfigOption.DATABASE_JOURNAL_REPLAY_INTERVAL_SECONDS)) * 1000L;
     }
 
     /**
@@ -77,7 +117,37 @@ public class MySqlDatabase extends Database {
      * @throws SQLException if the connection fails for some reason
      */
     private Connection getConnection() throws SQLException {
-        return connectionPool.getConnection();
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ConnectionUnavailableException("The database is currently unavailable", null);
+        }
+        try {
+            final Connection connection = connectionPool.getConnection();
+            circuitBreaker.recordSuccess();
+            return connection;
+        } catch (SQLException e) {
+            circuitBreaker.recordFailure();
+            throw new ConnectionUnavailableException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record a failed query with the circuit breaker if it indicates the database is unhealthy, such as a lost
+     * connection or a timeout, rather than a problem with the query or the data. Failures to get a connection are
+     * already recorded when the connection is requested
+     *
+     * @param e the exception the query failed with
+     */
+    private void recordQueryFailure(@NotNull Exception e) {
+        if (!(e instanceof ConnectionUnavailableException) && (e instanceof SQLTransientException
+                                                               || e instanceof SQLRecoverableException
+                                                               || e instanceof SQLNonTransientConnectionException)) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isAvailable();
     }
 
     @Override
@@ -109,6 +179,11 @@ public class MySqlDatabase extends Database {
                         statement.execute(tableCreationStatement);
                     }
                 }
+                if (journal != null) {
+                    journal.open();
+                    journal.startReplaying(this::replayJournalEntry,
+                            entry -> onJournalEntryCommitted(entry.user()), journalReplayIntervalMillis);
+                }
                 return true;
             } catch (SQLException | IOException e) {
                 getLogger().log(Level.SEVERE, "Failed to perform database setup: " + e.getMessage());
@@ -137,6 +212,7 @@ public class MySqlDatabase extends Database {
                                     }
                                     getLogger().log(Level.INFO, "Updated " + user.username + "'s name in the database (" + existingUser.username + " -> " + user.username + ")");
                                 } catch (SQLException e) {
+                                    recordQueryFailure(e);
                                     getLogger().log(Level.SEVERE, "Failed to update a user's name on the database", e);
                                 }
                             }
@@ -153,6 +229,7 @@ public class MySqlDatabase extends Database {
                                     statement.executeUpdate();
                                 }
                             } catch (SQLException e) {
+                                recordQueryFailure(e);
                                 getLogger().log(Level.SEVERE, "Failed to insert a user into the database", e);
                             }
                         }));
@@ -176,6 +253,7 @@ public class MySqlDatabase extends Database {
                     }
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to fetch a user from uuid from the database", e);
             }
             return Optional.empty();
@@ -199,6 +277,7 @@ public class MySqlDatabase extends Database {
                     }
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to fetch a user by name from the database", e);
             }
             return Optional.empty();
@@ -206,7 +285,35 @@ public class MySqlDatabase extends Database {
     }
 
     @Override
-    public CompletableFuture<Optional<UserDataSnapshot>> getCurrentUserData(@NotNull User user) {
+    public CompletableFuture<List<User>> getUsers(@Nullable UUID after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            final List<User> users = new ArrayList<>();
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `uuid`, `username`
+                        FROM `%users_table%`
+                        WHERE `uuid`>?
+                        ORDER BY `uuid` ASC
+                        LIMIT ?;"""))) {
+                    statement.setString(1, after == null ? "" : after.toString());
+                    statement.setInt(2, limit);
+                    final ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        users.add(new User(UUID.fromString(resultSet.getString("uuid")),
+                                resultSet.getString("username")));
+                    }
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch a page of users from the database", e);
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<UserDataSnapshot>> getCurrentUserData(@NotNull User user,
+                                                                           @NotNull Set<UserDataSection> sections) {
         return CompletableFuture.supplyAsync(() -> {
             try (Connection connection = getConnection()) {
                 try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
@@ -226,10 +333,14 @@ public class MySqlDatabase extends Database {
                                 Date.from(resultSet.getTimestamp("timestamp").toInstant()),
                                 DataSaveCause.getCauseByName(resultSet.getString("save_cause")),
                                 resultSet.getBoolean("pinned"),
-                                getDataAdapter().fromBytes(dataByteArray)));
+                                getDataAdapter().decodeSections(dataByteArray, sections)));
                     }
                 }
-            } catch (SQLException | DataAdaptionException e) {
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch a user's current user data from the database", e);
+                throw new CompletionException(e);
+            } catch (DataAdaptionException e) {
                 getLogger().log(Level.SEVERE, "Failed to fetch a user's current user data from the database", e);
             }
             return Optional.empty();
@@ -237,7 +348,8 @@ public class MySqlDatabase extends Database {
     }
 
     @Override
-    public CompletableFuture<List<UserDataSnapshot>> getUserData(@NotNull User user) {
+    public CompletableFuture<List<UserDataSnapshot>> getUserData(@NotNull User user,
+                                                                @NotNull Set<UserDataSection> sections) {
         return CompletableFuture.supplyAsync(() -> {
             final List<UserDataSnapshot> retrievedData = new ArrayList<>();
             try (Connection connection = getConnection()) {
@@ -257,12 +369,27 @@ public class MySqlDatabase extends Database {
                                 Date.from(resultSet.getTimestamp("timestamp").toInstant()),
                                 DataSaveCause.getCauseByName(resultSet.getString("save_cause")),
                                 resultSet.getBoolean("pinned"),
-                                getDataAdapter().fromBytes(dataByteArray));
+                                getDataAdapter().decodeSections(dataByteArray, sections));
                         retrievedData.add(data);
                     }
-                    return retrievedData;
                 }
+
+                // Include archived snapshots, which are stored with stronger compression
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `version_uuid`, `timestamp`, `save_cause`, `pinned`, `data`
+                        FROM `%user_data_archive_table%`
+                        WHERE `player_uuid`=?
+                        ORDER BY `timestamp` DESC;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    final ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        retrievedData.add(readArchivedSnapshot(resultSet));
+                    }
+                }
+                retrievedData.sort(Comparator.comparing(UserDataSnapshot::versionTimestamp).reversed());
+                return retrievedData;
             } catch (SQLException | DataAdaptionException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to fetch a user's current user data from the database", e);
             }
             return retrievedData;
@@ -270,7 +397,8 @@ public class MySqlDatabase extends Database {
     }
 
     @Override
-    public CompletableFuture<Optional<UserDataSnapshot>> getUserData(@NotNull User user, @NotNull UUID versionUuid) {
+    public CompletableFuture<Optional<UserDataSnapshot>> getUserData(@NotNull User user, @NotNull UUID versionUuid,
+                                                                    @NotNull Set<UserDataSection> sections) {
         return CompletableFuture.supplyAsync(() -> {
             try (Connection connection = getConnection()) {
                 try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
@@ -291,10 +419,25 @@ public class MySqlDatabase extends Database {
                                 Date.from(resultSet.getTimestamp("timestamp").toInstant()),
                                 DataSaveCause.getCauseByName(resultSet.getString("save_cause")),
                                 resultSet.getBoolean("pinned"),
-                                getDataAdapter().fromBytes(dataByteArray)));
+                                getDataAdapter().decodeSections(dataByteArray, sections)));
+                    }
+                }
+
+                // Fall back to the archive if the snapshot is no longer in the user data table
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `version_uuid`, `timestamp`, `save_cause`, `pinned`, `data`
+                        FROM `%user_data_archive_table%`
+                        WHERE `player_uuid`=? AND `version_uuid`=?
+                        LIMIT 1;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    statement.setString(2, versionUuid.toString());
+                    final ResultSet resultSet = statement.executeQuery();
+                    if (resultSet.next()) {
+                        return Optional.of(readArchivedSnapshot(resultSet));
                     }
                 }
             } catch (SQLException | DataAdaptionException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to fetch specific user data by UUID from the database", e);
             }
             return Optional.empty();
@@ -302,26 +445,236 @@ public class MySqlDatabase extends Database {
     }
 
     @Override
-    protected CompletableFuture<Void> rotateUserData(@NotNull User user) {
-        return CompletableFuture.runAsync(() -> {
-            final List<UserDataSnapshot> unpinnedUserData = getUserData(user).join().stream()
-                    .filter(dataSnapshot -> !dataSnapshot.pinned()).toList();
-            if (unpinnedUserData.size() > maxUserDataRecords) {
-                try (Connection connection = getConnection()) {
+    public CompletableFuture<List<byte[]>> getCurrentUserDataBytes(@NotNull List<User> users) {
+        return CompletableFuture.supplyAsync(() -> {
+            final List<byte[]> userData = new ArrayList<>();
+            if (users.isEmpty()) {
+                return userData;
+            }
+            final String uuidParameters = String.join(",", Collections.nCopies(users.size(), "?"));
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `data`
+                        FROM `%user_data_table%` AS `snapshot`
+                        INNER JOIN (
+                            SELECT `player_uuid`, MAX(`timestamp`) AS `latest`
+                            FROM `%user_data_table%`
+                            WHERE `player_uuid` IN (%uuids%)
+                            GROUP BY `player_uuid`
+                        ) AS `current`
+                        ON `snapshot`.`player_uuid`=`current`.`player_uuid` AND `snapshot`.`timestamp`=`current`.`latest`;"""
+                        .replace("%uuids%", uuidParameters)))) {
+                    for (int i = 0; i < users.size(); i++) {
+                        statement.setString(i + 1, users.get(i).uuid.toString());
+                    }
+                    final ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        final Blob blob = resultSet.getBlob("data");
+                        userData.add(blob.getBytes(1, (int) blob.length()));
+                        blob.free();
+                    }
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch users' current user data from the database", e);
+            }
+            return userData;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<RetentionPolicy.SnapshotMetadata>> getUserDataMetadata(@NotNull User user) {
+        return CompletableFuture.supplyAsync(() -> {
+            final List<RetentionPolicy.SnapshotMetadata> snapshotMetadata = new ArrayList<>();
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `version_uuid`, `timestamp`, `save_cause`, `pinned`, FALSE AS `archived`
+                        FROM `%user_data_table%`
+                        WHERE `player_uuid`=?
+                        UNION ALL
+                        SELECT `version_uuid`, `timestamp`, `save_cause`, `pinned`, TRUE AS `archived`
+                        FROM `%user_data_archive_table%`
+                        WHERE `player_uuid`=?
+                        ORDER BY `timestamp` DESC;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    statement.setString(2, user.uuid.toString());
+                    final ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        snapshotMetadata.add(new RetentionPolicy.SnapshotMetadata(
+                                UUID.fromString(resultSet.getString("version_uuid")),
+                                resultSet.getTimestamp("timestamp").getTime(),
+                                DataSaveCause.getCauseByName(resultSet.getString("save_cause")),
+                                resultSet.getBoolean("pinned"),
+                                resultSet.getBoolean("archived")));
+                    }
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch a user's snapshot metadata from the database", e);
+            }
+            return snapshotMetadata;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> archiveUserData(@NotNull User user, @NotNull List<UUID> versionUuids) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (versionUuids.isEmpty()) {
+                return 0;
+            }
+            final String versionUuidParameters = String.join(",", Collections.nCopies(versionUuids.size(), "?"));
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    // Copy the snapshots to the archive table, recompressing their data
+                    int archived = 0;
+                    try (PreparedStatement selectStatement = connection.prepareStatement(formatStatementTables("""
+                            SELECT `version_uuid`, `timestamp`, `save_cause`, `pinned`, `data`
+                            FROM `%user_data_table%`
+                            WHERE `player_uuid`=? AND `version_uuid` IN (%version_uuids%);"""
+                            .replace("%version_uuids%", versionUuidParameters)));
+                         PreparedStatement insertStatement = connection.prepareStatement(formatStatementTables("""
+                                 INSERT IGNORE INTO `%user_data_archive_table%`
+                                 (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`pinned`,`data`)
+                                 VALUES (?,?,?,?,?,?);"""))) {
+                        selectStatement.setString(1, user.uuid.toString());
+                        for (int i = 0; i < versionUuids.size(); i++) {
+                            selectStatement.setString(i + 2, versionUuids.get(i).toString());
+                        }
+                        final ResultSet resultSet = selectStatement.executeQuery();
+                        while (resultSet.next()) {
+                            final Blob blob = resultSet.getBlob("data");
+                            final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
+                            blob.free();
+                            insertStatement.setString(1, user.uuid.toString());
+                            insertStatement.setString(2, resultSet.getString("version_uuid"));
+                            insertStatement.setTimestamp(3, resultSet.getTimestamp("timestamp"));
+                            insertStatement.setString(4, resultSet.getString("save_cause"));
+                            insertStatement.setBoolean(5, resultSet.getBoolean("pinned"));
+                            insertStatement.setBlob(6, new ByteArrayInputStream(toArchivedData(dataByteArray)));
+                            insertStatement.addBatch();
+                            archived++;
+                        }
+                        insertStatement.executeBatch();
+                    }
+
+                    // Then remove them from the user data table
                     try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
                             DELETE FROM `%user_data_table%`
-                            WHERE `player_uuid`=?
-                            AND `pinned` IS FALSE
-                            ORDER BY `timestamp` ASC
-                            LIMIT %entry_count%;""".replace("%entry_count%",
-                            Integer.toString(unpinnedUserData.size() - maxUserDataRecords))))) {
+                            WHERE `player_uuid`=? AND `version_uuid` IN (%version_uuids%);"""
+                            .replace("%version_uuids%", versionUuidParameters)))) {
                         statement.setString(1, user.uuid.toString());
+                        for (int i = 0; i < versionUuids.size(); i++) {
+                            statement.setString(i + 2, versionUuids.get(i).toString());
+                        }
                         statement.executeUpdate();
                     }
-                } catch (SQLException e) {
-                    getLogger().log(Level.SEVERE, "Failed to prune user data from the database", e);
+                    connection.commit();
+                    return archived;
+                } catch (SQLException | DataAdaptionException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException | DataAdaptionException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to archive user data in the database", e);
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Recompress serialized user data for the archive table, using DEFLATE at its highest compression level
+     *
+     * @param data the user data, serialized by the {@link DataAdapter}
+     * @return the archived data
+     * @throws DataAdaptionException if the data could not be adapted
+     */
+    private byte[] toArchivedData(final byte[] data) throws DataAdaptionException {
+        final byte[] json = getDataAdapter().toJson(getDataAdapter().fromBytes(data), false)
+                .getBytes(StandardCharsets.UTF_8);
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(json.length / 4);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                outputStream.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Read a {@link UserDataSnapshot} from a row of the archive table
+     *
+     * @param resultSet the result set, positioned at the row to read
+     * @return the {@link UserDataSnapshot}
+     * @throws SQLException          if the row could not be read or decompressed
+     * @throws DataAdaptionException if the archived data could not be adapted
+     */
+    @NotNull
+    private UserDataSnapshot readArchivedSnapshot(@NotNull ResultSet resultSet) throws SQLException, DataAdaptionException {
+        final Blob blob = resultSet.getBlob("data");
+        final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
+        blob.free();
+
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(dataByteArray);
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(dataByteArray.length * 4);
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SQLDataException("Archived user data is truncated");
+                }
+                outputStream.write(buffer, 0, inflated);
+            }
+            return new UserDataSnapshot(
+                    UUID.fromString(resultSet.getString("version_uuid")),
+                    Date.from(resultSet.getTimestamp("timestamp").toInstant()),
+                    DataSaveCause.getCauseByName(resultSet.getString("save_cause")),
+                    resultSet.getBoolean("pinned"),
+                    archiveDataAdapter.fromBytes(outputStream.toByteArray()));
+        } catch (DataFormatException e) {
+            throw new SQLDataException("Failed to decompress archived user data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteUserData(@NotNull List<UUID> versionUuids) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (versionUuids.isEmpty()) {
+                return 0;
+            }
+            try (Connection connection = getConnection()) {
+                int deleted = 0;
+                for (final String tableName : List.of("%user_data_table%", "%user_data_archive_table%")) {
+                    try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                            DELETE FROM `%table%`
+                            WHERE `pinned` IS FALSE
+                            AND `version_uuid` IN (%version_uuids%);""".replace("%table%", tableName)
+                            .replace("%version_uuids%", String.join(",", Collections.nCopies(versionUuids.size(), "?")))))) {
+                        for (int i = 0; i < versionUuids.size(); i++) {
+                            statement.setString(i + 1, versionUuids.get(i).toString());
+                        }
+                        deleted += statement.executeUpdate();
+                    }
                 }
+                return deleted;
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to prune user data from the database", e);
             }
+            return 0;
         });
     }
 
@@ -335,9 +688,20 @@ public class MySqlDatabase extends Database {
                         LIMIT 1;"""))) {
                     statement.setString(1, user.uuid.toString());
                     statement.setString(2, versionUuid.toString());
+                    if (statement.executeUpdate() > 0) {
+                        return true;
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        DELETE FROM `%user_data_archive_table%`
+                        WHERE `player_uuid`=? AND `version_uuid`=?
+                        LIMIT 1;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    statement.setString(2, versionUuid.toString());
                     return statement.executeUpdate() > 0;
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to delete specific user data from the database", e);
             }
             return false;
@@ -347,27 +711,189 @@ public class MySqlDatabase extends Database {
     @Override
     public CompletableFuture<Void> setUserData(@NotNull User user, @NotNull UserData userData,
                                                @NotNull DataSaveCause saveCause) {
-        return CompletableFuture.runAsync(() -> {
-            final DataSaveEvent dataSaveEvent = (DataSaveEvent) getEventCannon().fireDataSaveEvent(user,
-                    userData, saveCause).join();
-            if (!dataSaveEvent.isCancelled()) {
-                final UserData finalData = dataSaveEvent.getUserData();
-                try (Connection connection = getConnection()) {
-                    try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
-                            INSERT INTO `%user_data_table%`
-                            (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`data`)
-                            VALUES (?,UUID(),NOW(),?,?);"""))) {
-                        statement.setString(1, user.uuid.toString());
-                        statement.setString(2, saveCause.name());
-                        statement.setBlob(3, new ByteArrayInputStream(
-                                getDataAdapter().toBytes(finalData)));
-                        statement.executeUpdate();
+        return getEventCannon().fireDataSaveEvent(user, userData, saveCause).thenComposeAsync(event -> {
+            final DataSaveEvent dataSaveEvent = (DataSaveEvent) event;
+            if (dataSaveEvent.isCancelled()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            final byte[] data;
+            try {
+                data = getDataAdapter().toBytes(dataSaveEvent.getUserData());
+            } catch (DataAdaptionException e) {
+                getLogger().log(Level.SEVERE, "Failed to serialize user data to set in the database", e);
+                return CompletableFuture.completedFuture(null);
+            }
+            final UUID versionUuid = UUID.randomUUID();
+            final long timestamp = System.currentTimeMillis();
+            if (journal == null) {
+                return CompletableFuture.runAsync(() -> {
+                    if (insertUserData(user, versionUuid, timestamp, saveCause, data)) {
+                        onSavesCommitted(user);
                     }
-                } catch (SQLException | DataAdaptionException e) {
-                    getLogger().log(Level.SEVERE, "Failed to set user data in the database", e);
+                });
+            }
+
+            // Record the save in the journal before writing it to the database
+            return journal.append(user, versionUuid, timestamp, saveCause, data)
+                    .handle((entry, throwable) -> {
+                        if (throwable != null) {
+                            getLogger().log(Level.SEVERE, "Failed to journal user data for " + user.username
+                                                          + "; writing to the database directly (" + throwable.getMessage() + ")");
+                        }
+                        return Optional.ofNullable(entry);
+                    })
+                    .thenCompose(entry -> {
+                        final CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+                            if (insertUserData(user, versionUuid, timestamp, saveCause, data)) {
+                                entry.ifPresent(journal::commit);
+                                onJournalEntryCommitted(user);
+                            } else if (entry.isPresent()) {
+                                journal.release(entry.get());
+                                getLogger().log(Level.WARNING, "User data for " + user.username
+                                                               + " has been journaled and will be written to the database once it is available");
+                            }
+                        });
+                        inFlightWrites.add(write);
+                        write.whenComplete((unused, throwable) -> inFlightWrites.remove(write));
+
+                        // Shutdown saves are acknowledged once journaled; they are written now or replayed on startup
+                        if (saveCause == DataSaveCause.SERVER_SHUTDOWN && entry.isPresent()) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return write;
+                    });
+        });
+    }
+
+    /**
+     * Insert a serialized user data snapshot into the database
+     *
+     * @param user        the user to insert data for
+     * @param versionUuid the version UUID of the snapshot
+     * @param timestamp   the epoch millisecond timestamp of the snapshot
+     * @param saveCause   the cause of the save
+     * @param data        the serialized user data
+     * @return {@code true} if the data was inserted
+     */
+    private boolean insertUserData(@NotNull User user, @NotNull UUID versionUuid, final long timestamp,
+                                   @NotNull DataSaveCause saveCause, final byte[] data) {
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    INSERT INTO `%user_data_table%`
+                    (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`data`)
+                    VALUES (?,?,?,?,?);"""))) {
+                statement.setString(1, user.uuid.toString());
+                statement.setString(2, versionUuid.toString());
+                statement.setTimestamp(3, new Timestamp(timestamp));
+                statement.setString(4, saveCause.name());
+                statement.setBlob(5, new ByteArrayInputStream(data));
+                statement.executeUpdate();
+                return true;
+            }
+        } catch (SQLException e) {
+            recordQueryFailure(e);
+            getLogger().log(Level.SEVERE, "Failed to set user data in the database", e);
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<Lock> tryLock(@NotNull String name) {
+        // MySQL locks are server-wide, so they are named by database and table to not collide with other clusters
+        final String lockName = mySqlDatabaseName + "." + dataTableName + "." + name;
+        final String truncatedName = lockName.substring(0, Math.min(lockName.length(), 64));
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0);")) {
+                statement.setString(1, truncatedName);
+                final ResultSet resultSet = statement.executeQuery();
+                if (resultSet.next() && resultSet.getInt(1) == 1) {
+                    // The lock is held by the connection, so it is kept open until the lock is released
+                    final Connection lockConnection = connection;
+                    connection = null;
+                    return Optional.of(() -> releaseLock(lockConnection, truncatedName));
                 }
             }
-        }).thenRun(() -> rotateUserData(user).join());
+        } catch (SQLException e) {
+            recordQueryFailure(e);
+            getLogger().log(Level.WARNING, "Failed to acquire the " + name + " lock (" + e.getMessage() + ")");
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void releaseLock(@NotNull Connection connection, @NotNull String lockName) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+            statement.setString(1, lockName);
+            statement.executeQuery();
+        } catch (SQLException e) {
+            recordQueryFailure(e);
+            // Closing the connection would return its session, still holding the lock, to the pool, so the connection
+            // is evicted instead, closing its session and with it the lock
+            getLogger().log(Level.WARNING, "Failed to release the " + lockName + " lock; closing its connection ("
+                                           + e.getMessage() + ")");
+            connectionPool.evictConnection(connection);
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            getLogger().log(Level.FINE, "Failed to return the " + lockName + " lock connection to the pool", e);
+        }
+    }
+
+    @Override
+    public boolean hasPendingSaves(@NotNull User user) {
+        return journal != null && journal.hasPendingEntries(user.uuid);
+    }
+
+    // Notify the commit listener once a user has no journaled saves left to write
+    private void onJournalEntryCommitted(@NotNull User user) {
+        if (!hasPendingSaves(user)) {
+            onSavesCommitted(user);
+        }
+    }
+
+    /**
+     * Replay a journaled save to the database, ensuring the user exists and skipping it if it was already written
+     *
+     * @param entry the {@link SaveJournal.JournalEntry} to replay
+     * @return {@code true} if the entry is now in the database
+     */
+    private boolean replayJournalEntry(@NotNull SaveJournal.JournalEntry entry) {
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    INSERT IGNORE INTO `%users_table%` (`uuid`,`username`)
+                    VALUES (?,?);"""))) {
+                statement.setString(1, entry.playerUuid().toString());
+                statement.setString(2, entry.username());
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    INSERT IGNORE INTO `%user_data_table%`
+                    (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`data`)
+                    VALUES (?,?,?,?,?);"""))) {
+                statement.setString(1, entry.playerUuid().toString());
+                statement.setString(2, entry.versionUuid().toString());
+                statement.setTimestamp(3, new Timestamp(entry.timestamp()));
+                statement.setString(4, entry.saveCause().name());
+                statement.setBlob(5, new ByteArrayInputStream(entry.data()));
+                statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            recordQueryFailure(e);
+            getLogger().log(Level.FINE, "Unable to replay the save journal yet (" + e.getMessage() + ")");
+            return false;
+        }
+        getLogger().log(Level.INFO, "Wrote journaled user data for " + entry.username() + " to the database");
+        return true;
     }
 
     @Override
@@ -381,9 +907,21 @@ public class MySqlDatabase extends Database {
                         LIMIT 1;"""))) {
                     statement.setString(1, user.uuid.toString());
                     statement.setString(2, versionUuid.toString());
+                    if (statement.executeUpdate() > 0) {
+                        return;
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        UPDATE `%user_data_archive_table%`
+                        SET `pinned`=TRUE
+                        WHERE `player_uuid`=? AND `version_uuid`=?
+                        LIMIT 1;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    statement.setString(2, versionUuid.toString());
                     statement.executeUpdate();
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to pin user data in the database", e);
             }
         });
@@ -400,22 +938,113 @@ public class MySqlDatabase extends Database {
                         LIMIT 1;"""))) {
                     statement.setString(1, user.uuid.toString());
                     statement.setString(2, versionUuid.toString());
+                    if (statement.executeUpdate() > 0) {
+                        return;
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        UPDATE `%user_data_archive_table%`
+                        SET `pinned`=FALSE
+                        WHERE `player_uuid`=? AND `version_uuid`=?
+                        LIMIT 1;"""))) {
+                    statement.setString(1, user.uuid.toString());
+                    statement.setString(2, versionUuid.toString());
                     statement.executeUpdate();
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to unpin user data in the database", e);
             }
         });
     }
 
+    @Override
+    public CompletableFuture<Optional<CompressionDictionary>> saveCompressionDictionary(byte[] dictionary) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        INSERT INTO `%compression_dictionaries_table%`
+                            (`timestamp`,`dictionary`)
+                        VALUES (?,?);"""), Statement.RETURN_GENERATED_KEYS)) {
+                    statement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                    statement.setBlob(2, new ByteArrayInputStream(dictionary));
+                    statement.executeUpdate();
+
+                    final ResultSet keys = statement.getGeneratedKeys();
+                    if (keys.next()) {
+                        return Optional.of(new CompressionDictionary(keys.getInt(1), dictionary));
+                    }
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to save a compression dictionary to the database", e);
+            }
+            return Optional.empty();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<CompressionDictionary>> getCompressionDictionary(int id) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `id`, `dictionary`
+                        FROM `%compression_dictionaries_table%`
+                        WHERE `id`=?;"""))) {
+                    statement.setInt(1, id);
+                    return readCompressionDictionary(statement.executeQuery());
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch a compression dictionary from the database", e);
+            }
+            return Optional.empty();
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<CompressionDictionary>> getCompressionDictionaries() {
+        return CompletableFuture.supplyAsync(() -> {
+            final List<CompressionDictionary> dictionaries = new ArrayList<>();
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `id`, `dictionary`
+                        FROM `%compression_dictionaries_table%`
+                        ORDER BY `id`;"""))) {
+                    final ResultSet resultSet = statement.executeQuery();
+                    Optional<CompressionDictionary> dictionary;
+                    while ((dictionary = readCompressionDictionary(resultSet)).isPresent()) {
+                        dictionaries.add(dictionary.get());
+                    }
+                }
+            } catch (SQLException e) {
+                recordQueryFailure(e);
+                getLogger().log(Level.SEVERE, "Failed to fetch compression dictionaries from the database", e);
+            }
+            return dictionaries;
+        });
+    }
+
+    private Optional<CompressionDictionary> readCompressionDictionary(@NotNull ResultSet resultSet) throws SQLException {
+        if (resultSet.next()) {
+            final Blob blob = resultSet.getBlob("dictionary");
+            final byte[] dictionary = blob.getBytes(1, (int) blob.length());
+            blob.free();
+            return Optional.of(new CompressionDictionary(resultSet.getInt("id"), dictionary));
+        }
+        return Optional.empty();
+    }
+
     @Override
     public CompletableFuture<Void> wipeDatabase() {
         return CompletableFuture.runAsync(() -> {
             try (Connection connection = getConnection()) {
                 try (Statement statement = connection.createStatement()) {
                     statement.executeUpdate(formatStatementTables("DELETE FROM `%user_data_table%`;"));
+                    statement.executeUpdate(formatStatementTables("DELETE FROM `%user_data_archive_table%`;"));
                 }
             } catch (SQLException e) {
+                recordQueryFailure(e);
                 getLogger().log(Level.SEVERE, "Failed to wipe the database", e);
             }
         });
@@ -423,6 +1052,20 @@ public class MySqlDatabase extends Database {
 
     @Override
     public void close() {
+        // Give writes already in progress a chance to complete; anything unfinished remains in the journal
+        if (!inFlightWrites.isEmpty()) {
+            try {
+                CompletableFuture.allOf(inFlightWrites.toArray(new CompletableFuture[0]))
+                        .get(hikariConnectionTimeOut, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                getLogger().log(Level.WARNING, "Timed out waiting for user data to be written to the database");
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
         if (connectionPool != null) {
             if (!connectionPool.isClosed()) {
                 connectionPool.close();
@@ -430,4 +1073,16 @@ public class MySqlDatabase extends Database {
         }
     }
 
+    /**
+     * Thrown when a connection to the database could not be acquired, either because the circuit breaker rejected the
+     * request or because the connection pool failed to provide one
+     */
+    private static final class ConnectionUnavailableException extends SQLTransientConnectionException {
+
+        private ConnectionUnavailableException(@Nullable String reason, @Nullable Throwable cause) {
+            super(reason, cause);
+        }
+
+    }
+
 }
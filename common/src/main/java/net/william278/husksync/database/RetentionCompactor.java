@@ -0,0 +1,220 @@
+package net.william278.husksync.database;
+
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.player.User;
+import net.william278.husksync.util.Logger;
+import net.william278.husksync.util.PerformanceMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Background job that prunes user data snapshots according to the {@link RetentionPolicy}, and moves old snapshots
+ * that are kept to the archive table.
+ * <p>
+ * Users are visited in pages and only snapshot metadata is read. Deletions are issued in chunks with a pause between
+ * them, and compaction only runs during the configured off-peak hours, so that pruning never competes with saves.
+ * Every server runs a compactor, but each pass first takes a database lock, so only one server compacts at a time.
+ */
+public class RetentionCompactor {
+
+    /**
+     * Number of users to fetch per page when iterating all users
+     */
+    private static final int USER_PAGE_SIZE = 250;
+
+    /**
+     * Time to wait between chunked deletes, to limit database load
+     */
+    private static final long DELETE_CHUNK_PAUSE_MILLIS = 100;
+
+    /**
+     * Name of the database lock held by the server compacting user data
+     */
+    private static final String COMPACTION_LOCK_NAME = "compaction";
+
+    private final Database database;
+    private final RetentionPolicy policy;
+    private final Logger logger;
+    private final PerformanceMetrics metrics;
+    private final long intervalMinutes;
+    private final int deleteBatchSize;
+    private final long archiveAfterMillis;
+    private final int offPeakStartHour;
+    private final int offPeakEndHour;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public RetentionCompactor(@NotNull Database database, @NotNull Settings settings, @NotNull Logger logger,
+                              @NotNull PerformanceMetrics metrics) {
+        this.database = database;
+        this.policy = RetentionPolicy.fromSettings(settings, logger);
+        this.logger = logger;
+        this.metrics = metrics;
+        this.intervalMinutes = Math.max(1, settings.getIntegerValue(
+                Settings.ConfigOption.SYNCHRONIZATION_RETENTION_COMPACTION_INTERVAL_MINUTES));
+        this.deleteBatchSize = Math.max(1, settings.getIntegerValue(
+                Settings.ConfigOption.SYNCHRONIZATION_RETENTION_DELETE_BATCH_SIZE));
+        this.archiveAfterMillis = TimeUnit.DAYS.toMillis(Math.max(0, settings.getIntegerValue(
+                Settings.ConfigOption.SYNCHRONIZATION_RETENTION_ARCHIVE_AFTER_DAYS)));
+
+        // Parse the off-peak hours window, e.g. "2-6"; if set to an empty string, compaction may run at any time
+        final int[] offPeakHours = parseHourRange(settings.getStringValue(
+                Settings.ConfigOption.SYNCHRONIZATION_RETENTION_OFF_PEAK_HOURS), logger);
+        this.offPeakStartHour = offPeakHours[0];
+        this.offPeakEndHour = offPeakHours[1];
+    }
+
+    /**
+     * Start periodically compacting user data on a background thread
+     */
+    public void start() {
+        running = true;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "HuskSync-RetentionCompactor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "An exception occurred compacting user data", e);
+            }
+        }, 1, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stop compacting user data, abandoning any compaction in progress
+     */
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prune the snapshots of all users according to the {@link RetentionPolicy}, and archive old snapshots
+     */
+    private void compact() throws InterruptedException {
+        if (!isOffPeak(LocalTime.now().getHour()) || !database.isAvailable()) {
+            return;
+        }
+        final Optional<Database.Lock> lock = database.tryLock(COMPACTION_LOCK_NAME);
+        if (lock.isEmpty()) {
+            metrics.increment("retention.compaction.skipped_locked");
+            logger.debug("Skipping user data compaction, as another server is compacting");
+            return;
+        }
+        try (Database.Lock ignored = lock.get()) {
+            compactUsers();
+        }
+    }
+
+    private void compactUsers() throws InterruptedException {
+        final long startTime = System.nanoTime();
+        final List<UUID> pendingDeletes = new ArrayList<>();
+        int deleted = 0;
+        int archived = 0;
+        UUID lastUuid = null;
+        List<User> users;
+        do {
+            users = database.getUsers(lastUuid, USER_PAGE_SIZE).join();
+            for (final User user : users) {
+                if (!running) {
+                    return;
+                }
+                final List<RetentionPolicy.SnapshotMetadata> snapshots = database.getUserDataMetadata(user).join();
+                final List<UUID> pruned = policy.getSnapshotsToPrune(snapshots, System.currentTimeMillis());
+                pendingDeletes.addAll(pruned);
+                archived += archive(user, snapshots, pruned);
+                if (pendingDeletes.size() >= deleteBatchSize) {
+                    deleted += deleteChunk(pendingDeletes);
+                    Thread.sleep(DELETE_CHUNK_PAUSE_MILLIS);
+                }
+                lastUuid = user.uuid;
+            }
+        } while (users.size() == USER_PAGE_SIZE);
+        deleted += deleteChunk(pendingDeletes);
+
+        metrics.recordTime("retention.compaction", System.nanoTime() - startTime);
+        if (deleted > 0 || archived > 0) {
+            logger.debug("Compacted user data, pruning " + deleted + " and archiving " + archived + " snapshot(s)");
+        }
+    }
+
+    /**
+     * Archive a user's snapshots that are older than the archive threshold and are not being pruned.
+     * The user's most recent snapshot is never archived.
+     */
+    private int archive(@NotNull User user, @NotNull List<RetentionPolicy.SnapshotMetadata> snapshots,
+                        @NotNull List<UUID> pruned) {
+        if (archiveAfterMillis <= 0 || snapshots.isEmpty()) {
+            return 0;
+        }
+        final long archiveBefore = System.currentTimeMillis() - archiveAfterMillis;
+        final long newestTimestamp = snapshots.stream()
+                .mapToLong(RetentionPolicy.SnapshotMetadata::timestamp)
+                .max().orElse(Long.MAX_VALUE);
+        final Set<UUID> prunedUuids = new HashSet<>(pruned);
+        final List<UUID> toArchive = snapshots.stream()
+                .filter(snapshot -> !snapshot.archived()
+                                    && snapshot.timestamp() < archiveBefore
+                                    && snapshot.timestamp() < newestTimestamp
+                                    && !prunedUuids.contains(snapshot.versionUuid()))
+                .map(RetentionPolicy.SnapshotMetadata::versionUuid)
+                .toList();
+        if (toArchive.isEmpty()) {
+            return 0;
+        }
+        final int archived = database.archiveUserData(user, toArchive).join();
+        metrics.add("retention.snapshots_archived", archived);
+        return archived;
+    }
+
+    private int deleteChunk(@NotNull List<UUID> pendingDeletes) {
+        if (pendingDeletes.isEmpty()) {
+            return 0;
+        }
+        final int deleted = database.deleteUserData(new ArrayList<>(pendingDeletes)).join();
+        pendingDeletes.clear();
+        metrics.add("retention.snapshots_pruned", deleted);
+        return deleted;
+    }
+
+    private boolean isOffPeak(final int hour) {
+        if (offPeakStartHour < 0) {
+            return true;
+        }
+        return offPeakStartHour <= offPeakEndHour
+                ? hour >= offPeakStartHour && hour < offPeakEndHour
+                : hour >= offPeakStartHour || hour < offPeakEndHour;
+    }
+
+    private static int[] parseHourRange(@Nullable String range, @NotNull Logger logger) {
+        if (range == null || range.isBlank()) {
+            return new int[]{-1, -1};
+        }
+        try {
+            final String[] hours = range.split("-");
+            final int start = Integer.parseInt(hours[0].trim());
+            final int end = Integer.parseInt(hours[1].trim());
+            if (start >= 0 && start < 24 && end >= 0 && end <= 24) {
+                return new int[]{start, end};
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored) {
+        }
+        logger.log(Level.WARNING, "Invalid retention off-peak hours \"" + range
+                                  + "\" (expected format: start-end, e.g. 2-6); compaction will run at any time");
+        return new int[]{-1, -1};
+    }
+
+}
@@ -0,0 +1,187 @@
+package net.william278.husksync.database;
+
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSaveCause;
+import net.william278.husksync.util.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Determines which user data snapshots should be pruned, by save cause and by age.
+ * <p>
+ * A user's most recent snapshot and pinned snapshots are always kept. Of the rest, newest first:
+ * <ul>
+ *     <li>if age buckets are configured, at most one snapshot is kept per bucket interval, and snapshots older than
+ *     the oldest bucket are pruned (e.g. {@code 1d:1h, 30d:1d} keeps hourly snapshots for a day, then daily snapshots
+ *     for a month)</li>
+ *     <li>at most the configured number of snapshots of each limited {@link DataSaveCause} are kept</li>
+ *     <li>at most {@code max_user_data_snapshots} unpinned snapshots are kept in total</li>
+ * </ul>
+ */
+public class RetentionPolicy {
+
+    private final int maxSnapshots;
+    private final Map<DataSaveCause, Integer> causeLimits;
+    private final List<AgeBucket> ageBuckets;
+
+    public RetentionPolicy(final int maxSnapshots, @NotNull Map<DataSaveCause, Integer> causeLimits,
+                           @NotNull List<AgeBucket> ageBuckets) {
+        this.maxSnapshots = Math.max(1, maxSnapshots);
+        this.causeLimits = causeLimits;
+        this.ageBuckets = ageBuckets.stream().sorted(Comparator.comparingLong(AgeBucket::maxAgeMillis)).toList();
+    }
+
+    /**
+     * Create a {@link RetentionPolicy} from the plugin settings, skipping and logging invalid entries
+     *
+     * @param settings the plugin {@link Settings}
+     * @param logger   the logger to report invalid entries to
+     * @return the configured {@link RetentionPolicy}
+     */
+    @NotNull
+    public static RetentionPolicy fromSettings(@NotNull Settings settings, @NotNull Logger logger) {
+        final Map<DataSaveCause, Integer> causeLimits = new EnumMap<>(DataSaveCause.class);
+        for (final String causeLimit : settings.getStringListValue(Settings.ConfigOption.SYNCHRONIZATION_RETENTION_CAUSE_LIMITS)) {
+            final String[] parts = causeLimit.split(":");
+            try {
+                causeLimits.put(DataSaveCause.valueOf(parts[0].trim().toUpperCase(Locale.ENGLISH)),
+                        Math.max(0, Integer.parseInt(parts[1].trim())));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                logger.log(Level.WARNING, "Skipping invalid retention cause limit \"" + causeLimit
+                                          + "\" (expected format: CAUSE:count)");
+            }
+        }
+
+        final List<AgeBucket> ageBuckets = new ArrayList<>();
+        for (final String ageBucket : settings.getStringListValue(Settings.ConfigOption.SYNCHRONIZATION_RETENTION_AGE_BUCKETS)) {
+            final String[] parts = ageBucket.split(":");
+            try {
+                ageBuckets.add(new AgeBucket(parseDuration(parts[0]), parseDuration(parts[1])));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                logger.log(Level.WARNING, "Skipping invalid retention age bucket \"" + ageBucket
+                                          + "\" (expected format: max_age:interval, e.g. 1d:1h)");
+            }
+        }
+        return new RetentionPolicy(settings.getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_MAX_USER_DATA_SNAPSHOTS),
+                causeLimits, ageBuckets);
+    }
+
+    /**
+     * Determine which of a user's snapshots should be pruned
+     *
+     * @param snapshots metadata of all the user's snapshots
+     * @param now       the current epoch millisecond timestamp
+     * @return the version UUIDs of the snapshots to prune
+     */
+    @NotNull
+    public List<UUID> getSnapshotsToPrune(@NotNull List<SnapshotMetadata> snapshots, final long now) {
+        final List<SnapshotMetadata> unpinned = snapshots.stream()
+                .filter(snapshot -> !snapshot.pinned())
+                .sorted(Comparator.comparingLong(SnapshotMetadata::timestamp).reversed())
+                .toList();
+        final List<UUID> pruned = new ArrayList<>();
+        final Map<DataSaveCause, Integer> causeCounts = new EnumMap<>(DataSaveCause.class);
+        final Set<Long>[] usedSlots = createSlotSets();
+        int kept = 0;
+        for (final SnapshotMetadata snapshot : unpinned) {
+            // Find the age bucket the snapshot falls into, and its interval slot within that bucket
+            int bucketIndex = -1;
+            long slot = 0;
+            if (!ageBuckets.isEmpty()) {
+                final long age = Math.max(0, now - snapshot.timestamp());
+                for (int i = 0; i < ageBuckets.size(); i++) {
+                    if (age <= ageBuckets.get(i).maxAgeMillis()) {
+                        bucketIndex = i;
+                        slot = Math.floorDiv(snapshot.timestamp(), ageBuckets.get(i).intervalMillis());
+                        break;
+                    }
+                }
+            }
+
+            // The most recent snapshot is always kept
+            if (kept > 0) {
+                final Integer causeLimit = causeLimits.get(snapshot.saveCause());
+                if ((!ageBuckets.isEmpty() && (bucketIndex < 0 || usedSlots[bucketIndex].contains(slot)))
+                    || (causeLimit != null && causeCounts.getOrDefault(snapshot.saveCause(), 0) >= causeLimit)
+                    || kept >= maxSnapshots) {
+                    pruned.add(snapshot.versionUuid());
+                    continue;
+                }
+            }
+            kept++;
+            causeCounts.merge(snapshot.saveCause(), 1, Integer::sum);
+            if (bucketIndex >= 0) {
+                usedSlots[bucketIndex].add(slot);
+            }
+        }
+        return pruned;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long>[] createSlotSets() {
+        final Set<Long>[] slotSets = new Set[ageBuckets.size()];
+        for (int i = 0; i < slotSets.length; i++) {
+            slotSets[i] = new HashSet<>();
+        }
+        return slotSets;
+    }
+
+    /**
+     * Parse a duration string made of a number and a unit suffix; {@code s}, {@code m}, {@code h}, {@code d} or {@code w}
+     *
+     * @param duration the duration string, e.g. {@code 30d}
+     * @return the duration in milliseconds
+     * @throws IllegalArgumentException if the duration is not valid
+     */
+    public static long parseDuration(@NotNull String duration) throws IllegalArgumentException {
+        final String trimmed = duration.trim().toLowerCase(Locale.ENGLISH);
+        if (trimmed.length() < 2) {
+            throw new IllegalArgumentException("Invalid duration: " + duration);
+        }
+        final long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+        final long millis = switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 's' -> TimeUnit.SECONDS.toMillis(amount);
+            case 'm' -> TimeUnit.MINUTES.toMillis(amount);
+            case 'h' -> TimeUnit.HOURS.toMillis(amount);
+            case 'd' -> TimeUnit.DAYS.toMillis(amount);
+            case 'w' -> TimeUnit.DAYS.toMillis(amount * 7);
+            default -> throw new IllegalArgumentException("Invalid duration unit: " + duration);
+        };
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + duration);
+        }
+        return millis;
+    }
+
+    /**
+     * Keep at most one snapshot per {@code intervalMillis} for snapshots up to {@code maxAgeMillis} old
+     *
+     * @param maxAgeMillis   the maximum age of snapshots in this bucket
+     * @param intervalMillis the interval to keep one snapshot per
+     */
+    public record AgeBucket(long maxAgeMillis, long intervalMillis) {
+    }
+
+    /**
+     * The metadata of a user data snapshot needed to apply retention, without its data
+     *
+     * @param versionUuid the version UUID of the snapshot
+     * @param timestamp   the epoch millisecond timestamp of the snapshot
+     * @param saveCause   the cause of the snapshot
+     * @param pinned      whether the snapshot is pinned
+     * @param archived    whether the snapshot has been moved to the archive table
+     */
+    public record SnapshotMetadata(@NotNull UUID versionUuid, long timestamp, @NotNull DataSaveCause saveCause,
+                                   boolean pinned, boolean archived) {
+
+        public SnapshotMetadata(@NotNull UUID versionUuid, long timestamp, @NotNull DataSaveCause saveCause,
+                                boolean pinned) {
+            this(versionUuid, timestamp, saveCause, pinned, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,532 @@
+package net.william278.husksync.database;
+
+import net.william278.husksync.data.DataSaveCause;
+import net.william278.husksync.player.User;
+import net.william278.husksync.util.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, on-disk write-ahead journal of user data saves.
+ * <p>
+ * Each serialized save is appended to a memory-mapped journal segment and flushed to disk before it is acknowledged,
+ * so that it survives the database being unavailable. Once a save has been written to the database, a commit
+ * marker is appended and the entry is no longer pending. Pending entries are replayed to the database in order,
+ * skipping those whose direct write to the database is still in flight.
+ * <p>
+ * Segments are flushed in batches on a fixed interval, so concurrent saves share a single fsync. Replaying runs on its
+ * own thread, so that replays blocked on an unavailable database never delay flushes.
+ */
+public class SaveJournal {
+
+    /**
+     * The default size of a journal segment file, in bytes
+     */
+    private static final int SEGMENT_SIZE_BYTES = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".wal";
+
+    private static final byte RECORD_SAVE = 1;
+    private static final byte RECORD_COMMIT = 2;
+
+    /**
+     * Size of a record header (type byte and payload length) and trailer (CRC32 checksum)
+     */
+    private static final int RECORD_OVERHEAD_BYTES = Byte.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final File directory;
+    private final long flushIntervalMillis;
+    private final Logger logger;
+
+    /**
+     * Single thread used to batch segment flushes
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Single thread used to replay pending entries
+     */
+    private ScheduledExecutorService replayExecutor;
+
+    /**
+     * Segments, ordered from oldest to newest. The last segment is the one currently being appended to
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    /**
+     * Entries that have been journaled but not yet committed to the database, ordered by sequence
+     */
+    private final TreeMap<Long, JournalEntry> pendingEntries = new TreeMap<>();
+
+    /**
+     * Sequences of pending entries which are currently being written to the database directly, and so are not replayed
+     */
+    private final Set<Long> inFlightEntries = new HashSet<>();
+
+    /**
+     * Futures awaiting the next flush of the active segment
+     */
+    private List<CompletableFuture<Void>> awaitingFlush = new ArrayList<>();
+
+    private long nextSequence = 1;
+    private boolean closed = true;
+
+    public SaveJournal(@NotNull File directory, final long flushIntervalMillis, @NotNull Logger logger) {
+        this.directory = directory;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.logger = logger;
+    }
+
+    /**
+     * Open the journal, reading any existing segments to recover entries which have not yet been committed
+     *
+     * @throws IOException if the journal directory or its segments could not be read
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create journal directory " + directory);
+        }
+
+        // Read existing segments in order, recovering uncommitted save entries
+        final File[] segmentFiles = Objects.requireNonNull(directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX)));
+        long lastSegmentId = 0;
+        for (final File segmentFile : segmentFiles) {
+            final long segmentId;
+            try {
+                segmentId = Long.parseLong(segmentFile.getName().substring(SEGMENT_FILE_PREFIX.length(),
+                        segmentFile.getName().length() - SEGMENT_FILE_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                logger.log(Level.WARNING, "Skipping unrecognised journal file " + segmentFile.getName());
+                continue;
+            }
+            segments.put(segmentId, new Segment(segmentId, segmentFile));
+            lastSegmentId = Math.max(lastSegmentId, segmentId);
+        }
+        for (final Segment segment : segments.values()) {
+            readSegment(segment);
+        }
+        pendingEntries.values().forEach(entry -> segments.get(entry.segmentId()).pendingEntries++);
+
+        // Always append to a fresh segment, so that torn writes at the end of an old segment are never overwritten
+        rollSegment(lastSegmentId + 1, SEGMENT_SIZE_BYTES);
+        deleteCommittedSegments();
+        if (!pendingEntries.isEmpty()) {
+            logger.log(Level.INFO, "Recovered " + pendingEntries.size() + " journaled user data save(s) awaiting the database");
+        }
+
+        closed = false;
+        executor = createExecutor("HuskSync-SaveJournal");
+        replayExecutor = createExecutor("HuskSync-SaveJournal-Replay");
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @NotNull
+    private static ScheduledExecutorService createExecutor(@NotNull String threadName) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Append a serialized user data save to the journal. The entry is in flight, and will not be replayed, until it
+     * is either {@link #commit(JournalEntry) committed} or {@link #release(JournalEntry) released}
+     *
+     * @param user        the user the data belongs to
+     * @param versionUuid the version UUID the data will be saved with
+     * @param timestamp   the epoch millisecond timestamp of the save
+     * @param saveCause   the cause of the save
+     * @param data        the serialized user data
+     * @return a future returning the {@link JournalEntry} once it has been flushed to disk
+     */
+    public CompletableFuture<JournalEntry> append(@NotNull User user, @NotNull UUID versionUuid, final long timestamp,
+                                                  @NotNull DataSaveCause saveCause, final byte[] data) {
+        final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        final JournalEntry entry;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("The save journal is closed"));
+            }
+            final byte[] username = user.username.getBytes(StandardCharsets.UTF_8);
+            final byte[] cause = saveCause.name().getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer payload = ByteBuffer.allocate(Long.BYTES * 6 + Short.BYTES * 2
+                                                           + username.length + cause.length + Integer.BYTES + data.length);
+            final long sequence = nextSequence++;
+            payload.putLong(sequence)
+                    .putLong(user.uuid.getMostSignificantBits()).putLong(user.uuid.getLeastSignificantBits())
+                    .putLong(versionUuid.getMostSignificantBits()).putLong(versionUuid.getLeastSignificantBits())
+                    .putLong(timestamp)
+                    .putShort((short) username.length).put(username)
+                    .putShort((short) cause.length).put(cause)
+                    .putInt(data.length).put(data);
+            try {
+                final Segment segment = writeRecord(RECORD_SAVE, payload.array());
+                entry = new JournalEntry(sequence, segment.id, user.uuid, user.username, versionUuid,
+                        timestamp, saveCause, data);
+                segment.pendingEntries++;
+                pendingEntries.put(sequence, entry);
+                inFlightEntries.add(sequence);
+                awaitingFlush.add(flushed);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return flushed.thenApply(unused -> entry);
+    }
+
+    /**
+     * Mark a journaled entry as committed to the database, so that it will not be replayed
+     *
+     * @param entry the entry to commit
+     */
+    public synchronized void commit(@NotNull JournalEntry entry) {
+        inFlightEntries.remove(entry.sequence());
+        if (closed || pendingEntries.remove(entry.sequence()) == null) {
+            return;
+        }
+        try {
+            writeRecord(RECORD_COMMIT, ByteBuffer.allocate(Long.BYTES).putLong(entry.sequence()).array());
+        } catch (IOException e) {
+            // The entry will be replayed again on restart; version UUIDs make this harmless
+            logger.log(Level.WARNING, "Failed to write a journal commit marker", e);
+        }
+        final Segment segment = segments.get(entry.segmentId());
+        if (segment != null) {
+            segment.pendingEntries--;
+        }
+        deleteCommittedSegments();
+    }
+
+    /**
+     * Mark a journaled entry as no longer in flight after its direct write to the database failed, so that it will be
+     * replayed
+     *
+     * @param entry the entry to release
+     */
+    public synchronized void release(@NotNull JournalEntry entry) {
+        inFlightEntries.remove(entry.sequence());
+    }
+
+    /**
+     * Returns a snapshot of the entries which have not yet been committed to the database, oldest first
+     *
+     * @return the list of pending {@link JournalEntry}s
+     */
+    @NotNull
+    public synchronized List<JournalEntry> getPendingEntries() {
+        return new ArrayList<>(pendingEntries.values());
+    }
+
+    /**
+     * Returns whether a player has entries which have not yet been committed to the database
+     *
+     * @param playerUuid the UUID of the player
+     * @return {@code true} if the player has pending entries
+     */
+    public synchronized boolean hasPendingEntries(@NotNull UUID playerUuid) {
+        for (final JournalEntry entry : pendingEntries.values()) {
+            if (entry.playerUuid().equals(playerUuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of the pending entries which are not being written to the database directly, oldest first
+     *
+     * @return the list of {@link JournalEntry}s to replay
+     */
+    @NotNull
+    public synchronized List<JournalEntry> getReplayableEntries() {
+        final List<JournalEntry> entries = new ArrayList<>(pendingEntries.size());
+        for (final JournalEntry entry : pendingEntries.values()) {
+            if (!inFlightEntries.contains(entry.sequence())) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Periodically replay pending entries on the replay thread, in order, until one fails to be replayed. Entries
+     * whose direct write is still in flight are skipped
+     *
+     * @param replayer       function to write an entry to the database, returning {@code true} if it succeeded
+     * @param onCommitted    called with each entry once it has been replayed and committed
+     * @param intervalMillis how often to attempt replaying pending entries
+     */
+    public void startReplaying(@NotNull Predicate<JournalEntry> replayer, @NotNull Consumer<JournalEntry> onCommitted,
+                               final long intervalMillis) {
+        replayExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                for (final JournalEntry entry : getReplayableEntries()) {
+                    if (!replayer.test(entry)) {
+                        break;
+                    }
+                    commit(entry);
+                    onCommitted.accept(entry);
+                }
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "An exception occurred replaying the save journal", e);
+            }
+        }, intervalMillis, Math.max(1, intervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flush all pending appends to disk and close the journal. Uncommitted entries are kept for the next startup
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        shutdownExecutor(replayExecutor);
+        shutdownExecutor(executor);
+        synchronized (this) {
+            flushSegment();
+            segments.values().forEach(Segment::close);
+            if (!pendingEntries.isEmpty()) {
+                logger.log(Level.WARNING, pendingEntries.size() + " user data save(s) remain in the journal " +
+                                          "and will be written to the database on the next startup");
+            }
+        }
+    }
+
+    private static void shutdownExecutor(@Nullable ExecutorService executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flush the active segment to disk, completing appends awaiting the flush
+     */
+    private void flush() {
+        synchronized (this) {
+            if (!awaitingFlush.isEmpty()) {
+                flushSegment();
+            }
+        }
+    }
+
+    private void flushSegment() {
+        final List<CompletableFuture<Void>> flushed = awaitingFlush;
+        awaitingFlush = new ArrayList<>();
+        try {
+            if (!segments.isEmpty()) {
+                segments.lastEntry().getValue().force();
+            }
+            flushed.forEach(future -> future.complete(null));
+        } catch (Exception e) {
+            flushed.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Write a record to the active segment, rolling over to a new segment if it does not fit
+     *
+     * @return the segment the record was written to
+     */
+    @NotNull
+    private Segment writeRecord(final byte type, final byte[] payload) throws IOException {
+        final int recordSize = RECORD_OVERHEAD_BYTES + payload.length;
+        Segment segment = segments.lastEntry().getValue();
+        if (segment.buffer.remaining() < recordSize) {
+            // Flush the full segment before moving on, so appends awaiting the flush are durable
+            flushSegment();
+            segment = rollSegment(segment.id + 1, Math.max(SEGMENT_SIZE_BYTES, recordSize));
+        }
+        final CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        segment.buffer.put(type).putInt(payload.length).put(payload).putInt((int) checksum.getValue());
+        return segment;
+    }
+
+    @NotNull
+    private Segment rollSegment(final long segmentId, final int size) throws IOException {
+        final Segment segment = new Segment(segmentId, new File(directory,
+                SEGMENT_FILE_PREFIX + String.format("%016d", segmentId) + SEGMENT_FILE_SUFFIX));
+        segment.map(size);
+        segments.put(segmentId, segment);
+        return segment;
+    }
+
+    /**
+     * Delete the oldest segments for as long as all their entries have been committed
+     */
+    private void deleteCommittedSegments() {
+        while (segments.size() > 1) {
+            final Segment oldest = segments.firstEntry().getValue();
+            if (oldest.pendingEntries > 0) {
+                return;
+            }
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.file.toPath());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to delete committed journal segment " + oldest.file.getName(), e);
+                return;
+            }
+            segments.remove(oldest.id);
+        }
+    }
+
+    /**
+     * Read an existing segment, stopping at the end of the written records or at the first torn record. The segment is
+     * read into a heap buffer rather than mapped, as a mapping is only released on garbage collection, and a mapped
+     * file can't be deleted on some platforms
+     */
+    private void readSegment(@NotNull Segment segment) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the end of the file is reached
+            }
+            buffer.flip();
+        }
+        try {
+            while (buffer.remaining() >= RECORD_OVERHEAD_BYTES) {
+                final byte type = buffer.get();
+                final int length = buffer.getInt();
+                if ((type != RECORD_SAVE && type != RECORD_COMMIT) || length < 0
+                    || length > buffer.remaining() - Integer.BYTES) {
+                    return;
+                }
+                final byte[] payload = new byte[length];
+                buffer.get(payload);
+                final CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != buffer.getInt()) {
+                    logger.log(Level.WARNING, "Discarding torn record at the end of journal segment " + segment.file.getName());
+                    return;
+                }
+
+                final ByteBuffer record = ByteBuffer.wrap(payload);
+                final long sequence = record.getLong();
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if (type == RECORD_COMMIT) {
+                    pendingEntries.remove(sequence);
+                    continue;
+                }
+                final UUID playerUuid = new UUID(record.getLong(), record.getLong());
+                final UUID versionUuid = new UUID(record.getLong(), record.getLong());
+                final long timestamp = record.getLong();
+                final byte[] username = new byte[record.getShort()];
+                record.get(username);
+                final byte[] cause = new byte[record.getShort()];
+                record.get(cause);
+                final byte[] data = new byte[record.getInt()];
+                record.get(data);
+                pendingEntries.put(sequence, new JournalEntry(sequence, segment.id, playerUuid,
+                        new String(username, StandardCharsets.UTF_8), versionUuid, timestamp,
+                        DataSaveCause.getCauseByName(new String(cause, StandardCharsets.UTF_8)), data));
+            }
+        } catch (BufferUnderflowException e) {
+            logger.log(Level.WARNING, "Discarding malformed record in journal segment " + segment.file.getName());
+        }
+    }
+
+    /**
+     * A user data save recorded in the journal
+     *
+     * @param sequence    the journal sequence number of the entry
+     * @param segmentId   the ID of the segment the entry was written to
+     * @param playerUuid  the UUID of the user the data belongs to
+     * @param username    the username of the user the data belongs to
+     * @param versionUuid the version UUID to save the data with
+     * @param timestamp   the epoch millisecond timestamp of the save
+     * @param saveCause   the cause of the save
+     * @param data        the serialized user data
+     */
+    public record JournalEntry(long sequence, long segmentId, @NotNull UUID playerUuid, @NotNull String username,
+                               @NotNull UUID versionUuid, long timestamp, @NotNull DataSaveCause saveCause,
+                               byte[] data) {
+
+        /**
+         * Returns the {@link User} this entry belongs to
+         *
+         * @return the {@link User}
+         */
+        @NotNull
+        public User user() {
+            return new User(playerUuid, username);
+        }
+
+    }
+
+    /**
+     * A memory-mapped journal segment file
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final File file;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int pendingEntries;
+
+        private Segment(final long id, @NotNull File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        private void map(final int size) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            channel.force(true);
+        }
+
+        private void force() {
+            if (buffer != null) {
+                buffer.force();
+            }
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    force();
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+                buffer = null;
+            }
+        }
+
+    }
+
+}
@@ -4,7 +4,9 @@ import net.william278.husksync.command.Permission;
 import net.william278.husksync.config.Locales;
 import net.william278.husksync.data.AdvancementData;
 import net.william278.husksync.data.ItemData;
+import net.william278.husksync.data.UserDataSection;
 import net.william278.husksync.data.UserDataSnapshot;
+import net.william278.husksync.database.RetentionPolicy;
 import net.william278.husksync.player.OnlineUser;
 import net.william278.husksync.player.User;
 import org.jetbrains.annotations.NotNull;
@@ -19,6 +21,12 @@ import java.util.concurrent.CompletableFuture;
  */
 public class DataEditor {
 
+    /**
+     * The {@link UserDataSection}s read by {@link #displayDataOverview(OnlineUser, UserDataSnapshot, User)}
+     */
+    public static final Set<UserDataSection> OVERVIEW_SECTIONS = Collections.unmodifiableSet(EnumSet.of(
+            UserDataSection.STATUS, UserDataSection.ADVANCEMENTS, UserDataSection.STATISTICS));
+
     /**
      * Map of currently open inventory and ender chest data editors
      */
@@ -76,7 +84,8 @@ public class DataEditor {
      * Display a chat menu detailing information about {@link UserDataSnapshot}
      *
      * @param user      The online user to display the message to
-     * @param userData  The {@link UserDataSnapshot} to display information about
+     * @param userData  The {@link UserDataSnapshot} to display information about; only the
+     *                  {@link #OVERVIEW_SECTIONS} need to have been decoded
      * @param dataOwner The {@link User} who owns the {@link UserDataSnapshot}
      */
     public void displayDataOverview(@NotNull OnlineUser user, @NotNull UserDataSnapshot userData,
@@ -103,11 +112,16 @@ public class DataEditor {
                         Integer.toString(userData.userData().getStatusData().expLevel),
                         userData.userData().getStatusData().gameMode.toLowerCase())
                 .ifPresent(user::sendMessage);
+        // Advancements and statistics are absent from data saved while their synchronization was disabled
+        final List<AdvancementData> advancements = Optional.ofNullable(userData.userData().getAdvancementData())
+                .orElse(Collections.emptyList());
+        final int playTicks = Optional.ofNullable(userData.userData().getStatisticsData())
+                .map(statistics -> statistics.untypedStatistics.getOrDefault("PLAY_ONE_MINUTE", 0))
+                .orElse(0);
         locales.getLocale("data_manager_advancements_statistics",
-                        Integer.toString(userData.userData().getAdvancementData().size()),
-                        generateAdvancementPreview(userData.userData().getAdvancementData()),
-                        String.format("%.2f", (((userData.userData().getStatisticsData().untypedStatistics.getOrDefault(
-                                "PLAY_ONE_MINUTE", 0)) / 20d) / 60d) / 60d))
+                        Integer.toString(advancements.size()),
+                        generateAdvancementPreview(advancements),
+                        String.format("%.2f", ((playTicks / 20d) / 60d) / 60d))
                 .ifPresent(user::sendMessage);
         if (user.hasPermission(Permission.COMMAND_INVENTORY.node)
             && user.hasPermission(Permission.COMMAND_ENDER_CHEST.node)) {
@@ -146,10 +160,10 @@ public class DataEditor {
      * Display a chat list detailing a player's saved list of {@link UserDataSnapshot}
      *
      * @param user         The online user to display the message to
-     * @param userDataList The list of {@link UserDataSnapshot} to display
+     * @param userDataList The list of {@link RetentionPolicy.SnapshotMetadata} of the snapshots to display
      * @param dataOwner    The {@link User} who owns the {@link UserDataSnapshot}
      */
-    public void displayDataList(@NotNull OnlineUser user, @NotNull List<UserDataSnapshot> userDataList,
+    public void displayDataList(@NotNull OnlineUser user, @NotNull List<RetentionPolicy.SnapshotMetadata> userDataList,
                                 @NotNull User dataOwner) {
         locales.getLocale("data_list_title",
                         dataOwner.username, dataOwner.uuid.toString())
@@ -157,14 +171,14 @@ public class DataEditor {
 
         final String[] numberedIcons = "①②③④⑤⑥⑦⑧⑨⑩⑪⑫⑬⑭⑮⑯⑰⑱⑲⑳".split("");
         for (int i = 0; i < Math.min(20, userDataList.size()); i++) {
-            final UserDataSnapshot userData = userDataList.get(i);
+            final RetentionPolicy.SnapshotMetadata userData = userDataList.get(i);
             locales.getLocale("data_list_item",
                             numberedIcons[i],
                             DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault())
-                                    .format(userData.versionTimestamp()),
-                            userData.versionUUID().toString().split("-")[0],
-                            userData.versionUUID().toString(),
-                            userData.cause().name().toLowerCase().replaceAll("_", " "),
+                                    .format(new Date(userData.timestamp())),
+                            userData.versionUuid().toString().split("-")[0],
+                            userData.versionUuid().toString(),
+                            userData.saveCause().name().toLowerCase().replaceAll("_", " "),
                             dataOwner.username,
                             userData.pinned() ? "※" : "  ")
                     .ifPresent(user::sendMessage);
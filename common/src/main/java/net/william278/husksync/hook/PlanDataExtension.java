@@ -11,14 +11,13 @@ import com.djrapitops.plan.extension.icon.Icon;
 import com.djrapitops.plan.extension.table.Table;
 import com.djrapitops.plan.extension.table.TableColumnFormat;
 import net.william278.husksync.data.StatusData;
+import net.william278.husksync.data.UserDataSection;
 import net.william278.husksync.data.UserDataSnapshot;
 import net.william278.husksync.database.Database;
 import net.william278.husksync.player.User;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Date;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
@@ -69,7 +68,8 @@ public class PlanDataExtension implements DataExtension {
         return CompletableFuture.supplyAsync(() -> {
             final Optional<User> optionalUser = database.getUser(uuid).join();
             if (optionalUser.isPresent()) {
-                return database.getCurrentUserData(optionalUser.get()).join();
+                return database.getCurrentUserData(optionalUser.get(),
+                        EnumSet.of(UserDataSection.STATUS, UserDataSection.ADVANCEMENTS)).join();
             }
             return Optional.empty();
         });
@@ -192,8 +192,9 @@ public class PlanDataExtension implements DataExtension {
     )
     @Tab("Current Status")
     public long getAdvancementsCompleted(@NotNull UUID playerUUID) {
-        return getCurrentUserData(playerUUID).join().map(
-                        versionedUserData -> (long) versionedUserData.userData().getAdvancementData().size())
+        return getCurrentUserData(playerUUID).join()
+                .map(versionedUserData -> versionedUserData.userData().getAdvancementData())
+                .map(advancements -> (long) advancements.size())
                 .orElse(0L);
     }
 
@@ -208,10 +209,10 @@ public class PlanDataExtension implements DataExtension {
                 .columnThree("Cause", new Icon(Family.SOLID, "flag", Color.NONE))
                 .columnFour("Pinned", new Icon(Family.SOLID, "thumbtack", Color.NONE));
         database.getUser(playerUUID).join().ifPresent(user ->
-                database.getUserData(user).join().forEach(versionedUserData -> dataSnapshotsTable.addRow(
-                        versionedUserData.versionTimestamp().getTime(),
-                        versionedUserData.versionUUID().toString().split("-")[0],
-                        versionedUserData.cause().name().toLowerCase().replaceAll("_", " "),
+                database.getUserDataMetadata(user).join().forEach(versionedUserData -> dataSnapshotsTable.addRow(
+                        versionedUserData.timestamp(),
+                        versionedUserData.versionUuid().toString().split("-")[0],
+                        versionedUserData.saveCause().name().toLowerCase().replaceAll("_", " "),
                         versionedUserData.pinned() ? PINNED_HTML_STRING + "Pinned" : "Unpinned"
                 )));
         return dataSnapshotsTable.build();
@@ -2,21 +2,22 @@ package net.william278.husksync.listener;
 
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.config.Settings;
-import net.william278.husksync.data.ItemData;
 import net.william278.husksync.data.DataSaveCause;
-import net.william278.husksync.player.OnlineUser;
+import net.william278.husksync.data.ItemData;
+import net.william278.husksync.data.UserData;
+import net.william278.husksync.data.UserDataSnapshot;
 import net.william278.husksync.editor.ItemEditorMenuType;
+import net.william278.husksync.player.OnlineUser;
+import net.william278.husksync.redis.RedisManager;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 /**
@@ -24,6 +25,16 @@ import java.util.logging.Level;
  */
 public abstract class EventListener {
 
+    /**
+     * How long to wait for the source server to set a user's data to redis when they are changing servers
+     */
+    private static final long REDIS_HANDOFF_TIMEOUT_MILLISECONDS = 3200;
+
+    /**
+     * How often to poll redis for a user's data when they are changing servers
+     */
+    private static final long REDIS_HANDOFF_POLL_MILLISECONDS = 200;
+
     /**
      * The plugin instance
      */
@@ -36,15 +47,24 @@ public abstract class EventListener {
      */
     private final Set<UUID> lockedPlayers;
 
+    /**
+     * Map of UUIDs of players to their in-flight join synchronization, so that it can be cancelled if they disconnect
+     */
+    private final Map<UUID, CompletableFuture<Boolean>> pendingSynchronizations;
+
     /**
      * Whether the plugin is currently being disabled
      */
-    private boolean disabling;
+    private volatile boolean disabling;
 
     protected EventListener(@NotNull HuskSync plugin) {
         this.plugin = plugin;
-        this.lockedPlayers = new HashSet<>();
+        this.lockedPlayers = ConcurrentHashMap.newKeySet();
+        this.pendingSynchronizations = new ConcurrentHashMap<>();
         this.disabling = false;
+
+        // Clear cached data once it has been written to the database, so that it is never read in place of newer data
+        plugin.getDatabase().setCommitListener(user -> plugin.getRedisManager().clearUserCache(user));
     }
 
     /**
@@ -54,48 +74,57 @@ public abstract class EventListener {
      */
     protected final void handlePlayerJoin(@NotNull OnlineUser user) {
         lockedPlayers.add(user.uuid);
-        CompletableFuture.runAsync(() -> {
-            try {
-                // Hold reading data for the network latency threshold, to ensure the source server has set the redis key
-                Thread.sleep(Math.max(0, plugin.getSettings().getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_NETWORK_LATENCY_MILLISECONDS)));
-            } catch (InterruptedException e) {
-                plugin.getLoggingAdapter().log(Level.SEVERE, "An exception occurred handling a player join", e);
-            } finally {
-                plugin.getRedisManager().getUserServerSwitch(user).thenAccept(changingServers -> {
+
+        // Hold reading data for the network latency threshold, to ensure the source server has set the redis key
+        final Executor latencyDelay = CompletableFuture.delayedExecutor(Math.max(0, plugin.getSettings()
+                .getIntegerValue(Settings.ConfigOption.SYNCHRONIZATION_NETWORK_LATENCY_MILLISECONDS)), TimeUnit.MILLISECONDS);
+        final CompletableFuture<Boolean> synchronization = CompletableFuture.runAsync(() -> {
+                }, latencyDelay)
+                .thenCompose(unused -> withStageTimeout(plugin.getRedisManager().getUserServerSwitch(user)))
+                .thenCompose(changingServers -> {
+                    ensureStillOnline(user);
                     if (!changingServers) {
                         // Fetch from the database if the user isn't changing servers
-                        setUserFromDatabase(user).thenAccept(succeeded -> handleSynchronisationCompletion(user, succeeded));
-                    } else {
-                        final int TIME_OUT_MILLISECONDS = 3200;
-                        CompletableFuture.runAsync(() -> {
-                            final AtomicInteger currentMilliseconds = new AtomicInteger(0);
-                            final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-
-                            // Set the user as soon as the source server has set the data to redis
-                            executor.scheduleAtFixedRate(() -> {
-                                if (user.isOffline()) {
-                                    executor.shutdown();
-                                    return;
-                                }
-                                if (disabling || currentMilliseconds.get() > TIME_OUT_MILLISECONDS) {
-                                    executor.shutdown();
-                                    setUserFromDatabase(user).thenAccept(
-                                            succeeded -> handleSynchronisationCompletion(user, succeeded));
-                                    return;
-                                }
-                                plugin.getRedisManager().getUserData(user).thenAccept(redisUserData ->
-                                        redisUserData.ifPresent(redisData -> {
-                                            user.setData(redisData, plugin.getSettings(), plugin.getEventCannon(),
-                                                            plugin.getLoggingAdapter(), plugin.getMinecraftVersion())
-                                                    .thenAccept(succeeded -> handleSynchronisationCompletion(user, succeeded)).join();
-                                            executor.shutdown();
-                                        })).join();
-                                currentMilliseconds.addAndGet(200);
-                            }, 0, 200L, TimeUnit.MILLISECONDS);
-                        });
+                        return setUserFromDatabase(user);
                     }
+                    // Set the user as soon as the source server has set the data to redis
+                    return setUserFromRedis(user, System.currentTimeMillis() + REDIS_HANDOFF_TIMEOUT_MILLISECONDS);
                 });
+        pendingSynchronizations.put(user.uuid, synchronization);
+
+        synchronization.thenCompose(succeeded -> handleSynchronisationCompletion(user, succeeded))
+                .exceptionally(throwable -> {
+                    if (!(unwrap(throwable) instanceof CancellationException)) {
+                        plugin.getLoggingAdapter().log(Level.SEVERE, "An exception occurred handling a player join ("
+                                                                     + unwrap(throwable).getMessage() + ")");
+                        handleSynchronisationCompletion(user, false);
+                    }
+                    return null;
+                })
+                .whenComplete((unused, throwable) -> pendingSynchronizations.remove(user.uuid, synchronization));
+    }
+
+    /**
+     * Poll redis for a user's data while they are changing servers, falling back to the database on timeout
+     *
+     * @param user     The user to set the data for
+     * @param deadline The epoch millisecond timestamp after which the database should be used instead
+     * @return Whether the data was successfully set
+     */
+    private CompletableFuture<Boolean> setUserFromRedis(@NotNull OnlineUser user, final long deadline) {
+        ensureStillOnline(user);
+        if (disabling || System.currentTimeMillis() > deadline) {
+            return setUserFromDatabase(user);
+        }
+        return withStageTimeout(plugin.getRedisManager().getUserData(user)).thenCompose(redisUserData -> {
+            if (redisUserData.isPresent()) {
+                ensureStillOnline(user);
+                return setUserData(user, redisUserData.get());
             }
+            // Poll again after the interval, without holding a thread while waiting
+            return CompletableFuture.runAsync(() -> {
+                    }, CompletableFuture.delayedExecutor(REDIS_HANDOFF_POLL_MILLISECONDS, TimeUnit.MILLISECONDS))
+                    .thenCompose(unused -> setUserFromRedis(user, deadline));
         });
     }
 
@@ -106,13 +135,74 @@ public abstract class EventListener {
      * @return Whether the data was successfully set
      */
     private CompletableFuture<Boolean> setUserFromDatabase(@NotNull OnlineUser user) {
-        return plugin.getDatabase().getCurrentUserData(user).thenApply(databaseUserData -> {
-            if (databaseUserData.isPresent()) {
-                return user.setData(databaseUserData.get().userData(), plugin.getSettings(), plugin.getEventCannon(),
-                        plugin.getLoggingAdapter(), plugin.getMinecraftVersion()).join();
-            }
-            return true;
-        });
+        if (!plugin.getDatabase().isAvailable()) {
+            // Read data from the redis cache instead while the database is unavailable
+            return withStageTimeout(plugin.getRedisManager().getUserCache(user)).thenCompose(cachedUserData -> {
+                if (cachedUserData.isPresent()) {
+                    ensureStillOnline(user);
+                    return setUserData(user, cachedUserData.get().userData());
+                }
+                plugin.getLoggingAdapter().log(Level.WARNING, "Could not synchronise " + user.username
+                                                              + " as the database is unavailable");
+                return CompletableFuture.completedFuture(false);
+            });
+        }
+
+        // Saves journaled on another server may not have been written to the database yet, in which case the data
+        // cached when they were saved is newer than the latest data in the database
+        final CompletableFuture<Optional<RedisManager.CachedUserData>> cache = withStageTimeout(
+                plugin.getRedisManager().getUserCache(user)).exceptionally(throwable -> Optional.empty());
+
+        // A failed database read, such as one rejected while the database is being probed, is passed on as null, as it
+        // must not be mistaken for a new user without data, whose empty data would then overwrite their saved data
+        return withStageTimeout(plugin.getDatabase().getCurrentUserData(user))
+                .handle((databaseUserData, throwable) -> {
+                    if (throwable != null) {
+                        plugin.getLoggingAdapter().log(Level.WARNING, "Failed to read " + user.username
+                                                                      + "'s data from the database ("
+                                                                      + unwrap(throwable).getMessage() + ")");
+                        return null;
+                    }
+                    return databaseUserData;
+                })
+                .thenCombine(cache, (databaseUserData, cachedUserData) -> {
+                    if (databaseUserData == null) {
+                        // Only cached data can be used; without it, the sync fails and the user stays locked
+                        if (cachedUserData.isEmpty()) {
+                            plugin.getLoggingAdapter().log(Level.WARNING, "Could not synchronise " + user.username
+                                                                          + " as the database could not be read");
+                            return CompletableFuture.completedFuture(false);
+                        }
+                        ensureStillOnline(user);
+                        return setUserData(user, cachedUserData.get().userData());
+                    }
+
+                    final long databaseTimestamp = databaseUserData
+                            .map(snapshot -> snapshot.versionTimestamp().getTime()).orElse(Long.MIN_VALUE);
+                    final Optional<UserData> userData = cachedUserData
+                            .filter(cached -> cached.timestamp() > databaseTimestamp)
+                            .map(RedisManager.CachedUserData::userData)
+                            .or(() -> databaseUserData.map(UserDataSnapshot::userData));
+                    if (userData.isPresent()) {
+                        ensureStillOnline(user);
+                        return setUserData(user, userData.get());
+                    }
+                    return CompletableFuture.completedFuture(true);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Apply {@link UserData} to a user. This stage has no timeout, as a queued apply can't be stopped once started, and
+     * the user must stay locked until their data has actually been applied
+     *
+     * @param user     The user to set the data for
+     * @param userData The data to set
+     * @return Whether the data was successfully set
+     */
+    private CompletableFuture<Boolean> setUserData(@NotNull OnlineUser user, @NotNull UserData userData) {
+        return user.setData(userData, plugin.getSettings(), plugin.getEventCannon(),
+                plugin.getLoggingAdapter(), plugin.getMinecraftVersion());
     }
 
     /**
@@ -120,17 +210,18 @@ public abstract class EventListener {
      *
      * @param user      The {@link OnlineUser} to handle
      * @param succeeded Whether the synchronization succeeded
+     * @return A future returning void when the user has been ensured in the database
      */
-    private void handleSynchronisationCompletion(@NotNull OnlineUser user, boolean succeeded) {
+    private CompletableFuture<Void> handleSynchronisationCompletion(@NotNull OnlineUser user, boolean succeeded) {
         if (succeeded) {
             plugin.getLocales().getLocale("synchronisation_complete").ifPresent(user::sendActionBar);
             lockedPlayers.remove(user.uuid);
-            plugin.getDatabase().ensureUser(user).join();
-            plugin.getEventCannon().fireSyncCompleteEvent(user);
+            return plugin.getDatabase().ensureUser(user)
+                    .thenRun(() -> plugin.getEventCannon().fireSyncCompleteEvent(user));
         } else {
             plugin.getLocales().getLocale("synchronisation_failed")
                     .ifPresent(user::sendMessage);
-            plugin.getDatabase().ensureUser(user).join();
+            return plugin.getDatabase().ensureUser(user);
         }
     }
 
@@ -140,6 +231,14 @@ public abstract class EventListener {
      * @param user The {@link OnlineUser} to handle
      */
     protected final void handlePlayerQuit(@NotNull OnlineUser user) {
+        // Cancel any synchronization still in progress for the user
+        final CompletableFuture<Boolean> pendingSynchronization = pendingSynchronizations.remove(user.uuid);
+        if (pendingSynchronization != null && pendingSynchronization.cancel(false)) {
+            // The user's data was never applied, so there is nothing to save
+            lockedPlayers.remove(user.uuid);
+            return;
+        }
+
         // Players quitting have their data manually saved by the plugin disable hook
         if (disabling) {
             return;
@@ -151,17 +250,21 @@ public abstract class EventListener {
 
         // Handle asynchronous disconnection
         lockedPlayers.add(user.uuid);
-        CompletableFuture.runAsync(() -> plugin.getRedisManager().setUserServerSwitch(user)
-                .thenRun(() -> user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings()).thenAccept(
-                        optionalUserData -> optionalUserData.ifPresent(userData -> plugin.getRedisManager()
-                                .setUserData(user, userData).thenRun(() -> plugin.getDatabase()
-                                        .setUserData(user, userData, DataSaveCause.DISCONNECT)))))
-                .thenRun(() -> lockedPlayers.remove(user.uuid)).exceptionally(throwable -> {
+        withStageTimeout(plugin.getRedisManager().setUserServerSwitch(user))
+                .thenCompose(unused -> withStageTimeout(user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings(), plugin.getMetrics())))
+                .thenCompose(optionalUserData -> optionalUserData
+                        .map(userData -> withStageTimeout(plugin.getRedisManager().setUserData(user, userData))
+                                .thenCompose(unused -> withStageTimeout(plugin.getDatabase()
+                                        .setUserData(user, userData, DataSaveCause.DISCONNECT)))
+                                .thenCompose(unused -> updateUserCache(user, userData)))
+                        .orElseGet(() -> CompletableFuture.completedFuture(null)))
+                .exceptionally(throwable -> {
                     plugin.getLoggingAdapter().log(Level.SEVERE,
                             "An exception occurred handling a player disconnection");
                     throwable.printStackTrace();
                     return null;
-                }).join());
+                })
+                .thenRun(() -> lockedPlayers.remove(user.uuid));
     }
 
     /**
@@ -173,8 +276,48 @@ public abstract class EventListener {
         if (disabling || !plugin.getSettings().getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SAVE_ON_WORLD_SAVE)) {
             return;
         }
-        usersInWorld.forEach(user -> user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings()).join().ifPresent(
-                userData -> plugin.getDatabase().setUserData(user, userData, DataSaveCause.WORLD_SAVE).join()));
+        usersInWorld.forEach(user -> saveUserData(user, DataSaveCause.WORLD_SAVE));
+    }
+
+    /**
+     * Capture an online user's current data and save it to the database
+     *
+     * @param user      The {@link OnlineUser} to save the data of
+     * @param saveCause The {@link DataSaveCause} to save the data with
+     * @return A future returning void when the data has been saved
+     */
+    private CompletableFuture<Void> saveUserData(@NotNull OnlineUser user, @NotNull DataSaveCause saveCause) {
+        return withStageTimeout(user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings(), plugin.getMetrics()))
+                .thenCompose(optionalUserData -> optionalUserData
+                        .map(userData -> {
+                            // Shutdown saves complete once journaled, and must be waited for before the database is
+                            // closed, rather than abandoned after the stage timeout
+                            final CompletableFuture<Void> save = plugin.getDatabase().setUserData(user, userData, saveCause);
+                            return (saveCause == DataSaveCause.SERVER_SHUTDOWN ? save : withStageTimeout(save))
+                                    .thenCompose(unused -> updateUserCache(user, userData));
+                        })
+                        .orElseGet(() -> CompletableFuture.completedFuture(null)))
+                .exceptionally(throwable -> {
+                    plugin.getLoggingAdapter().log(Level.SEVERE, "Failed to save data for " + user.username
+                                                                 + " (" + unwrap(throwable).getMessage() + ")");
+                    return null;
+                });
+    }
+
+    /**
+     * Cache a user's saved data on redis while it has not been written to the database, such as while it is journaled
+     * during a database outage, so it can be read from there instead. The cached data is cleared once the user's saves
+     * have been written to the database
+     *
+     * @param user     The user whose data was saved
+     * @param userData The data that was saved
+     * @return A future returning void when the cache has been updated
+     */
+    private CompletableFuture<Void> updateUserCache(@NotNull OnlineUser user, @NotNull UserData userData) {
+        if (plugin.getDatabase().hasPendingSaves(user) || !plugin.getDatabase().isAvailable()) {
+            return withStageTimeout(plugin.getRedisManager().setUserCache(user, userData));
+        }
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -211,18 +354,71 @@ public abstract class EventListener {
         return disabling || lockedPlayers.contains(user.uuid);
     }
 
+    /**
+     * Determine whether a player is locked, such as while their data is being synchronised on join
+     *
+     * @param uuid the player's UUID
+     * @return Whether the player is locked
+     */
+    public final boolean isLocked(@NotNull UUID uuid) {
+        return lockedPlayers.contains(uuid);
+    }
+
     /**
      * Handle the plugin disabling
      */
     public final void handlePluginDisable() {
         disabling = true;
+        pendingSynchronizations.values().forEach(synchronization -> synchronization.cancel(false));
 
-        plugin.getOnlineUsers().stream().filter(user -> !lockedPlayers.contains(user.uuid)).forEach(
-                user -> user.getUserData(plugin.getLoggingAdapter(), plugin.getSettings()).join().ifPresent(
-                        userData -> plugin.getDatabase().setUserData(user, userData, DataSaveCause.SERVER_SHUTDOWN).join()));
+        // Save all online users in parallel, waiting for the saves to be journaled before closing connections
+        try {
+            CompletableFuture.allOf(plugin.getOnlineUsers().stream()
+                    .filter(user -> !lockedPlayers.contains(user.uuid))
+                    .map(user -> saveUserData(user, DataSaveCause.SERVER_SHUTDOWN))
+                    .toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            plugin.getLoggingAdapter().log(Level.SEVERE, "Failed to save all user data on shutdown", e);
+        }
 
         plugin.getDatabase().close();
         plugin.getRedisManager().close();
     }
 
+    /**
+     * Apply the configured per-stage timeout to a synchronization stage
+     *
+     * @param stage The stage future
+     * @param <T>   The type of the stage result
+     * @return The stage future, which completes exceptionally with a {@link TimeoutException} if it takes too long
+     */
+    private <T> CompletableFuture<T> withStageTimeout(@NotNull CompletableFuture<T> stage) {
+        return stage.orTimeout(Math.max(1, plugin.getSettings().getIntegerValue(
+                Settings.ConfigOption.SYNCHRONIZATION_STAGE_TIMEOUT_MILLISECONDS)), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ensure a user is still online before continuing with their synchronization
+     *
+     * @param user The user to check
+     * @throws CancellationException if the user has gone offline, to cancel the remaining stages
+     */
+    private void ensureStillOnline(@NotNull OnlineUser user) throws CancellationException {
+        if (user.isOffline()) {
+            throw new CancellationException(user.username + " disconnected during synchronization");
+        }
+    }
+
+    /**
+     * Unwrap the cause of an exception thrown by a {@link CompletableFuture} stage
+     *
+     * @param throwable The exception to unwrap
+     * @return The underlying cause of the exception
+     */
+    @NotNull
+    private static Throwable unwrap(@NotNull Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+    }
+
 }
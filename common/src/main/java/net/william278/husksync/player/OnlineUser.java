@@ -7,11 +7,14 @@ import net.william278.husksync.editor.ItemEditorMenu;
 import net.william278.husksync.event.EventCannon;
 import net.william278.husksync.event.PreSyncEvent;
 import net.william278.husksync.util.Logger;
+import net.william278.husksync.util.PerformanceMetrics;
 import net.william278.desertwell.Version;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -174,61 +177,80 @@ public abstract class OnlineUser extends User {
     public final CompletableFuture<Boolean> setData(@NotNull UserData data, @NotNull Settings settings,
                                                     @NotNull EventCannon eventCannon, @NotNull Logger logger,
                                                     @NotNull Version serverMinecraftVersion) {
-        return CompletableFuture.supplyAsync(() -> {
-            // Prevent synchronising user data from newer versions of Minecraft
-            if (Version.fromMinecraftVersionString(data.getMinecraftVersion()).compareTo(serverMinecraftVersion) > 0) {
-                logger.log(Level.SEVERE, "Cannot set data for " + username +
-                                         " because the Minecraft version of their user data (" + data.getMinecraftVersion() +
-                                         ") is newer than the server's Minecraft version (" + serverMinecraftVersion + ").");
-                return false;
-            }
-            // Prevent synchronising user data from newer versions of the plugin
-            if (data.getFormatVersion() > UserData.CURRENT_FORMAT_VERSION) {
-                logger.log(Level.SEVERE, "Cannot set data for " + username +
-                                         " because the format version of their user data (v" + data.getFormatVersion() +
-                                         ") is newer than the current format version (v" + UserData.CURRENT_FORMAT_VERSION + ").");
-                return false;
-            }
-
-            // Fire the PreSyncEvent
-            final PreSyncEvent preSyncEvent = (PreSyncEvent) eventCannon.firePreSyncEvent(this, data).join();
-            final UserData finalData = preSyncEvent.getUserData();
-            final List<CompletableFuture<Void>> dataSetOperations = new ArrayList<>() {{
-                if (!isOffline() && !preSyncEvent.isCancelled()) {
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_INVENTORIES)) {
-                        add(setInventory(finalData.getInventoryData()));
+        // Prevent synchronising user data from newer versions of Minecraft
+        if (Version.fromMinecraftVersionString(data.getMinecraftVersion()).compareTo(serverMinecraftVersion) > 0) {
+            logger.log(Level.SEVERE, "Cannot set data for " + username +
+                                     " because the Minecraft version of their user data (" + data.getMinecraftVersion() +
+                                     ") is newer than the server's Minecraft version (" + serverMinecraftVersion + ").");
+            return CompletableFuture.completedFuture(false);
+        }
+        // Prevent synchronising user data from newer versions of the plugin
+        if (data.getFormatVersion() > UserData.CURRENT_FORMAT_VERSION) {
+            logger.log(Level.SEVERE, "Cannot set data for " + username +
+                                     " because the format version of their user data (v" + data.getFormatVersion() +
+                                     ") is newer than the current format version (v" + UserData.CURRENT_FORMAT_VERSION + ").");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        // Fire the PreSyncEvent, then apply the data once it has been handled
+        return eventCannon.firePreSyncEvent(this, data).thenComposeAsync(event -> {
+                    final PreSyncEvent preSyncEvent = (PreSyncEvent) event;
+                    if (isOffline() || preSyncEvent.isCancelled()) {
+                        return CompletableFuture.<Void>completedFuture(null);
                     }
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ENDER_CHESTS)) {
-                        add(setEnderChest(finalData.getEnderChestData()));
-                    }
-                    add(setStatus(finalData.getStatusData(), StatusDataFlag.getFromSettings(settings)));
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_POTION_EFFECTS)) {
-                        add(setPotionEffects(finalData.getPotionEffectsData()));
-                    }
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ADVANCEMENTS)) {
-                        add(setAdvancements(finalData.getAdvancementData()));
-                    }
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_STATISTICS)) {
-                        add(setStatistics(finalData.getStatisticsData()));
-                    }
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_LOCATION)) {
-                        add(setLocation(finalData.getLocationData()));
-                    }
-                    if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_PERSISTENT_DATA_CONTAINER)) {
-                        add(setPersistentDataContainer(finalData.getPersistentDataContainerData()));
-                    }
-                }
-            }};
-            // Apply operations in parallel, join when complete
-            return CompletableFuture.allOf(dataSetOperations.toArray(new CompletableFuture[0])).thenApply(unused -> true)
-                    .exceptionally(exception -> {
-                        // Handle synchronisation exceptions
-                        logger.log(Level.SEVERE, "Failed to set data for player " + username + " (" + exception.getMessage() + ")");
-                        exception.printStackTrace();
-                        return false;
-                    }).join();
-        });
+                    return applyData(preSyncEvent.getUserData(), settings);
+                })
+                .thenApply(unused -> true)
+                .exceptionally(exception -> {
+                    // Handle synchronisation exceptions
+                    logger.log(Level.SEVERE, "Failed to set data for player " + username + " (" + exception.getMessage() + ")");
+                    exception.printStackTrace();
+                    return false;
+                });
+    }
 
+    /**
+     * Apply the sections of {@link UserData} that are enabled in the settings to this player.
+     * <p>
+     * By default, each section is applied in parallel through its setter. Platforms may override this to prepare every
+     * section first and then apply them together.
+     *
+     * @param data     The data to apply
+     * @param settings Plugin settings, for determining what needs setting
+     * @return a future completing once every section has been applied
+     */
+    protected CompletableFuture<Void> applyData(@NotNull UserData data, @NotNull Settings settings) {
+        final List<CompletableFuture<Void>> dataSetOperations = new ArrayList<>();
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_INVENTORIES)
+            && data.getInventoryData() != null) {
+            dataSetOperations.add(setInventory(data.getInventoryData()));
+        }
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ENDER_CHESTS)
+            && data.getEnderChestData() != null) {
+            dataSetOperations.add(setEnderChest(data.getEnderChestData()));
+        }
+        dataSetOperations.add(setStatus(data.getStatusData(), StatusDataFlag.getFromSettings(settings)));
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_POTION_EFFECTS)
+            && data.getPotionEffectsData() != null) {
+            dataSetOperations.add(setPotionEffects(data.getPotionEffectsData()));
+        }
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ADVANCEMENTS)
+            && data.getAdvancementData() != null) {
+            dataSetOperations.add(setAdvancements(data.getAdvancementData()));
+        }
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_STATISTICS)
+            && data.getStatisticsData() != null) {
+            dataSetOperations.add(setStatistics(data.getStatisticsData()));
+        }
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_LOCATION)
+            && data.getLocationData() != null) {
+            dataSetOperations.add(setLocation(data.getLocationData()));
+        }
+        if (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_PERSISTENT_DATA_CONTAINER)
+            && data.getPersistentDataContainerData() != null) {
+            dataSetOperations.add(setPersistentDataContainer(data.getPersistentDataContainerData()));
+        }
+        return CompletableFuture.allOf(dataSetOperations.toArray(new CompletableFuture[0]));
     }
 
     /**
@@ -279,12 +301,68 @@ public abstract class OnlineUser extends User {
      * @return the player's current {@link UserData} in an optional; empty if an exception occurs
      */
     public final CompletableFuture<Optional<UserData>> getUserData(@NotNull Logger logger, @NotNull Settings settings) {
-        return CompletableFuture.supplyAsync(() -> Optional.of(new UserData(getStatus().join(),
-                        (settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SAVE_DEAD_PLAYER_INVENTORIES)
-                                ? getInventory().join() : (isDead() ? new ItemData("") : getInventory().join())),
-                        getEnderChest().join(), getPotionEffects().join(), getAdvancements().join(),
-                        getStatistics().join(), getLocation().join(), getPersistentDataContainer().join(),
-                        getMinecraftVersion().toString())))
+        return getUserData(logger, settings, null);
+    }
+
+    /**
+     * Get the player's current {@link UserData} in an {@link Optional}, recording how long each section took to capture
+     * <p>
+     * Every section is captured at once and the results composed when all have completed, so capture takes about as
+     * long as the slowest section, rather than the sum of them all. Sections whose synchronization feature is disabled
+     * are not captured, and are absent ({@code null}) in the returned data.
+     *
+     * @param logger  The logger to use for handling exceptions
+     * @param metrics The metrics to record section capture times to, or {@code null} to not record them
+     * @return the player's current {@link UserData} in an optional; empty if an exception occurs
+     */
+    public final CompletableFuture<Optional<UserData>> getUserData(@NotNull Logger logger, @NotNull Settings settings,
+                                                                   @Nullable PerformanceMetrics metrics) {
+        final boolean saveDeadPlayerInventories = settings.getBooleanValue(
+                Settings.ConfigOption.SYNCHRONIZATION_SAVE_DEAD_PLAYER_INVENTORIES);
+        final long startTime = System.nanoTime();
+        final CompletableFuture<StatusData> status = timeCapture(getStatus(),
+                UserDataSection.STATUS, metrics, startTime);
+        final CompletableFuture<ItemData> inventory = timeCapture(
+                !settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_INVENTORIES)
+                        ? CompletableFuture.completedFuture(null)
+                        : saveDeadPlayerInventories || !isDead() ? getInventory()
+                        : CompletableFuture.completedFuture(new ItemData("")),
+                UserDataSection.INVENTORY, metrics, startTime);
+        final CompletableFuture<ItemData> enderChest = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ENDER_CHESTS)
+                        ? getEnderChest() : CompletableFuture.completedFuture(null),
+                UserDataSection.ENDER_CHEST, metrics, startTime);
+        final CompletableFuture<PotionEffectData> potionEffects = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_POTION_EFFECTS)
+                        ? getPotionEffects() : CompletableFuture.completedFuture(null),
+                UserDataSection.POTION_EFFECTS, metrics, startTime);
+        final CompletableFuture<List<AdvancementData>> advancements = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_ADVANCEMENTS)
+                        ? getAdvancements() : CompletableFuture.completedFuture(null),
+                UserDataSection.ADVANCEMENTS, metrics, startTime);
+        final CompletableFuture<StatisticsData> statistics = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_STATISTICS)
+                        ? getStatistics() : CompletableFuture.completedFuture(null),
+                UserDataSection.STATISTICS, metrics, startTime);
+        final CompletableFuture<LocationData> location = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_LOCATION)
+                        ? getLocation() : CompletableFuture.completedFuture(null),
+                UserDataSection.LOCATION, metrics, startTime);
+        final CompletableFuture<PersistentDataContainerData> persistentDataContainer = timeCapture(
+                settings.getBooleanValue(Settings.ConfigOption.SYNCHRONIZATION_SYNC_PERSISTENT_DATA_CONTAINER)
+                        ? getPersistentDataContainer() : CompletableFuture.completedFuture(null),
+                UserDataSection.PERSISTENT_DATA_CONTAINER, metrics, startTime);
+
+        return CompletableFuture.allOf(status, inventory, enderChest, potionEffects, advancements, statistics,
+                        location, persistentDataContainer)
+                .thenApply(unused -> {
+                    if (metrics != null) {
+                        metrics.recordTime("capture.total", System.nanoTime() - startTime);
+                    }
+                    return Optional.of(new UserData(status.join(), inventory.join(), enderChest.join(),
+                            potionEffects.join(), advancements.join(), statistics.join(), location.join(),
+                            persistentDataContainer.join(), getMinecraftVersion().toString()));
+                })
                 .exceptionally(exception -> {
                     logger.log(Level.SEVERE, "Failed to get user data from online player " + username + " (" + exception.getMessage() + ")");
                     exception.printStackTrace();
@@ -292,4 +370,16 @@ public abstract class OnlineUser extends User {
                 });
     }
 
+    // Record the time from the start of capture until a section has been captured
+    @NotNull
+    private static <T> CompletableFuture<T> timeCapture(@NotNull CompletableFuture<T> section,
+                                                        @NotNull UserDataSection sectionType,
+                                                        @Nullable PerformanceMetrics metrics, final long startTime) {
+        if (metrics == null) {
+            return section;
+        }
+        return section.whenComplete((result, throwable) -> metrics.recordTime("capture."
+                + sectionType.name().toLowerCase(Locale.ENGLISH), System.nanoTime() - startTime));
+    }
+
 }
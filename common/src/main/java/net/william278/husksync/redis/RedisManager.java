@@ -3,11 +3,15 @@ package net.william278.husksync.redis;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.UserData;
+import net.william278.husksync.data.compression.CompressionPolicy;
 import net.william278.husksync.player.User;
+import net.william278.husksync.util.CircuitBreaker;
 import org.jetbrains.annotations.NotNull;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisException;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -15,6 +19,7 @@ import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 /**
  * Manages the connection to the Redis server, handling the caching of user data
@@ -29,6 +34,7 @@ public class RedisManager {
     private final int redisPort;
     private final String redisPassword;
     private final boolean redisUseSsl;
+    private final CircuitBreaker circuitBreaker;
     private JedisPool jedisPool;
 
     public RedisManager(@NotNull HuskSync plugin) {
@@ -46,6 +52,45 @@ public class RedisManager {
         this.jedisPoolConfig.setMaxIdle(0);
         this.jedisPoolConfig.setTestOnBorrow(true);
         this.jedisPoolConfig.setTestOnReturn(true);
+
+        // Track the health of the redis server
+        this.circuitBreaker = new CircuitBreaker("redis",
+                plugin.getSettings().getIntegerValue(Settings.ConfigOption.CIRCUIT_BREAKER_FAILURE_THRESHOLD),
+                plugin.getSettings().getIntegerValue(Settings.ConfigOption.CIRCUIT_BREAKER_OPEN_DURATION_MILLISECONDS),
+                plugin.getMetrics(), plugin.getLoggingAdapter());
+    }
+
+    /**
+     * Returns whether the redis server is currently accepting requests.
+     * <p>
+     * While redis is unavailable, requests fail fast; server switches are not detected and data is read from the
+     * database only.
+     *
+     * @return {@code true} if the redis server is healthy
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isAvailable();
+    }
+
+    /**
+     * Get a connection from the pool, failing fast if the redis server is unhealthy
+     *
+     * @return a pooled {@link Jedis} connection
+     * @throws RedisUnavailableException if the redis server is unavailable
+     */
+    @NotNull
+    private Jedis getResource() throws RedisUnavailableException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new RedisUnavailableException("The redis server is currently unavailable", null);
+        }
+        try {
+            final Jedis jedis = jedisPool.getResource();
+            circuitBreaker.recordSuccess();
+            return jedis;
+        } catch (JedisException e) {
+            circuitBreaker.recordFailure();
+            throw new RedisUnavailableException("Failed to connect to the redis server", e);
+        }
     }
 
     /**
@@ -95,6 +140,8 @@ public class RedisManager {
                                     }
                                 });
                             });
+                        } else if (messageType == RedisMessageType.UPDATE_COMPRESSION_DICTIONARY) {
+                            loadCompressionDictionary(message);
                         }
                     });
                 }
@@ -103,14 +150,42 @@ public class RedisManager {
     }
 
     protected void sendMessage(@NotNull String channel, @NotNull String message) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = getResource()) {
             jedis.publish(channel, message);
         }
     }
 
+    /**
+     * Load a newly trained compression dictionary announced by another server, and compress data with it from now on
+     *
+     * @param message the message, containing the ID of the dictionary
+     */
+    private void loadCompressionDictionary(@NotNull String message) {
+        final int dictionaryId;
+        try {
+            dictionaryId = Integer.parseInt(message);
+        } catch (NumberFormatException e) {
+            plugin.getLoggingAdapter().log(Level.WARNING, "Received an invalid compression dictionary update: " + message);
+            return;
+        }
+        plugin.getCompressionCodecs().loadDictionary(dictionaryId).thenAccept(dictionary -> dictionary.ifPresent(
+                loaded -> plugin.getCompressionCodecs().registerDictionary(loaded, true)));
+    }
+
+    /**
+     * Notify other servers that a new compression dictionary has been trained, so that they compress data with it
+     *
+     * @param dictionaryId the ID of the new dictionary
+     */
+    public void sendCompressionDictionaryUpdate(final int dictionaryId) {
+        CompletableFuture.runAsync(() -> sendMessage(RedisMessageType.UPDATE_COMPRESSION_DICTIONARY.getMessageChannel(),
+                Integer.toString(dictionaryId)));
+    }
+
     public CompletableFuture<Void> sendUserDataUpdate(@NotNull User user, @NotNull UserData userData) {
         return CompletableFuture.runAsync(() -> {
-            final RedisMessage redisMessage = new RedisMessage(user.uuid, plugin.getDataAdapter().toBytes(userData));
+            final RedisMessage redisMessage = new RedisMessage(user.uuid, plugin.getDataAdapter().toBytes(userData,
+                    CompressionPolicy.Destination.REDIS));
             redisMessage.dispatch(this, RedisMessageType.UPDATE_USER_DATA);
         });
     }
@@ -123,34 +198,113 @@ public class RedisManager {
      * @return a future returning void when complete
      */
     public CompletableFuture<Void> setUserData(@NotNull User user, @NotNull UserData userData) {
-        try {
-            return CompletableFuture.runAsync(() -> {
-                try (Jedis jedis = jedisPool.getResource()) {
-                    // Set the user's data as a compressed byte array of the json using Snappy
-                    jedis.setex(getKey(RedisKeyType.DATA_UPDATE, user.uuid),
-                            RedisKeyType.DATA_UPDATE.timeToLive,
-                            plugin.getDataAdapter().toBytes(userData));
-                    plugin.getLoggingAdapter().debug("[" + user.username + "] Set " + RedisKeyType.DATA_UPDATE.name()
-                                                     + " key to redis at: " +
-                                                     new SimpleDateFormat("mm:ss.SSS").format(new Date()));
+        return CompletableFuture.runAsync(() -> {
+            if (!isAvailable()) {
+                return;
+            }
+            try (Jedis jedis = getResource()) {
+                // Set the user's data as a byte array, compressed for a fast handoff
+                jedis.setex(getKey(RedisKeyType.DATA_UPDATE, user.uuid),
+                        RedisKeyType.DATA_UPDATE.timeToLive,
+                        plugin.getDataAdapter().toBytes(userData, CompressionPolicy.Destination.REDIS));
+                plugin.getLoggingAdapter().debug("[" + user.username + "] Set " + RedisKeyType.DATA_UPDATE.name()
+                                                 + " key to redis at: " +
+                                                 new SimpleDateFormat("mm:ss.SSS").format(new Date()));
+            } catch (Exception e) {
+                handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Cache a user's data on the Redis server, to be read in place of the database until it has been written there.
+     * The data is cached with the time it was cached at, so that it can be compared with the latest data in the
+     * database
+     *
+     * @param user     the user to cache data for
+     * @param userData the user's data to cache
+     * @return a future returning void when complete
+     */
+    public CompletableFuture<Void> setUserCache(@NotNull User user, @NotNull UserData userData) {
+        return CompletableFuture.runAsync(() -> {
+            if (!isAvailable()) {
+                return;
+            }
+            try (Jedis jedis = getResource()) {
+                final byte[] data = plugin.getDataAdapter().toBytes(userData);
+                jedis.setex(getKey(RedisKeyType.CACHE, user.uuid), RedisKeyType.CACHE.timeToLive,
+                        ByteBuffer.allocate(Long.BYTES + data.length)
+                                .putLong(System.currentTimeMillis()).put(data).array());
+                plugin.getLoggingAdapter().debug("[" + user.username + "] Set " + RedisKeyType.CACHE.name()
+                                                 + " key to redis at: " +
+                                                 new SimpleDateFormat("mm:ss.SSS").format(new Date()));
+            } catch (Exception e) {
+                handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Clear a user's cached data from the Redis server, once their data has been saved to the database
+     *
+     * @param user the user to clear the cached data of
+     * @return a future returning void when complete
+     */
+    public CompletableFuture<Void> clearUserCache(@NotNull User user) {
+        return CompletableFuture.runAsync(() -> {
+            if (!isAvailable()) {
+                return;
+            }
+            try (Jedis jedis = getResource()) {
+                jedis.del(getKey(RedisKeyType.CACHE, user.uuid));
+            } catch (Exception e) {
+                handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Fetch a user's cached data from the Redis server, without consuming it
+     *
+     * @param user the user to fetch cached data for
+     * @return the user's cached data, if present. Otherwise, an empty optional.
+     */
+    public CompletableFuture<Optional<CachedUserData>> getUserCache(@NotNull User user) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!isAvailable()) {
+                return Optional.empty();
+            }
+            try (Jedis jedis = getResource()) {
+                final byte[] dataByteArray = jedis.get(getKey(RedisKeyType.CACHE, user.uuid));
+                if (dataByteArray == null) {
+                    return Optional.empty();
                 }
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
+                plugin.getLoggingAdapter().debug("[" + user.username + "] Successfully read "
+                                                 + RedisKeyType.CACHE.name() + " key from redis at: " +
+                                                 new SimpleDateFormat("mm:ss.SSS").format(new Date()));
+                final long timestamp = ByteBuffer.wrap(dataByteArray).getLong();
+                return Optional.of(new CachedUserData(plugin.getDataAdapter().fromBytes(
+                        Arrays.copyOfRange(dataByteArray, Long.BYTES, dataByteArray.length)), timestamp));
+            } catch (Exception e) {
+                handleException(e);
+                return Optional.empty();
+            }
+        });
     }
 
     public CompletableFuture<Void> setUserServerSwitch(@NotNull User user) {
         return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            if (!isAvailable()) {
+                return;
+            }
+            try (Jedis jedis = getResource()) {
                 jedis.setex(getKey(RedisKeyType.SERVER_SWITCH, user.uuid),
                         RedisKeyType.SERVER_SWITCH.timeToLive, new byte[0]);
                 plugin.getLoggingAdapter().debug("[" + user.username + "] Set " + RedisKeyType.SERVER_SWITCH.name()
                                                  + " key to redis at: " +
                                                  new SimpleDateFormat("mm:ss.SSS").format(new Date()));
             } catch (Exception e) {
-                e.printStackTrace();
+                handleException(e);
             }
         });
     }
@@ -163,7 +317,10 @@ public class RedisManager {
      */
     public CompletableFuture<Optional<UserData>> getUserData(@NotNull User user) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            if (!isAvailable()) {
+                return Optional.empty();
+            }
+            try (Jedis jedis = getResource()) {
                 final byte[] key = getKey(RedisKeyType.DATA_UPDATE, user.uuid);
                 final byte[] dataByteArray = jedis.get(key);
                 if (dataByteArray == null) {
@@ -182,7 +339,7 @@ public class RedisManager {
                 // Use Snappy to decompress the json
                 return Optional.of(plugin.getDataAdapter().fromBytes(dataByteArray));
             } catch (Exception e) {
-                e.printStackTrace();
+                handleException(e);
                 return Optional.empty();
             }
         });
@@ -190,7 +347,11 @@ public class RedisManager {
 
     public CompletableFuture<Boolean> getUserServerSwitch(@NotNull User user) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            // Without redis, server switches can't be detected, so data is read from the database
+            if (!isAvailable()) {
+                return false;
+            }
+            try (Jedis jedis = getResource()) {
                 final byte[] key = getKey(RedisKeyType.SERVER_SWITCH, user.uuid);
                 final byte[] readData = jedis.get(key);
                 if (readData == null) {
@@ -207,7 +368,7 @@ public class RedisManager {
                 jedis.del(key);
                 return true;
             } catch (Exception e) {
-                e.printStackTrace();
+                handleException(e);
                 return false;
             }
         });
@@ -221,8 +382,45 @@ public class RedisManager {
         }
     }
 
+    /**
+     * Handle an exception thrown while communicating with the redis server, recording connection failures
+     *
+     * @param e the exception
+     */
+    private void handleException(@NotNull Exception e) {
+        if (e instanceof JedisConnectionException) {
+            // Failures acquiring a connection have already been recorded
+            if (!(e instanceof RedisUnavailableException)) {
+                circuitBreaker.recordFailure();
+            }
+            plugin.getLoggingAdapter().debug("Redis request failed: " + e.getMessage());
+            return;
+        }
+        e.printStackTrace();
+    }
+
+    /**
+     * Thrown when a connection to the redis server could not be acquired, or requests are failing fast
+     */
+    private static final class RedisUnavailableException extends JedisConnectionException {
+
+        private RedisUnavailableException(@NotNull String message, Throwable cause) {
+            super(message, cause);
+        }
+
+    }
+
     private static byte[] getKey(@NotNull RedisKeyType keyType, @NotNull UUID uuid) {
         return (keyType.getKeyPrefix() + ":" + uuid).getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * A user's data cached on the Redis server
+     *
+     * @param userData  the cached data
+     * @param timestamp the epoch millisecond timestamp of when the data was cached
+     */
+    public record CachedUserData(@NotNull UserData userData, long timestamp) {
+    }
+
 }
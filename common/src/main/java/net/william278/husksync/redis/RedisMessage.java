@@ -1,5 +1,6 @@
 package net.william278.husksync.redis;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import org.jetbrains.annotations.NotNull;
@@ -9,6 +10,8 @@ import java.util.concurrent.CompletableFuture;
 
 public class RedisMessage {
 
+    private static final Gson GSON = new GsonBuilder().create();
+
     public UUID targetUserUuid;
     public byte[] data;
 
@@ -22,12 +25,12 @@ public class RedisMessage {
 
     public void dispatch(@NotNull RedisManager redisManager, @NotNull RedisMessageType type) {
         CompletableFuture.runAsync(() -> redisManager.sendMessage(type.getMessageChannel(),
-                new GsonBuilder().create().toJson(this)));
+                GSON.toJson(this)));
     }
 
     @NotNull
     public static RedisMessage fromJson(@NotNull String json) throws JsonSyntaxException {
-        return new GsonBuilder().create().fromJson(json, RedisMessage.class);
+        return GSON.fromJson(json, RedisMessage.class);
     }
 
 }
\ No newline at end of file
@@ -7,7 +7,8 @@ import java.util.Optional;
 
 public enum RedisMessageType {
 
-    UPDATE_USER_DATA;
+    UPDATE_USER_DATA,
+    UPDATE_COMPRESSION_DICTIONARY;
 
     @NotNull
     public String getMessageChannel() {
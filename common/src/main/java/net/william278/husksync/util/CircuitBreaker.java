@@ -0,0 +1,157 @@
+package net.william278.husksync.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the health of a backend service, failing requests fast while it is unhealthy.
+ * <p>
+ * The breaker opens after a number of consecutive failures. While open, requests are rejected without contacting the
+ * backend. Once the open duration has elapsed, a single probe request is let through (half-open); if it succeeds the
+ * breaker closes, otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final PerformanceMetrics metrics;
+    private final Logger logger;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(@NotNull String name, final int failureThreshold, final long openDurationMillis,
+                          @NotNull PerformanceMetrics metrics, @NotNull Logger logger) {
+        this(name, failureThreshold, openDurationMillis, metrics, logger, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(@NotNull String name, final int failureThreshold, final long openDurationMillis,
+                          @NotNull PerformanceMetrics metrics, @NotNull Logger logger, @NotNull LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMillis = Math.max(0, openDurationMillis);
+        this.metrics = metrics;
+        this.logger = logger;
+        this.clock = clock;
+        metrics.registerGauge(getMetricName("state"), () -> getState().ordinal());
+    }
+
+    /**
+     * Attempt to acquire permission to make a request to the backend
+     *
+     * @return {@code true} if the request may proceed; {@code false} if it should fail fast
+     * @implNote Callers that are permitted must report the outcome with {@link #recordSuccess()} or {@link #recordFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN -> {
+                if (clock.getAsLong() - openedAt < openDurationMillis) {
+                    metrics.increment(getMetricName("rejected"));
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            }
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    metrics.increment(getMetricName("rejected"));
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a request would currently be let through, without acquiring permission to make it
+     *
+     * @return {@code true} if the backend is healthy or due to be probed
+     */
+    public synchronized boolean isAvailable() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> clock.getAsLong() - openedAt >= openDurationMillis;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /**
+     * Record a successful request, closing the breaker if it was being probed
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    /**
+     * Record a failed request, opening the breaker if the failure threshold has been reached or a probe failed
+     */
+    public synchronized void recordFailure() {
+        metrics.increment(getMetricName("failures"));
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = clock.getAsLong();
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Returns the current {@link State} of the breaker
+     *
+     * @return the breaker state
+     */
+    @NotNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void transition(@NotNull State newState) {
+        if (newState == State.OPEN && state == State.CLOSED) {
+            logger.severe("The " + name + " connection appears to be unhealthy; failing requests fast for "
+                          + openDurationMillis + "ms before retrying");
+        } else if (newState == State.CLOSED) {
+            logger.info("The " + name + " connection has recovered");
+        }
+        state = newState;
+        metrics.increment(getMetricName("transitions." + newState.name().toLowerCase(Locale.ENGLISH)));
+    }
+
+    @NotNull
+    private String getMetricName(@NotNull String metric) {
+        return "circuit_breaker." + name + "." + metric;
+    }
+
+    /**
+     * The states a {@link CircuitBreaker} can be in
+     */
+    public enum State {
+        /**
+         * Requests are let through as normal
+         */
+        CLOSED,
+        /**
+         * Requests fail fast without contacting the backend
+         */
+        OPEN,
+        /**
+         * A single probe request is let through to test whether the backend has recovered
+         */
+        HALF_OPEN
+    }
+
+}
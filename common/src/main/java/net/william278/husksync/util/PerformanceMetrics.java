@@ -0,0 +1,135 @@
+package net.william278.husksync.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A lightweight, thread-safe registry of named runtime counters, timers and gauges, used to expose plugin health
+ */
+public class PerformanceMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Increment a named counter by one
+     *
+     * @param name the name of the counter
+     */
+    public void increment(@NotNull String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Add to a named counter
+     *
+     * @param name  the name of the counter
+     * @param delta the amount to add
+     */
+    public void add(@NotNull String name, final long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Returns the current value of a named counter
+     *
+     * @param name the name of the counter
+     * @return the counter value, or {@code 0} if it has not been incremented
+     */
+    public long getCounter(@NotNull String name) {
+        final LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Record a duration against a named timer
+     *
+     * @param name          the name of the timer
+     * @param durationNanos the duration, in nanoseconds
+     */
+    public void recordTime(@NotNull String name, final long durationNanos) {
+        timers.computeIfAbsent(name, key -> new Timer()).record(durationNanos);
+    }
+
+    /**
+     * Returns a named timer, if any durations have been recorded against it
+     *
+     * @param name the name of the timer
+     * @return the {@link Timer}, or {@code null} if no durations have been recorded
+     */
+    public Timer getTimer(@NotNull String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * Register a gauge, which is sampled each time the metrics are read
+     *
+     * @param name  the name of the gauge
+     * @param gauge supplier of the current gauge value
+     */
+    public void registerGauge(@NotNull String name, @NotNull LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Returns a sorted, human-readable snapshot of all metrics
+     *
+     * @return map of metric names to their formatted values
+     */
+    @NotNull
+    public Map<String, String> getSnapshot() {
+        final TreeMap<String, String> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, Long.toString(counter.sum())));
+        gauges.forEach((name, gauge) -> snapshot.put(name, Long.toString(gauge.getAsLong())));
+        timers.forEach((name, timer) -> snapshot.put(name, timer.toString()));
+        return snapshot;
+    }
+
+    /**
+     * Tracks the count, mean and maximum of recorded durations
+     */
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(final long durationNanos) {
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulate(durationNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanMillis() {
+            final long count = getCount();
+            return count == 0 ? 0 : getTotalNanos() / (double) count / 1_000_000d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d samples, mean %.2fms, max %.2fms",
+                    getCount(), getMeanMillis(), getMaxNanos() / 1_000_000d);
+        }
+
+    }
+
+}
@@ -18,4 +18,26 @@ CREATE TABLE IF NOT EXISTS `%user_data_table%`
     `data`         longblob    NOT NULL,
     PRIMARY KEY (`version_uuid`, `player_uuid`),
     FOREIGN KEY (`player_uuid`) REFERENCES `%users_table%` (`uuid`) ON DELETE CASCADE
+);
+
+# Create the user data archive table if it does not exist
+CREATE TABLE IF NOT EXISTS `%user_data_archive_table%`
+(
+    `version_uuid` char(36)    NOT NULL UNIQUE,
+    `player_uuid`  char(36)    NOT NULL,
+    `timestamp`    datetime    NOT NULL,
+    `save_cause`   varchar(32) NOT NULL,
+    `pinned`       boolean     NOT NULL DEFAULT FALSE,
+    `data`         longblob    NOT NULL,
+    PRIMARY KEY (`version_uuid`, `player_uuid`),
+    FOREIGN KEY (`player_uuid`) REFERENCES `%users_table%` (`uuid`) ON DELETE CASCADE
+);
+
+# Create the compression dictionaries table if it does not exist
+CREATE TABLE IF NOT EXISTS `%compression_dictionaries_table%`
+(
+    `id`         int        NOT NULL AUTO_INCREMENT,
+    `timestamp`  datetime   NOT NULL,
+    `dictionary` mediumblob NOT NULL,
+    PRIMARY KEY (`id`)
 );
\ No newline at end of file
@@ -9,7 +9,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -86,6 +89,66 @@ public class DataAdaptionTests {
         Assertions.assertTrue(isEquals.get());
     }
 
+    @Test
+    public void testBinaryDataAdapter() {
+        final OnlineUser dummyUser = DummyPlayer.create();
+        dummyUser.getUserData(new DummyLogger(), DummySettings.get()).join().ifPresent(dummyUserData -> {
+            final String expectedJson = new JsonDataAdapter().toJson(dummyUserData, false);
+            for (boolean compress : new boolean[]{false, true}) {
+                final DataAdapter dataAdapter = new BinaryDataAdapter(compress);
+                final byte[] data = dataAdapter.toBytes(dummyUserData);
+                Assertions.assertTrue(data.length < expectedJson.length());
+                Assertions.assertEquals(expectedJson, dataAdapter.toJson(dataAdapter.fromBytes(data), false));
+            }
+        });
+    }
+
+    @Test
+    public void testBinaryDataAdapterReadsLegacyData() {
+        final OnlineUser dummyUser = DummyPlayer.create();
+        dummyUser.getUserData(new DummyLogger(), DummySettings.get()).join().ifPresent(dummyUserData -> {
+            final String expectedJson = new JsonDataAdapter().toJson(dummyUserData, false);
+            final DataAdapter binaryDataAdapter = new BinaryDataAdapter(true);
+            for (DataAdapter legacyDataAdapter : new DataAdapter[]{new JsonDataAdapter(), new CompressedDataAdapter()}) {
+                final byte[] legacyData = legacyDataAdapter.toBytes(dummyUserData);
+                Assertions.assertEquals(expectedJson, binaryDataAdapter.toJson(binaryDataAdapter.fromBytes(legacyData), false));
+
+                // Data written in the binary format can also be read by the legacy adapters
+                final byte[] binaryData = binaryDataAdapter.toBytes(dummyUserData);
+                Assertions.assertEquals(expectedJson, legacyDataAdapter.toJson(legacyDataAdapter.fromBytes(binaryData), false));
+            }
+        });
+    }
+
+    @Test
+    public void testBinaryDataAdapterDecodesSections() {
+        final OnlineUser dummyUser = DummyPlayer.create();
+        dummyUser.getUserData(new DummyLogger(), DummySettings.get()).join().ifPresent(dummyUserData -> {
+            final DataAdapter dataAdapter = new BinaryDataAdapter(true);
+            final UserData decoded = dataAdapter.decodeSections(dataAdapter.toBytes(dummyUserData),
+                    EnumSet.of(UserDataSection.STATUS, UserDataSection.INVENTORY));
+            Assertions.assertEquals(dummyUserData.getStatusData().health, decoded.getStatusData().health);
+            Assertions.assertEquals(dummyUserData.getInventoryData().serializedItems, decoded.getInventoryData().serializedItems);
+            Assertions.assertNull(decoded.getStatisticsData());
+            Assertions.assertNull(decoded.getAdvancementData());
+            Assertions.assertEquals(dummyUserData.getMinecraftVersion(), decoded.getMinecraftVersion());
+        });
+    }
+
+    @Test
+    public void testBinaryDataAdapterWritesCompactItemsRaw() {
+        final OnlineUser dummyUser = DummyPlayer.create();
+        dummyUser.getUserData(new DummyLogger(), DummySettings.get()).join().ifPresent(dummyUserData -> {
+            final byte[] compactItems = {1, 41, 1, 0, 2, 4, 't', 'y', 'p', 'e', 1, 5, 'S', 'T', 'O', 'N', 'E'};
+            dummyUserData.getInventoryData().serializedItems = ItemData.fromCompactItems(compactItems).serializedItems;
+
+            final DataAdapter dataAdapter = new BinaryDataAdapter(false);
+            final UserData decoded = dataAdapter.fromBytes(dataAdapter.toBytes(dummyUserData));
+            Assertions.assertArrayEquals(compactItems, decoded.getInventoryData().getCompactItems().orElseThrow());
+            Assertions.assertEquals(dummyUserData.getEnderChestData().serializedItems, decoded.getEnderChestData().serializedItems);
+        });
+    }
+
     private String getTestSerializedPersistentDataContainer() {
         final HashMap<String, PersistentDataTag<?>> persistentDataTest = new HashMap<>();
         persistentDataTest.put("husksync:byte_test", new PersistentDataTag<>(BukkitPersistentDataTagType.BYTE, 0x01));
@@ -103,6 +166,60 @@ public class DataAdaptionTests {
         return dataAdapter.toJson(userData, false);
     }
 
+    @Test
+    public void testStatisticsArePacked() {
+        final String json = "{\"statistics\":{\"untyped_statistics\":{\"PLAY_ONE_MINUTE\":1200,\"JUMP\":-3},\"block_statistics\":{\"MINE_BLOCK\":{\"STONE\":64,\"DIRT\":12}},\"item_statistics\":{},\"entity_statistics\":{\"KILL_ENTITY\":{\"ZOMBIE\":7}}},\"format_version\":2}";
+        final JsonDataAdapter jsonAdapter = new JsonDataAdapter();
+        final UserData userData = jsonAdapter.fromBytes(json.getBytes(StandardCharsets.UTF_8));
+        final StatisticsData statistics = userData.getStatisticsData();
+        Assertions.assertInstanceOf(PackedStatisticMap.class, statistics.untypedStatistics);
+        Assertions.assertInstanceOf(PackedStatisticMap.class, statistics.blockStatistics.get("MINE_BLOCK"));
+        Assertions.assertEquals(1200, statistics.untypedStatistics.get("PLAY_ONE_MINUTE"));
+        Assertions.assertEquals(Map.of("STONE", 64, "DIRT", 12), statistics.blockStatistics.get("MINE_BLOCK"));
+        Assertions.assertEquals(json, new String(jsonAdapter.toBytes(userData), StandardCharsets.UTF_8));
+
+        final DataAdapter binaryAdapter = new BinaryDataAdapter(false);
+        final StatisticsData binaryStatistics = binaryAdapter.fromBytes(binaryAdapter.toBytes(userData)).getStatisticsData();
+        Assertions.assertEquals(statistics.untypedStatistics, binaryStatistics.untypedStatistics);
+        Assertions.assertEquals(statistics.entityStatistics, binaryStatistics.entityStatistics);
+    }
+
+    @Test
+    public void testUnknownStatisticsAreNotIndexed() {
+        StatisticKeyIndex.register("WALK_ONE_CM");
+        final String json = "{\"statistics\":{\"untyped_statistics\":{\"WALK_ONE_CM\":500,\"HUSKSYNC_UNKNOWN_STATISTIC\":4},\"block_statistics\":{},\"item_statistics\":{},\"entity_statistics\":{}},\"format_version\":2}";
+        final JsonDataAdapter jsonAdapter = new JsonDataAdapter();
+        final UserData userData = jsonAdapter.fromBytes(json.getBytes(StandardCharsets.UTF_8));
+        final Map<String, Integer> untypedStatistics = userData.getStatisticsData().untypedStatistics;
+        Assertions.assertEquals(-1, StatisticKeyIndex.findId("HUSKSYNC_UNKNOWN_STATISTIC"));
+        Assertions.assertEquals(Map.of("WALK_ONE_CM", 500, "HUSKSYNC_UNKNOWN_STATISTIC", 4), untypedStatistics);
+        Assertions.assertEquals(json, new String(jsonAdapter.toBytes(userData), StandardCharsets.UTF_8));
+
+        final DataAdapter binaryAdapter = new BinaryDataAdapter(false);
+        Assertions.assertEquals(untypedStatistics, binaryAdapter.fromBytes(binaryAdapter.toBytes(userData))
+                .getStatisticsData().untypedStatistics);
+
+        untypedStatistics.entrySet().removeIf(entry -> entry.getKey().equals("HUSKSYNC_UNKNOWN_STATISTIC"));
+        Assertions.assertEquals(Map.of("WALK_ONE_CM", 500), untypedStatistics);
+    }
+
+    @Test
+    public void testAdvancementsUseInternedKeys() {
+        final String json = "{\"advancements\":[{\"key\":\"minecraft:recipes/building_blocks/stone_bricks\",\"completed_criteria\":{\"has_the_recipe\":1666000000000,\"has_stone\":1666000000500}},{\"key\":\"husksync:custom\",\"completed_criteria\":{\"has_stone\":1666000001000}}],\"format_version\":2}";
+        final UserData userData = new JsonDataAdapter().fromBytes(json.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertInstanceOf(PackedCriteriaMap.class, userData.getAdvancementData().get(0).completedCriteria);
+
+        final DataAdapter binaryAdapter = new BinaryDataAdapter(false);
+        final byte[] data = binaryAdapter.toBytes(userData);
+        Assertions.assertFalse(new String(data, StandardCharsets.UTF_8).contains("minecraft:recipes"));
+        final List<AdvancementData> advancements = binaryAdapter.fromBytes(data).getAdvancementData();
+        Assertions.assertEquals(2, advancements.size());
+        Assertions.assertEquals("minecraft:recipes/building_blocks/stone_bricks", advancements.get(0).key);
+        Assertions.assertEquals(new Date(1666000000500L), advancements.get(0).completedCriteria.get("has_stone"));
+        Assertions.assertEquals("husksync:custom", advancements.get(1).key);
+        Assertions.assertEquals(new Date(1666000001000L), advancements.get(1).completedCriteria.get("has_stone"));
+    }
+
     @Test
     public void testPersistentDataContainerSerialization() {
         Assertions.assertEquals(getTestSerializedPersistentDataContainer(), "{\"persistent_data_container\":{\"persistent_data_map\":{\"husksync:int_test\":{\"type\":\"INTEGER\",\"value\":3},\"husksync:string_test\":{\"type\":\"STRING\",\"value\":\"test\"},\"husksync:long_test\":{\"type\":\"LONG\",\"value\":4},\"husksync:byte_test\":{\"type\":\"BYTE\",\"value\":1},\"husksync:short_test\":{\"type\":\"SHORT\",\"value\":6},\"husksync:double_test\":{\"type\":\"DOUBLE\",\"value\":2.0},\"husksync:float_test\":{\"type\":\"FLOAT\",\"value\":5.0}}},\"format_version\":0}");
@@ -116,7 +233,14 @@ public class DataAdaptionTests {
 
         public static DummySettings get() {
             return new DummySettings(Map.of(
-                    ConfigOption.SYNCHRONIZATION_SAVE_DEAD_PLAYER_INVENTORIES, true
+                    ConfigOption.SYNCHRONIZATION_SAVE_DEAD_PLAYER_INVENTORIES, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_INVENTORIES, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_ENDER_CHESTS, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_POTION_EFFECTS, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_ADVANCEMENTS, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_STATISTICS, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_LOCATION, true,
+                    ConfigOption.SYNCHRONIZATION_SYNC_PERSISTENT_DATA_CONTAINER, true
             ));
         }
     }
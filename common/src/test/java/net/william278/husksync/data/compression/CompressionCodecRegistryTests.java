@@ -0,0 +1,96 @@
+package net.william278.husksync.data.compression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for compressing and decompressing data with the {@link CompressionCodecRegistry}
+ */
+public class CompressionCodecRegistryTests {
+
+    private static final byte[] DATA = "{\"status\":{\"health\":20.0,\"max_health\":20.0,\"hunger\":20,\"saturation\":5.0}}"
+            .repeat(8).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testCodecsRoundTrip() throws IOException {
+        for (CompressionCodec.Type type : new CompressionCodec.Type[]{CompressionCodec.Type.SNAPPY,
+                CompressionCodec.Type.LZ4, CompressionCodec.Type.ZSTD}) {
+            final CompressionCodecRegistry registry = new CompressionCodecRegistry(type, 3);
+            final byte[] compressed = registry.compress(DATA);
+            Assertions.assertEquals(type != CompressionCodec.Type.SNAPPY, CompressionCodecRegistry.isTagged(compressed));
+
+            // Any registry can read data compressed by another codec
+            Assertions.assertArrayEquals(DATA, new CompressionCodecRegistry().decompress(compressed));
+        }
+    }
+
+    @Test
+    public void testReadsUntaggedSnappyData() throws IOException {
+        final CompressionCodecRegistry registry = new CompressionCodecRegistry(CompressionCodec.Type.ZSTD, 3);
+        Assertions.assertArrayEquals(DATA, registry.decompress(Snappy.compress(DATA)));
+    }
+
+    @Test
+    public void testDictionaryIsLoadedOnDemand() throws IOException {
+        final CompressionCodecRegistry registry = new CompressionCodecRegistry(CompressionCodec.Type.ZSTD_DICTIONARY, 3);
+        Assertions.assertEquals(CompressionCodec.Type.ZSTD, registry.getActiveCodec().getType());
+
+        // zstd accepts any content as a raw dictionary
+        final CompressionDictionary dictionary = new CompressionDictionary(1, DATA);
+        registry.registerDictionary(dictionary, true);
+        Assertions.assertEquals(CompressionCodec.Type.ZSTD_DICTIONARY, registry.getActiveCodec().getType());
+        final byte[] compressed = registry.compress(DATA);
+
+        final CompressionCodecRegistry reader = new CompressionCodecRegistry();
+        Assertions.assertThrows(IOException.class, () -> reader.decompress(compressed));
+        reader.setDictionaryLoader(id -> CompletableFuture.completedFuture(
+                id == dictionary.id() ? Optional.of(dictionary) : Optional.empty()));
+        Assertions.assertArrayEquals(DATA, reader.decompress(compressed));
+    }
+
+    @Test
+    public void testUnloadedDictionaryFailsFast() throws IOException {
+        final CompressionCodecRegistry registry = new CompressionCodecRegistry(CompressionCodec.Type.ZSTD_DICTIONARY, 3);
+        final CompressionDictionary dictionary = new CompressionDictionary(1, DATA);
+        registry.registerDictionary(dictionary, true);
+        final byte[] compressed = registry.compress(DATA);
+
+        // Reading does not wait for a pending load, but the data is readable once the load completes
+        final CompletableFuture<Optional<CompressionDictionary>> load = new CompletableFuture<>();
+        final CompressionCodecRegistry reader = new CompressionCodecRegistry();
+        reader.setDictionaryLoader(id -> load);
+        Assertions.assertThrows(IOException.class, () -> reader.decompress(compressed));
+        load.complete(Optional.of(dictionary));
+        Assertions.assertArrayEquals(DATA, reader.decompress(compressed));
+    }
+
+    @Test
+    public void testMissingDictionaryIsNotLoadedAgain() throws IOException {
+        final CompressionCodecRegistry registry = new CompressionCodecRegistry(CompressionCodec.Type.ZSTD_DICTIONARY, 3);
+        final CompressionDictionary dictionary = new CompressionDictionary(1, DATA);
+        registry.registerDictionary(dictionary, true);
+        final byte[] compressed = registry.compress(DATA);
+
+        final AtomicInteger loads = new AtomicInteger();
+        final CompressionCodecRegistry reader = new CompressionCodecRegistry();
+        reader.setDictionaryLoader(id -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(Optional.empty());
+        });
+        Assertions.assertThrows(IOException.class, () -> reader.decompress(compressed));
+        Assertions.assertThrows(IOException.class, () -> reader.decompress(compressed));
+        Assertions.assertEquals(1, loads.get());
+
+        // Registering the dictionary, such as when it is announced by another server, makes the data readable
+        reader.registerDictionary(dictionary, false);
+        Assertions.assertArrayEquals(DATA, reader.decompress(compressed));
+    }
+
+}
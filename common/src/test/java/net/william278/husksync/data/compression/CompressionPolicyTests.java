@@ -0,0 +1,34 @@
+package net.william278.husksync.data.compression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+/**
+ * Tests for the {@link CompressionPolicy} codec selection rules
+ */
+public class CompressionPolicyTests {
+
+    private final CompressionPolicy policy = new CompressionPolicy(512, 65536,
+            CompressionCodec.Type.LZ4, CompressionCodec.Type.ZSTD, null);
+
+    @Test
+    public void testSmallPayloadsAreNotCompressed() {
+        Assertions.assertEquals(Optional.empty(), policy.selectCodec(100,
+                CompressionPolicy.Destination.DATABASE, CompressionCodec.Type.SNAPPY));
+        Assertions.assertEquals(Optional.empty(), policy.selectCodec(100,
+                CompressionPolicy.Destination.REDIS, CompressionCodec.Type.SNAPPY));
+    }
+
+    @Test
+    public void testCodecDependsOnDestinationAndSize() {
+        Assertions.assertEquals(Optional.of(CompressionCodec.Type.LZ4), policy.selectCodec(100_000,
+                CompressionPolicy.Destination.REDIS, CompressionCodec.Type.SNAPPY));
+        Assertions.assertEquals(Optional.of(CompressionCodec.Type.SNAPPY), policy.selectCodec(4096,
+                CompressionPolicy.Destination.DATABASE, CompressionCodec.Type.SNAPPY));
+        Assertions.assertEquals(Optional.of(CompressionCodec.Type.ZSTD), policy.selectCodec(100_000,
+                CompressionPolicy.Destination.DATABASE, CompressionCodec.Type.SNAPPY));
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.william278.husksync.database;
+
+import net.william278.husksync.data.DataSaveCause;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the {@link RetentionPolicy} pruning rules
+ */
+public class RetentionPolicyTests {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(365);
+
+    @Test
+    public void testMaxSnapshotsKeepsNewestAndPinned() {
+        final RetentionPolicy policy = new RetentionPolicy(2, Map.of(), List.of());
+        final RetentionPolicy.SnapshotMetadata pinned = snapshot(TimeUnit.HOURS.toMillis(10), DataSaveCause.DISCONNECT, true);
+        final RetentionPolicy.SnapshotMetadata newest = snapshot(TimeUnit.HOURS.toMillis(1), DataSaveCause.DISCONNECT, false);
+        final RetentionPolicy.SnapshotMetadata middle = snapshot(TimeUnit.HOURS.toMillis(2), DataSaveCause.DISCONNECT, false);
+        final RetentionPolicy.SnapshotMetadata oldest = snapshot(TimeUnit.HOURS.toMillis(3), DataSaveCause.DISCONNECT, false);
+
+        final List<UUID> pruned = policy.getSnapshotsToPrune(List.of(oldest, pinned, newest, middle), NOW);
+        Assertions.assertEquals(List.of(oldest.versionUuid()), pruned);
+    }
+
+    @Test
+    public void testCauseLimits() {
+        final RetentionPolicy policy = new RetentionPolicy(10, Map.of(DataSaveCause.WORLD_SAVE, 1), List.of());
+        final RetentionPolicy.SnapshotMetadata worldSave = snapshot(TimeUnit.MINUTES.toMillis(1), DataSaveCause.WORLD_SAVE, false);
+        final RetentionPolicy.SnapshotMetadata disconnect = snapshot(TimeUnit.MINUTES.toMillis(2), DataSaveCause.DISCONNECT, false);
+        final RetentionPolicy.SnapshotMetadata olderWorldSave = snapshot(TimeUnit.MINUTES.toMillis(3), DataSaveCause.WORLD_SAVE, false);
+
+        final List<UUID> pruned = policy.getSnapshotsToPrune(List.of(worldSave, disconnect, olderWorldSave), NOW);
+        Assertions.assertEquals(List.of(olderWorldSave.versionUuid()), pruned);
+    }
+
+    @Test
+    public void testAgeBucketsThinHistory() {
+        final RetentionPolicy policy = new RetentionPolicy(100, Map.of(), List.of(
+                new RetentionPolicy.AgeBucket(RetentionPolicy.parseDuration("30d"), RetentionPolicy.parseDuration("1d")),
+                new RetentionPolicy.AgeBucket(RetentionPolicy.parseDuration("1d"), RetentionPolicy.parseDuration("1h"))));
+
+        // Snapshots every 20 minutes for the last 2 days, and one from 60 days ago
+        final List<RetentionPolicy.SnapshotMetadata> snapshots = new ArrayList<>();
+        for (long age = 0; age < TimeUnit.DAYS.toMillis(2); age += TimeUnit.MINUTES.toMillis(20)) {
+            snapshots.add(snapshot(age, DataSaveCause.WORLD_SAVE, false));
+        }
+        final RetentionPolicy.SnapshotMetadata expired = snapshot(TimeUnit.DAYS.toMillis(60), DataSaveCause.WORLD_SAVE, false);
+        snapshots.add(expired);
+
+        final Set<UUID> pruned = new HashSet<>(policy.getSnapshotsToPrune(snapshots, NOW));
+        Assertions.assertTrue(pruned.contains(expired.versionUuid()));
+        Assertions.assertFalse(pruned.contains(snapshots.get(0).versionUuid()));
+
+        // Roughly one snapshot per hour for the first day, then one per day
+        final int kept = snapshots.size() - pruned.size();
+        Assertions.assertTrue(kept >= 25 && kept <= 27, "Kept " + kept + " snapshots");
+    }
+
+    @Test
+    public void testParseDuration() {
+        Assertions.assertEquals(TimeUnit.HOURS.toMillis(1), RetentionPolicy.parseDuration("1h"));
+        Assertions.assertEquals(TimeUnit.DAYS.toMillis(14), RetentionPolicy.parseDuration(" 2w "));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parseDuration("5y"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parseDuration("0d"));
+    }
+
+    private static RetentionPolicy.SnapshotMetadata snapshot(long age, DataSaveCause cause, boolean pinned) {
+        return new RetentionPolicy.SnapshotMetadata(UUID.randomUUID(), NOW - age, cause, pinned);
+    }
+
+}
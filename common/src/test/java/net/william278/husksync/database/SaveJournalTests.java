@@ -0,0 +1,189 @@
+package net.william278.husksync.database;
+
+import net.william278.husksync.data.DataSaveCause;
+import net.william278.husksync.logger.DummyLogger;
+import net.william278.husksync.player.User;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for recovering, committing and replaying {@link SaveJournal} entries
+ */
+public class SaveJournalTests {
+
+    private static final User USER = new User(UUID.randomUUID(), "TestUser");
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void testRecoversPendingEntries() throws IOException {
+        final SaveJournal journal = openJournal();
+        final SaveJournal.JournalEntry first = append(journal, "first");
+        final SaveJournal.JournalEntry second = append(journal, "second");
+        journal.close();
+
+        final SaveJournal reopened = openJournal();
+        final List<SaveJournal.JournalEntry> pending = reopened.getPendingEntries();
+        Assertions.assertEquals(2, pending.size());
+        Assertions.assertEquals(first.versionUuid(), pending.get(0).versionUuid());
+        Assertions.assertEquals(second.versionUuid(), pending.get(1).versionUuid());
+        Assertions.assertArrayEquals(second.data(), pending.get(1).data());
+        Assertions.assertEquals(DataSaveCause.DISCONNECT, pending.get(1).saveCause());
+        reopened.close();
+    }
+
+    @Test
+    public void testDiscardsTornRecord() throws IOException {
+        final SaveJournal journal = openJournal();
+        final SaveJournal.JournalEntry first = append(journal, "first");
+        append(journal, "second");
+        journal.close();
+
+        // Corrupt the last byte of the second record's payload, as if the write was torn
+        try (RandomAccessFile segment = new RandomAccessFile(getSegmentFiles()[0], "rw")) {
+            segment.seek(Byte.BYTES);
+            final int firstLength = segment.readInt();
+            final long secondOffset = Byte.BYTES + Integer.BYTES + firstLength + Integer.BYTES;
+            segment.seek(secondOffset + Byte.BYTES);
+            final int secondLength = segment.readInt();
+            final long lastPayloadByte = secondOffset + Byte.BYTES + Integer.BYTES + secondLength - 1;
+            segment.seek(lastPayloadByte);
+            final int value = segment.read();
+            segment.seek(lastPayloadByte);
+            segment.write(value ^ 0xFF);
+        }
+
+        final SaveJournal reopened = openJournal();
+        final List<SaveJournal.JournalEntry> pending = reopened.getPendingEntries();
+        Assertions.assertEquals(1, pending.size());
+        Assertions.assertEquals(first.versionUuid(), pending.get(0).versionUuid());
+
+        // Appends continue in a new segment, after the torn one
+        final SaveJournal.JournalEntry third = append(reopened, "third");
+        Assertions.assertTrue(third.sequence() > first.sequence());
+        reopened.close();
+    }
+
+    @Test
+    public void testCommitMarkersAcrossSegments() throws IOException {
+        final SaveJournal journal = openJournal();
+        final SaveJournal.JournalEntry first = append(journal, "first");
+        final SaveJournal.JournalEntry second = append(journal, "second");
+        journal.close();
+
+        // Commit the first entry after reopening, so its marker is written to a later segment than the entry
+        final SaveJournal reopened = openJournal();
+        reopened.commit(reopened.getPendingEntries().get(0));
+        reopened.close();
+
+        final SaveJournal recovered = openJournal();
+        final List<SaveJournal.JournalEntry> pending = recovered.getPendingEntries();
+        Assertions.assertEquals(1, pending.size());
+        Assertions.assertNotEquals(first.versionUuid(), pending.get(0).versionUuid());
+        Assertions.assertEquals(second.versionUuid(), pending.get(0).versionUuid());
+        recovered.close();
+    }
+
+    @Test
+    public void testDeletesCommittedSegments() throws IOException {
+        final SaveJournal journal = openJournal();
+        append(journal, "first");
+        journal.close();
+
+        final SaveJournal reopened = openJournal();
+        Assertions.assertEquals(2, getSegmentFiles().length);
+        final SaveJournal.JournalEntry second = append(reopened, "second");
+
+        // The old segment is kept until its entry is committed, and the active segment is never deleted
+        reopened.commit(second);
+        Assertions.assertEquals(2, getSegmentFiles().length);
+        Assertions.assertTrue(reopened.hasPendingEntries(USER.uuid));
+        reopened.commit(reopened.getPendingEntries().get(0));
+        Assertions.assertEquals(1, getSegmentFiles().length);
+        Assertions.assertTrue(reopened.getPendingEntries().isEmpty());
+        Assertions.assertFalse(reopened.hasPendingEntries(USER.uuid));
+        reopened.close();
+
+        // Fully committed segments are deleted on startup
+        final SaveJournal recovered = openJournal();
+        Assertions.assertTrue(recovered.getPendingEntries().isEmpty());
+        Assertions.assertEquals(1, getSegmentFiles().length);
+        recovered.close();
+    }
+
+    @Test
+    public void testReplaySkipsInFlightEntries() throws IOException {
+        final SaveJournal journal = openJournal();
+        final SaveJournal.JournalEntry entry = append(journal, "first");
+        Assertions.assertTrue(journal.getReplayableEntries().isEmpty());
+        journal.release(entry);
+        Assertions.assertEquals(List.of(entry), journal.getReplayableEntries());
+        journal.close();
+
+        // Entries recovered on startup are never in flight
+        final SaveJournal reopened = openJournal();
+        Assertions.assertEquals(1, reopened.getReplayableEntries().size());
+        reopened.close();
+    }
+
+    @Test
+    public void testBlockedReplayDoesNotDelayFlushes() throws Exception {
+        final SaveJournal journal = openJournal();
+        journal.release(append(journal, "first"));
+
+        final CountDownLatch replaying = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        journal.startReplaying(entry -> {
+            replaying.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }, entry -> {
+        }, 1);
+        Assertions.assertTrue(replaying.await(5, TimeUnit.SECONDS));
+
+        // Appends are acknowledged while the replay is blocked, such as on an unavailable database
+        journal.append(USER, UUID.randomUUID(), System.currentTimeMillis(), DataSaveCause.DISCONNECT,
+                "second".getBytes(StandardCharsets.UTF_8)).get(5, TimeUnit.SECONDS);
+        unblock.countDown();
+        journal.close();
+    }
+
+    @NotNull
+    private SaveJournal openJournal() throws IOException {
+        final SaveJournal journal = new SaveJournal(directory, 1, new DummyLogger());
+        journal.open();
+        return journal;
+    }
+
+    @NotNull
+    private static SaveJournal.JournalEntry append(@NotNull SaveJournal journal, @NotNull String data) {
+        return journal.append(USER, UUID.randomUUID(), System.currentTimeMillis(), DataSaveCause.DISCONNECT,
+                data.getBytes(StandardCharsets.UTF_8)).join();
+    }
+
+    @NotNull
+    private File[] getSegmentFiles() {
+        final File[] files = Objects.requireNonNull(directory.listFiles((dir, name) -> name.endsWith(".wal")));
+        Arrays.sort(files);
+        return files;
+    }
+
+}
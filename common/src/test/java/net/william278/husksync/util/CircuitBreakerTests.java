@@ -0,0 +1,77 @@
+package net.william278.husksync.util;
+
+import net.william278.husksync.logger.DummyLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the {@link CircuitBreaker} state machine
+ */
+public class CircuitBreakerTests {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        final PerformanceMetrics metrics = new PerformanceMetrics();
+        final CircuitBreaker breaker = new CircuitBreaker("test", 3, 1000, metrics, new DummyLogger(), () -> 0);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertFalse(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.isAvailable());
+        Assertions.assertEquals(1, metrics.getCounter("circuit_breaker.test.transitions.open"));
+        Assertions.assertEquals(1, metrics.getCounter("circuit_breaker.test.rejected"));
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() {
+        final CircuitBreaker breaker = new CircuitBreaker("test", 2, 1000, new PerformanceMetrics(),
+                new DummyLogger(), () -> 0);
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbeRecovers() {
+        final AtomicLong clock = new AtomicLong();
+        final PerformanceMetrics metrics = new PerformanceMetrics();
+        final CircuitBreaker breaker = new CircuitBreaker("test", 1, 1000, metrics, new DummyLogger(), clock::get);
+        breaker.recordFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        clock.set(1000);
+        Assertions.assertTrue(breaker.isAvailable());
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Only a single probe is let through at once
+        Assertions.assertFalse(breaker.tryAcquire());
+        breaker.recordSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertEquals(1, metrics.getCounter("circuit_breaker.test.transitions.closed"));
+    }
+
+    @Test
+    public void testFailedProbeReopens() {
+        final AtomicLong clock = new AtomicLong();
+        final CircuitBreaker breaker = new CircuitBreaker("test", 1, 1000, new PerformanceMetrics(),
+                new DummyLogger(), clock::get);
+        breaker.recordFailure();
+        clock.set(1500);
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.recordFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // The open duration restarts from the failed probe
+        clock.set(2000);
+        Assertions.assertFalse(breaker.tryAcquire());
+        clock.set(2500);
+        Assertions.assertTrue(breaker.tryAcquire());
+    }
+
+}